@@ -0,0 +1,238 @@
+package com.example.treebotmonitor;
+
+/**
+ * Forward and inverse kinematics for the harvesting arm.
+ *
+ * The position of the gripper depends on base yaw (A), shoulder (B), elbow (C) and wrist
+ * pitch (D). Wrist roll (E) and gripper (F) are passed through unchanged. Base yaw is
+ * solved in closed form; the shoulder/elbow/wrist chain is solved with damped least
+ * squares, warm-started from the current pose so the arm takes the nearest solution and
+ * a target that moves a little between frames converges in a couple of iterations.
+ *
+ * Angles in and out are servo degrees (0..180, as on the manual sliders), positions are
+ * metres in the arm base frame: x forward, y left, z up from the mounting plate.
+ *
+ * A solver instance keeps all scratch state in fields, so {@link #solve} does not allocate.
+ * It is not thread-safe; use one instance per thread.
+ */
+public class ArmKinematics {
+
+    // Link lengths in metres
+    private static final float BASE_HEIGHT = 0.10f;
+    private static final float UPPER_ARM = 0.20f;
+    private static final float FOREARM = 0.18f;
+    private static final float GRIPPER_REACH = 0.10f;
+
+    // Servo angle that corresponds to the zero of each joint model, and its direction.
+    // Base 90 faces forward; shoulder 0 points forward, 90 straight up; elbow and wrist
+    // 90 continue the previous link in a straight line, higher values bend downwards.
+    private static final float[] SERVO_ZERO = {90f, 0f, 90f, 90f};
+    private static final float[] SERVO_SIGN = {1f, 1f, -1f, -1f};
+
+    private static final int MAX_ITERATIONS = 50;
+    private static final float POSITION_TOLERANCE = 0.001f; // 1 mm
+    private static final float DAMPING = 0.02f;
+    private static final float MAX_STEP = (float) Math.toRadians(15); // Per iteration, per joint
+
+    // Scratch state for the solve loop
+    private final float[] q = new float[3];       // Planar shoulder, elbow, wrist in radians
+    private final float[] qMin = new float[3];
+    private final float[] qMax = new float[3];
+    private final float[] error = new float[3];   // r, z, pitch residuals
+    private final float[] jacobian = new float[9]; // 3x3, row-major
+    private final float[] system = new float[9];
+    private final float[] inverse = new float[9];
+    private final float[] solved = new float[3];
+    private final float[] planar = new float[3];   // r, z, pitch from forwardPlanar()
+
+    private int lastIterations;
+    private float lastError;
+    private float forwardPitch;
+
+    public ArmKinematics() {
+        for (int i = 0; i < 3; i++) {
+            float a = toJoint(i + 1, TrajectoryPlanner.MIN_ANGLE);
+            float b = toJoint(i + 1, TrajectoryPlanner.MAX_ANGLE);
+            qMin[i] = Math.min(a, b);
+            qMax[i] = Math.max(a, b);
+        }
+    }
+
+    /**
+     * Gripper position for a pose given in servo degrees. Writes x, y, z into {@code outXyz}.
+     */
+    public void forward(float[] servoAngles, float[] outXyz) {
+        for (int i = 0; i < 3; i++) {
+            q[i] = toJoint(i + 1, servoAngles[i + 1]);
+        }
+        forwardPlanar();
+        forwardPitch = planar[2];
+        float yaw = toJoint(0, servoAngles[0]);
+        outXyz[0] = planar[0] * (float) Math.cos(yaw);
+        outXyz[1] = planar[0] * (float) Math.sin(yaw);
+        outXyz[2] = planar[1];
+    }
+
+    /**
+     * Gripper pitch of the last {@link #forward} pose in radians from horizontal, up positive.
+     */
+    public float getForwardPitch() {
+        return forwardPitch;
+    }
+
+    /**
+     * Base yaw of a servo angle in radians, 0 facing forward along x, positive towards y.
+     */
+    public static float baseYaw(float baseServoDegrees) {
+        return toJoint(0, baseServoDegrees);
+    }
+
+    /**
+     * Solve for a pose that puts the gripper at (x, y, z).
+     *
+     * @param pitch     desired gripper pitch in degrees from horizontal, or NaN to leave it free
+     * @param current   current pose in servo degrees, used as the starting point
+     * @param out       receives the solved pose in servo degrees (joint count entries)
+     * @return true if the position was reached within tolerance; {@code out} holds the
+     *         closest pose found either way
+     */
+    public boolean solve(float x, float y, float z, float pitch, float[] current, float[] out) {
+        float targetR = (float) Math.sqrt(x * x + y * y);
+        float targetPitch = Float.isNaN(pitch) ? 0f : (float) Math.toRadians(pitch);
+        float pitchWeight = Float.isNaN(pitch) ? 0f : 0.1f; // Metres of error per radian
+
+        // Base yaw in closed form, keep the current heading for targets on the axis
+        float yaw = targetR > 1e-4f ? (float) Math.atan2(y, x) : toJoint(0, current[0]);
+
+        for (int i = 0; i < 3; i++) {
+            q[i] = clamp(toJoint(i + 1, current[i + 1]), qMin[i], qMax[i]);
+        }
+
+        int iteration = 0;
+        float positionError = Float.MAX_VALUE;
+        for (; iteration < MAX_ITERATIONS; iteration++) {
+            forwardPlanar();
+            error[0] = targetR - planar[0];
+            error[1] = z - planar[1];
+            error[2] = (targetPitch - planar[2]) * pitchWeight;
+            positionError = (float) Math.sqrt(error[0] * error[0] + error[1] * error[1]);
+            if (positionError < POSITION_TOLERANCE && Math.abs(error[2]) < POSITION_TOLERANCE) {
+                break;
+            }
+
+            planarJacobian(pitchWeight);
+            dampedLeastSquaresStep();
+            for (int i = 0; i < 3; i++) {
+                q[i] = clamp(q[i] + clamp(solved[i], -MAX_STEP, MAX_STEP), qMin[i], qMax[i]);
+            }
+        }
+
+        lastIterations = iteration;
+        lastError = positionError;
+
+        // Targets behind the base are outside the yaw servo range
+        float baseServo = toServo(0, yaw);
+        boolean yawReachable = baseServo >= TrajectoryPlanner.MIN_ANGLE
+                && baseServo <= TrajectoryPlanner.MAX_ANGLE;
+        out[0] = clamp(baseServo, TrajectoryPlanner.MIN_ANGLE, TrajectoryPlanner.MAX_ANGLE);
+        for (int i = 0; i < 3; i++) {
+            out[i + 1] = toServo(i + 1, q[i]);
+        }
+        for (int i = 4; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+            out[i] = current[i];
+        }
+        return yawReachable && positionError < POSITION_TOLERANCE;
+    }
+
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * Remaining position error of the last solve in metres.
+     */
+    public float getLastError() {
+        return lastError;
+    }
+
+    private void forwardPlanar() {
+        float a1 = q[0];
+        float a2 = a1 + q[1];
+        float a3 = a2 + q[2];
+        planar[0] = UPPER_ARM * (float) Math.cos(a1) + FOREARM * (float) Math.cos(a2)
+                + GRIPPER_REACH * (float) Math.cos(a3);
+        planar[1] = BASE_HEIGHT + UPPER_ARM * (float) Math.sin(a1) + FOREARM * (float) Math.sin(a2)
+                + GRIPPER_REACH * (float) Math.sin(a3);
+        planar[2] = a3;
+    }
+
+    private void planarJacobian(float pitchWeight) {
+        float a1 = q[0];
+        float a2 = a1 + q[1];
+        float a3 = a2 + q[2];
+        float s3 = GRIPPER_REACH * (float) Math.sin(a3);
+        float c3 = GRIPPER_REACH * (float) Math.cos(a3);
+        float s2 = FOREARM * (float) Math.sin(a2) + s3;
+        float c2 = FOREARM * (float) Math.cos(a2) + c3;
+        float s1 = UPPER_ARM * (float) Math.sin(a1) + s2;
+        float c1 = UPPER_ARM * (float) Math.cos(a1) + c2;
+
+        // d(r)/dq, d(z)/dq, d(pitch)/dq
+        jacobian[0] = -s1; jacobian[1] = -s2; jacobian[2] = -s3;
+        jacobian[3] = c1;  jacobian[4] = c2;  jacobian[5] = c3;
+        jacobian[6] = pitchWeight; jacobian[7] = pitchWeight; jacobian[8] = pitchWeight;
+    }
+
+    /**
+     * solved = J^T (J J^T + lambda^2 I)^-1 error
+     */
+    private void dampedLeastSquaresStep() {
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                float sum = 0f;
+                for (int k = 0; k < 3; k++) {
+                    sum += jacobian[r * 3 + k] * jacobian[c * 3 + k];
+                }
+                system[r * 3 + c] = r == c ? sum + DAMPING * DAMPING : sum;
+            }
+        }
+        invert3x3(system, inverse);
+
+        // w = inverse * error
+        float w0 = inverse[0] * error[0] + inverse[1] * error[1] + inverse[2] * error[2];
+        float w1 = inverse[3] * error[0] + inverse[4] * error[1] + inverse[5] * error[2];
+        float w2 = inverse[6] * error[0] + inverse[7] * error[1] + inverse[8] * error[2];
+        for (int i = 0; i < 3; i++) {
+            solved[i] = jacobian[i] * w0 + jacobian[3 + i] * w1 + jacobian[6 + i] * w2;
+        }
+    }
+
+    private static void invert3x3(float[] m, float[] out) {
+        float c00 = m[4] * m[8] - m[5] * m[7];
+        float c01 = m[5] * m[6] - m[3] * m[8];
+        float c02 = m[3] * m[7] - m[4] * m[6];
+        float det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        float inv = 1f / det;
+        out[0] = c00 * inv;
+        out[1] = (m[2] * m[7] - m[1] * m[8]) * inv;
+        out[2] = (m[1] * m[5] - m[2] * m[4]) * inv;
+        out[3] = c01 * inv;
+        out[4] = (m[0] * m[8] - m[2] * m[6]) * inv;
+        out[5] = (m[2] * m[3] - m[0] * m[5]) * inv;
+        out[6] = c02 * inv;
+        out[7] = (m[1] * m[6] - m[0] * m[7]) * inv;
+        out[8] = (m[0] * m[4] - m[1] * m[3]) * inv;
+    }
+
+    private static float toJoint(int joint, float servoDegrees) {
+        return (float) Math.toRadians((servoDegrees - SERVO_ZERO[joint]) * SERVO_SIGN[joint]);
+    }
+
+    private static float toServo(int joint, float radians) {
+        return (float) Math.toDegrees(radians) * SERVO_SIGN[joint] + SERVO_ZERO[joint];
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.treebotmonitor;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Streams planned arm trajectories to the harvesting controller.
+ *
+ * Runs on its own HandlerThread so Bluetooth writes never block the UI. Each tick samples
+ * the {@link TrajectoryPlanner} and sends only the joints whose whole-degree setpoint
+ * changed since the last tick, using the normal "A90" style commands back to back. The
+ * control rate follows the link's {@link LinkEstimator}: up to {@link #CONTROL_RATE_HZ} on
+ * a good link, down to {@link #MIN_CONTROL_RATE_HZ} on one that could not keep up.
+ */
+public class ArmMotionStreamer {
+    private static final String TAG = "ArmMotionStreamer";
+
+    public static final int CONTROL_RATE_HZ = 50;
+    public static final int MIN_CONTROL_RATE_HZ = 10;
+    private static final long MIN_CONTROL_PERIOD_MS = 1000 / CONTROL_RATE_HZ;
+    private static final long MAX_CONTROL_PERIOD_MS = 1000 / MIN_CONTROL_RATE_HZ;
+    // A tick that moves every joint, "A180" per joint
+    private static final int MAX_TICK_BYTES = TrajectoryPlanner.JOINT_COUNT * 4;
+
+    private final HarvestingBluetoothHelper bluetoothHelper;
+    private final TrajectoryPlanner planner = new TrajectoryPlanner();
+    private final HandlerThread streamThread;
+    private final Handler streamHandler;
+
+    // Last pose commanded to the arm, in whole degrees as sent on the wire
+    private final int[] sentAngles = new int[TrajectoryPlanner.JOINT_COUNT];
+    private final float[] setpoint = new float[TrajectoryPlanner.JOINT_COUNT];
+    private final float[] moveStart = new float[TrajectoryPlanner.JOINT_COUNT];
+
+    private volatile boolean isStreaming = false;
+    private long moveStartTime;
+    private long nextTickTime;
+    private volatile long controlPeriodMs = MIN_CONTROL_PERIOD_MS;
+    private Runnable onMoveComplete;
+    private Handler completionHandler;
+
+    // Control loop statistics
+    private long ticks = 0;
+    private long lateTicks = 0;
+
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!isStreaming) return;
+
+            long now = SystemClock.uptimeMillis();
+            if (now - nextTickTime > controlPeriodMs) {
+                lateTicks++;
+            }
+            ticks++;
+
+            float t = (now - moveStartTime) / 1000f;
+            planner.sample(t, setpoint);
+            sendChangedJoints();
+
+            if (t >= planner.getDuration()) {
+                finishMove();
+                return;
+            }
+
+            controlPeriodMs = bluetoothHelper.getLinkEstimator()
+                    .getSendIntervalMs(MAX_TICK_BYTES, MIN_CONTROL_PERIOD_MS, MAX_CONTROL_PERIOD_MS);
+            // Schedule against the ideal timeline so the rate does not drift
+            nextTickTime += controlPeriodMs;
+            if (nextTickTime <= now) {
+                nextTickTime = now + controlPeriodMs;
+            }
+            streamHandler.postAtTime(this, nextTickTime);
+        }
+    };
+
+    public ArmMotionStreamer(HarvestingBluetoothHelper bluetoothHelper, float[] initialPose) {
+        this.bluetoothHelper = bluetoothHelper;
+        for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+            sentAngles[i] = Math.round(initialPose[i]);
+        }
+        streamThread = new HandlerThread("ArmMotionStreamer");
+        streamThread.start();
+        streamHandler = new Handler(streamThread.getLooper());
+    }
+
+    public TrajectoryPlanner getPlanner() {
+        return planner;
+    }
+
+    /**
+     * Move smoothly from the last commanded pose to {@code target}. Any move in progress
+     * is replaced. {@code onComplete} runs on {@code callbackHandler} once the final
+     * setpoint has been sent.
+     */
+    public void moveTo(float[] target, Handler callbackHandler, Runnable onComplete) {
+        final float[] goal = target.clone();
+        streamHandler.post(() -> {
+            streamHandler.removeCallbacks(tickRunnable);
+            for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+                moveStart[i] = sentAngles[i];
+            }
+            float duration = planner.plan(moveStart, goal);
+            Log.d(TAG, "Planned move over " + duration + " s");
+
+            completionHandler = callbackHandler;
+            onMoveComplete = onComplete;
+            isStreaming = true;
+            moveStartTime = SystemClock.uptimeMillis();
+            nextTickTime = moveStartTime;
+            tickRunnable.run();
+        });
+    }
+
+    /**
+     * Stop streaming where the arm currently is. The pending completion callback is dropped.
+     */
+    public void stop() {
+        isStreaming = false;
+        streamHandler.post(() -> {
+            streamHandler.removeCallbacks(tickRunnable);
+            onMoveComplete = null;
+            completionHandler = null;
+        });
+    }
+
+    /**
+     * Send one joint straight to {@code angle}, e.g. to close the gripper, and record it as
+     * the start of the next move. A move in progress is stopped and its callback dropped.
+     * {@code onSent} runs on {@code callbackHandler} once the command has been sent.
+     */
+    public void sendJoint(int joint, int angle, Handler callbackHandler, Runnable onSent) {
+        isStreaming = false;
+        streamHandler.post(() -> {
+            streamHandler.removeCallbacks(tickRunnable);
+            onMoveComplete = null;
+            completionHandler = null;
+            sentAngles[joint] = angle;
+            bluetoothHelper.sendCommand(TrajectoryPlanner.JOINT_PREFIXES[joint] + angle);
+            callbackHandler.post(onSent);
+        });
+    }
+
+    /**
+     * Record a joint angle that was commanded outside the streamer, e.g. by a manual slider,
+     * so the next move starts from where the arm really is.
+     */
+    public void updateJointAngle(int joint, int angle) {
+        streamHandler.post(() -> sentAngles[joint] = angle);
+    }
+
+    /**
+     * Copy the last commanded pose into {@code out}, in servo degrees.
+     */
+    public void getCurrentPose(float[] out) {
+        for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+            out[i] = sentAngles[i];
+        }
+    }
+
+    public boolean isStreaming() {
+        return isStreaming;
+    }
+
+    /**
+     * Current tick period, for the last link estimate.
+     */
+    public long getControlPeriodMs() {
+        return controlPeriodMs;
+    }
+
+    /**
+     * Fraction of control ticks that ran later than one period behind schedule.
+     */
+    public float getLateTickRatio() {
+        return ticks == 0 ? 0f : (float) lateTicks / ticks;
+    }
+
+    public void release() {
+        isStreaming = false;
+        streamHandler.removeCallbacksAndMessages(null);
+        streamThread.quitSafely();
+    }
+
+    private void sendChangedJoints() {
+        // One command per tick, e.g. "A91B46": a single pose frame with binary framing, split
+        // back into one command per joint by the helper on an ASCII link
+        StringBuilder command = new StringBuilder();
+        for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+            int angle = Math.round(setpoint[i]);
+            if (angle != sentAngles[i]) {
+                sentAngles[i] = angle;
+                command.append(TrajectoryPlanner.JOINT_PREFIXES[i]).append(angle);
+            }
+        }
+        if (command.length() > 0) {
+            bluetoothHelper.sendCommand(command.toString());
+        }
+    }
+
+    private void finishMove() {
+        isStreaming = false;
+        Log.d(TAG, "Move complete after " + ticks + " ticks, late ratio " + getLateTickRatio());
+
+        Runnable callback = onMoveComplete;
+        Handler target = completionHandler;
+        onMoveComplete = null;
+        completionHandler = null;
+        if (callback != null && target != null) {
+            target.post(callback);
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package com.example.treebotmonitor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Compact framed alternative to the ASCII arm protocol.
+ *
+ * A frame is {@code SYNC, opcode << 4 | seq, payload, crc8}, with the CRC (polynomial 0x07)
+ * over the opcode byte and payload. The payload width is fixed by the opcode: one angle byte
+ * for a joint, a joint mask and one angle byte per joint for a pose, nothing for
+ * PING/PONG/OK, one sequence byte for a NAK, and a length byte plus ASCII for anything else.
+ * A joint setpoint is 4 bytes with an integrity check, where "A120" had none and no
+ * terminator; a six-joint pose such as "A90B45C120D90E90F30" is 10 bytes instead of 19.
+ *
+ * The controller answers a frame it lost, seen as a gap in sequence numbers, with a NAK,
+ * and the app resends that frame from the {@link Encoder}'s history. A lost setpoint is
+ * answered with the current pose instead, so the arm never goes back to a stale target.
+ *
+ * With delta encoding on, a setpoint whose joints each moved by -8..+7 degrees since the
+ * last one sent is a delta frame: the joint mask and one signed nibble per joint, so a
+ * six-joint tick is 7 bytes. Every {@link #KEYFRAME_INTERVAL} setpoints the full pose goes
+ * out as an absolute keyframe. A decoder that lost a frame forgets the pose and ignores
+ * deltas for a joint until an absolute value for it arrives.
+ *
+ * The link starts in ASCII. The app sends {@link #HELLO}; a controller that understands
+ * frames answers {@link #HELLO_ACK}, or {@link #HELLO_ACK_DELTA} if it also takes deltas,
+ * in ASCII and switches to frames once the first frame from the app arrives. Any other
+ * answer, or none, keeps the link on ASCII.
+ *
+ * Commands and replies are translated to and from their ASCII spelling, so the rest of the
+ * app does not see which protocol is in use.
+ */
+public class BinaryProtocol {
+
+    public static final String HELLO = "PROTO:BIN1";
+    public static final String HELLO_ACK = "PROTO:BIN1:OK";
+    public static final String HELLO_ACK_DELTA = "PROTO:BIN1:DELTA";
+
+    /** Setpoint frames between absolute keyframes, half a second at 50 Hz */
+    public static final int KEYFRAME_INTERVAL = 25;
+
+    static final int SYNC = 0xA5;
+    static final int OP_TEXT = 0;
+    // Opcodes 1-6 are joints A-F
+    static final int OP_JOINT = 1;
+    static final int OP_PING = 7;
+    static final int OP_PONG = 8;
+    static final int OP_OK = 9;
+    static final int OP_NAK = 10;
+    static final int OP_POSE = 11;
+    static final int OP_DELTA = 12;
+    private static final int MIN_DELTA = -8;
+    private static final int MAX_DELTA = 7;
+    private static final int ALL_JOINTS = (1 << TrajectoryPlanner.JOINT_COUNT) - 1;
+
+    private static final int MAX_TEXT = 255;
+    private static final int SEQ_MODULO = 16;
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x80) != 0 ? (crc << 1) ^ 0x07 : crc << 1;
+            }
+            CRC_TABLE[i] = crc & 0xFF;
+        }
+    }
+
+    /**
+     * Sequence number in a "NAK:&lt;seq&gt;" message, or -1 if it is garbled or out of range.
+     */
+    public static int parseNak(String message) {
+        if (!message.startsWith("NAK:")) return -1;
+        try {
+            int seq = Integer.parseInt(message.substring(4));
+            return seq >= 0 && seq < SEQ_MODULO ? seq : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static int crc8(byte[] data, int offset, int length) {
+        int crc = 0;
+        for (int i = offset; i < offset + length; i++) {
+            crc = CRC_TABLE[(crc ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    /**
+     * Turns ASCII commands into frames with running sequence numbers and keeps the last
+     * {@link #SEQ_MODULO} frames for resending on a NAK. Not thread safe; callers must
+     * encode and write under one lock so frames go out in sequence order.
+     */
+    public static class Encoder {
+        private final byte[][] history = new byte[SEQ_MODULO][];
+        private int seq = 0;
+
+        // Last angle sent per joint, valid where the bit is set in sentMask
+        private final int[] sentAngles = new int[TrajectoryPlanner.JOINT_COUNT];
+        private int sentMask = 0;
+        private boolean deltaEncoding = false;
+        private boolean keyframeDue = true;
+        private int setpointsSinceKeyframe = 0;
+
+        public void setDeltaEncoding(boolean enabled) {
+            deltaEncoding = enabled;
+            keyframeDue = true;
+        }
+
+        public boolean isDeltaEncoding() {
+            return deltaEncoding;
+        }
+
+        public byte[] encode(String command) {
+            int opcode;
+            byte[] payload;
+            int[] angles = new int[TrajectoryPlanner.JOINT_COUNT];
+            int mask = parseJoints(command, angles);
+            if (mask != 0) {
+                return encodeSetpoint(mask, angles);
+            } else if (command.equals("PING")) {
+                opcode = OP_PING;
+                payload = new byte[0];
+            } else if (command.equals("PONG")) {
+                opcode = OP_PONG;
+                payload = new byte[0];
+            } else if (command.equals("OK")) {
+                opcode = OP_OK;
+                payload = new byte[0];
+            } else if (command.startsWith("NAK:")) {
+                opcode = OP_NAK;
+                payload = new byte[]{(byte) Integer.parseInt(command.substring(4))};
+            } else {
+                byte[] text = command.getBytes(StandardCharsets.US_ASCII);
+                if (text.length > MAX_TEXT) {
+                    throw new IllegalArgumentException("Command too long for a frame: " + text.length);
+                }
+                opcode = OP_TEXT;
+                payload = new byte[text.length + 1];
+                payload[0] = (byte) text.length;
+                System.arraycopy(text, 0, payload, 1, text.length);
+            }
+
+            return frame(opcode, payload);
+        }
+
+        /**
+         * Frame last sent with {@code seq}, or null.
+         */
+        public byte[] getSentFrame(int seq) {
+            return seq >= 0 && seq < SEQ_MODULO ? history[seq] : null;
+        }
+
+        /**
+         * Frame to send in answer to a NAK, or null. A lost setpoint is not resent, since a
+         * later one may already have superseded it and a delta no longer applies on top of
+         * what followed; a keyframe of the current pose replaces it.
+         */
+        public byte[] getResendFrame(int seq) {
+            byte[] frame = getSentFrame(seq);
+            if (frame != null && isSetpoint((frame[1] & 0xFF) >> 4)) {
+                keyframeDue = true;
+                return encodeSetpoint(sentMask, sentAngles.clone());
+            }
+            return frame;
+        }
+
+        private static boolean isSetpoint(int opcode) {
+            return (opcode >= OP_JOINT && opcode < OP_PING) || opcode == OP_POSE || opcode == OP_DELTA;
+        }
+
+        private byte[] encodeSetpoint(int mask, int[] angles) {
+            boolean keyframe = false;
+            if (deltaEncoding) {
+                if (keyframeDue || setpointsSinceKeyframe >= KEYFRAME_INTERVAL) {
+                    // Restate every joint we know so a decoder that lost track resynchronises
+                    for (int joint = 0; joint < angles.length; joint++) {
+                        if ((mask & 1 << joint) == 0 && (sentMask & 1 << joint) != 0) {
+                            angles[joint] = sentAngles[joint];
+                        }
+                    }
+                    mask |= sentMask;
+                    keyframe = true;
+                } else if (Integer.bitCount(mask) > 1 && fitsDelta(mask, angles)) {
+                    // A lone joint is no smaller as a delta than as an absolute joint frame
+                    byte[] payload = new byte[1 + (Integer.bitCount(mask) + 1) / 2];
+                    payload[0] = (byte) mask;
+                    int nibble = 0;
+                    for (int joint = 0; joint < angles.length; joint++) {
+                        if ((mask & 1 << joint) == 0) continue;
+                        int delta = (angles[joint] - sentAngles[joint]) & 0x0F;
+                        payload[1 + nibble / 2] |= (byte) (nibble % 2 == 0 ? delta << 4 : delta);
+                        nibble++;
+                        sentAngles[joint] = angles[joint];
+                    }
+                    setpointsSinceKeyframe++;
+                    return frame(OP_DELTA, payload);
+                }
+            }
+
+            for (int joint = 0; joint < angles.length; joint++) {
+                if ((mask & 1 << joint) != 0) sentAngles[joint] = angles[joint];
+            }
+            sentMask |= mask;
+            if (keyframe) {
+                keyframeDue = false;
+                setpointsSinceKeyframe = 0;
+            } else {
+                setpointsSinceKeyframe++;
+            }
+
+            if (Integer.bitCount(mask) == 1) {
+                int joint = Integer.numberOfTrailingZeros(mask);
+                return frame(OP_JOINT + joint, new byte[]{(byte) angles[joint]});
+            }
+            byte[] payload = new byte[Integer.bitCount(mask) + 1];
+            payload[0] = (byte) mask;
+            int n = 1;
+            for (int joint = 0; joint < angles.length; joint++) {
+                if ((mask & 1 << joint) != 0) payload[n++] = (byte) angles[joint];
+            }
+            return frame(OP_POSE, payload);
+        }
+
+        private boolean fitsDelta(int mask, int[] angles) {
+            if ((mask & sentMask) != mask) return false;
+            for (int joint = 0; joint < angles.length; joint++) {
+                if ((mask & 1 << joint) == 0) continue;
+                int delta = angles[joint] - sentAngles[joint];
+                if (delta < MIN_DELTA || delta > MAX_DELTA) return false;
+            }
+            return true;
+        }
+
+        private byte[] frame(int opcode, byte[] payload) {
+            byte[] frame = new byte[payload.length + 3];
+            frame[0] = (byte) SYNC;
+            frame[1] = (byte) (opcode << 4 | seq);
+            System.arraycopy(payload, 0, frame, 2, payload.length);
+            frame[frame.length - 1] = (byte) crc8(frame, 1, payload.length + 1);
+            history[seq] = frame;
+            seq = (seq + 1) % SEQ_MODULO;
+            return frame;
+        }
+
+        /**
+         * Parse joint setpoints like "A120" or "A90B45F30", joints in ascending order, into
+         * {@code angles}. Returns the mask of joints set, or 0 if this is not such a command.
+         */
+        private static int parseJoints(String command, int[] angles) {
+            int mask = 0;
+            int i = 0;
+            int length = command.length();
+            while (i < length) {
+                int joint = command.charAt(i++) - 'A';
+                if (joint < 0 || joint >= TrajectoryPlanner.JOINT_COUNT || mask >> joint != 0) return 0;
+                int digits = 0;
+                int angle = 0;
+                while (i < length && command.charAt(i) >= '0' && command.charAt(i) <= '9') {
+                    angle = angle * 10 + (command.charAt(i++) - '0');
+                    digits++;
+                }
+                // Leading zeros would not survive the round trip
+                if (digits == 0 || digits > 3 || angle > 255
+                        || (digits > 1 && command.charAt(i - digits) == '0')) {
+                    return 0;
+                }
+                angles[joint] = angle;
+                mask |= 1 << joint;
+            }
+            return mask;
+        }
+    }
+
+    /**
+     * Reassembles frames from a byte stream and validates them. A frame with a bad CRC
+     * costs one byte: the decoder skips its sync byte and looks for the next one.
+     */
+    public static class Decoder {
+        private byte[] buffer = new byte[MAX_TEXT + 4];
+        private int size = 0;
+        private long frames = 0;
+        private long crcErrors = 0;
+        private long skippedBytes = 0;
+
+        // Current pose for applying deltas, valid where the bit is set in knownMask
+        private final int[] angles = new int[TrajectoryPlanner.JOINT_COUNT];
+        private int knownMask = 0;
+        private int lastSeq = -1;
+        private long lostFrames = 0;
+        private long ignoredDeltas = 0;
+
+        /**
+         * Append {@code length} bytes and add the ASCII form of every complete valid frame
+         * to {@code out}. Corrupted frames are dropped and counted; the controller spots
+         * the gap in sequence numbers and answers "NAK:&lt;seq&gt;" for each frame it lost.
+         */
+        public void feed(byte[] data, int length, List<String> out) {
+            if (size + length > buffer.length) {
+                byte[] grown = new byte[Math.max(buffer.length * 2, size + length)];
+                System.arraycopy(buffer, 0, grown, 0, size);
+                buffer = grown;
+            }
+            System.arraycopy(data, 0, buffer, size, length);
+            size += length;
+
+            int start = 0;
+            while (start < size) {
+                if ((buffer[start] & 0xFF) != SYNC) {
+                    start++;
+                    skippedBytes++;
+                    continue;
+                }
+                int frameLength = frameLength(start);
+                if (frameLength < 0 || start + frameLength > size) break;
+
+                int crc = crc8(buffer, start + 1, frameLength - 2);
+                if (crc != (buffer[start + frameLength - 1] & 0xFF)) {
+                    crcErrors++;
+                    knownMask = 0;
+                    start++;
+                    continue;
+                }
+                int seq = buffer[start + 1] & 0x0F;
+                if (lastSeq >= 0 && seq != (lastSeq + 1) % SEQ_MODULO) {
+                    // Missed frames may have been deltas, so the pose is no longer trusted
+                    lostFrames += (seq - lastSeq - 1 + SEQ_MODULO) % SEQ_MODULO;
+                    knownMask = 0;
+                }
+                lastSeq = seq;
+                String message = toAscii(start, frameLength);
+                if (message != null) {
+                    out.add(message);
+                    frames++;
+                }
+                start += frameLength;
+            }
+
+            System.arraycopy(buffer, start, buffer, 0, size - start);
+            size -= start;
+        }
+
+        public long getFrameCount() {
+            return frames;
+        }
+
+        public long getCrcErrorCount() {
+            return crcErrors;
+        }
+
+        /**
+         * Bytes dropped while looking for a frame start.
+         */
+        public long getSkippedBytes() {
+            return skippedBytes;
+        }
+
+        /**
+         * Frames missing from the sequence numbering.
+         */
+        public long getLostFrames() {
+            return lostFrames;
+        }
+
+        /**
+         * Delta frames dropped because a joint's absolute angle was not known.
+         */
+        public long getIgnoredDeltas() {
+            return ignoredDeltas;
+        }
+
+        /**
+         * Length of the frame starting at {@code start}, or -1 if not yet known.
+         */
+        private int frameLength(int start) {
+            if (start + 1 >= size) return -1;
+            int opcode = (buffer[start + 1] & 0xFF) >> 4;
+            if (opcode == OP_TEXT) {
+                if (start + 2 >= size) return -1;
+                return (buffer[start + 2] & 0xFF) + 4;
+            }
+            if (opcode == OP_POSE) {
+                if (start + 2 >= size) return -1;
+                return Integer.bitCount(buffer[start + 2] & ALL_JOINTS) + 4;
+            }
+            if (opcode == OP_DELTA) {
+                if (start + 2 >= size) return -1;
+                return (Integer.bitCount(buffer[start + 2] & ALL_JOINTS) + 1) / 2 + 4;
+            }
+            if (opcode < OP_PING || opcode == OP_NAK) return 4;
+            return 3;
+        }
+
+        private String toAscii(int start, int frameLength) {
+            int opcode = (buffer[start + 1] & 0xFF) >> 4;
+            if (opcode == OP_TEXT) {
+                return new String(buffer, start + 3, frameLength - 4, StandardCharsets.US_ASCII);
+            }
+            if (opcode < OP_PING) {
+                int joint = opcode - OP_JOINT;
+                angles[joint] = buffer[start + 2] & 0xFF;
+                knownMask |= 1 << joint;
+                return TrajectoryPlanner.JOINT_PREFIXES[joint] + angles[joint];
+            }
+            switch (opcode) {
+                case OP_PING:
+                    return "PING";
+                case OP_PONG:
+                    return "PONG";
+                case OP_OK:
+                    return "OK";
+                case OP_NAK:
+                    return "NAK:" + (buffer[start + 2] & 0xFF);
+                case OP_POSE: {
+                    int mask = buffer[start + 2] & ALL_JOINTS;
+                    int n = start + 3;
+                    for (int joint = 0; joint < TrajectoryPlanner.JOINT_COUNT; joint++) {
+                        if ((mask & 1 << joint) != 0) angles[joint] = buffer[n++] & 0xFF;
+                    }
+                    knownMask |= mask;
+                    return poseToAscii(mask);
+                }
+                case OP_DELTA: {
+                    int mask = buffer[start + 2] & ALL_JOINTS;
+                    if ((mask & knownMask) != mask) {
+                        ignoredDeltas++;
+                        return null;
+                    }
+                    int nibble = 0;
+                    for (int joint = 0; joint < TrajectoryPlanner.JOINT_COUNT; joint++) {
+                        if ((mask & 1 << joint) == 0) continue;
+                        int packed = buffer[start + 3 + nibble / 2] & 0xFF;
+                        int delta = nibble % 2 == 0 ? packed >> 4 : packed & 0x0F;
+                        // Sign-extend the nibble
+                        angles[joint] += delta >= 8 ? delta - 16 : delta;
+                        nibble++;
+                    }
+                    return poseToAscii(mask);
+                }
+                default:
+                    // Unknown opcode with a valid CRC, from newer firmware
+                    return null;
+            }
+        }
+
+        private String poseToAscii(int mask) {
+            StringBuilder pose = new StringBuilder();
+            for (int joint = 0; joint < TrajectoryPlanner.JOINT_COUNT; joint++) {
+                if ((mask & 1 << joint) != 0) {
+                    pose.append(TrajectoryPlanner.JOINT_PREFIXES[joint]).append(angles[joint]);
+                }
+            }
+            return pose.toString();
+        }
+    }
+}
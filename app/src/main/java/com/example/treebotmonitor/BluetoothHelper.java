@@ -32,6 +32,10 @@ public class BluetoothHelper {
     private ConnectedThread connectedThread;
     private boolean isConnected = false;
 
+    // Throughput estimate that send rates adapt to. The climber acknowledges nothing, so it
+    // stays at the conservative prior; timing writes would only measure the socket buffer copy.
+    private final LinkEstimator linkEstimator = new LinkEstimator();
+
     // Private constructor for singleton
     private BluetoothHelper(Context context, Handler handler) {
         this.context = context;
@@ -115,6 +119,10 @@ public class BluetoothHelper {
         return isConnected;
     }
 
+    public LinkEstimator getLinkEstimator() {
+        return linkEstimator;
+    }
+
     private void sendStatusUpdate(String status) {
         if (handler != null) {
             Message msg = handler.obtainMessage();
@@ -271,6 +279,7 @@ public class BluetoothHelper {
                     return;
                 }
                 outStream.write(bytes);
+                linkEstimator.onWriteComplete(bytes.length);
             } catch (IOException e) {
                 Log.e(TAG, "Error sending data", e);
                 sendStatusUpdate("Bluetooth: Error sending command");
@@ -0,0 +1,63 @@
+package com.example.treebotmonitor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * One preview frame in planar YUV 4:2:0, backed by buffers that are reused frame after frame.
+ *
+ * Frames come from a fixed {@link Pool} allocated when the camera starts. Whoever receives
+ * a frame must call {@link #release()} once done with it; if every frame is still held the
+ * camera drops new images instead of allocating more.
+ */
+public class CameraFrame {
+
+    public final int width;
+    public final int height;
+    public final byte[] y;   // width * height luma
+    public final byte[] u;   // (width / 2) * (height / 2) chroma
+    public final byte[] v;
+    public long timestampNs; // Sensor timestamp, same clock as SystemClock.elapsedRealtimeNanos()
+
+    private final Pool pool;
+
+    private CameraFrame(Pool pool, int width, int height) {
+        this.pool = pool;
+        this.width = width;
+        this.height = height;
+        y = new byte[width * height];
+        u = new byte[(width / 2) * (height / 2)];
+        v = new byte[(width / 2) * (height / 2)];
+    }
+
+    /**
+     * Hand the buffers back for the next frame.
+     */
+    public void release() {
+        pool.free.offer(this);
+    }
+
+    /**
+     * Fixed set of preallocated frames. Acquire and release do not allocate.
+     */
+    public static class Pool {
+        private final ArrayBlockingQueue<CameraFrame> free;
+
+        public Pool(int size, int width, int height) {
+            free = new ArrayBlockingQueue<>(size);
+            for (int i = 0; i < size; i++) {
+                free.offer(new CameraFrame(this, width, height));
+            }
+        }
+
+        /**
+         * Take a free frame, or null if all frames are in use.
+         */
+        public CameraFrame acquire() {
+            return free.poll();
+        }
+
+        public int available() {
+            return free.size();
+        }
+    }
+}
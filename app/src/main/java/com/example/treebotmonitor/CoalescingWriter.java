@@ -0,0 +1,273 @@
+package com.example.treebotmonitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Gathers commands into as few RFCOMM packets as possible.
+ *
+ * {@link #submit} only appends to a buffer; a writer thread writes and flushes whatever has
+ * queued up in one go. Commands that arrive while a flush is in progress therefore share the
+ * next packet. While a burst is running (the last batch held more than one command), the
+ * writer also holds each batch open for a short window that doubles while batches keep
+ * filling and halves when they do not, up to {@link #setMaxWindowNs}. A command arriving
+ * after an idle gap resets the window to zero, so single commands are written as soon as
+ * they are submitted.
+ *
+ * When the link stalls, the queue past {@link #MAX_QUEUE_BYTES} is thinned out: a queued
+ * setpoint is dropped once later setpoints set every joint it sets, so the link does not
+ * burst stale poses when it recovers. Other commands are never dropped.
+ */
+public class CoalescingWriter {
+
+    public interface Listener {
+        void onWriteError(IOException e);
+
+        /**
+         * {@code bytes} were written and flushed.
+         */
+        default void onWriteComplete(int bytes) {}
+
+        /**
+         * {@code count} queued setpoints were dropped unsent, replaced by later ones.
+         */
+        default void onSetpointsDropped(int count) {}
+    }
+
+    public static final long MIN_WINDOW_NS = 250_000;
+    public static final long MAX_WINDOW_NS = 4_000_000;
+    private static final int MAX_BATCH_BYTES = 512;
+    public static final int MAX_QUEUE_BYTES = 2 * MAX_BATCH_BYTES;
+
+    private final OutputStream out;
+    private final Listener listener;
+    private final Thread writerThread;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private byte[] pending = new byte[MAX_BATCH_BYTES];
+    private int pendingSize = 0;
+    private int pendingCommands = 0;
+    private int[] pendingEnds = new int[64];     // End offset of each queued command
+    private int[] pendingMasks = new int[64];    // Joints a queued setpoint sets, 0 for other commands
+    private long lastSubmitNs = 0;
+    private long windowNs = 0;
+    private long maxWindowNs = MAX_WINDOW_NS;
+    private boolean closed = false;
+    private Runnable onClosed;
+
+    // Writer thread only
+    private byte[] writing = new byte[MAX_BATCH_BYTES];
+
+    private volatile long commands = 0;
+    private volatile long writes = 0;
+    private volatile long bytes = 0;
+    private volatile long droppedSetpoints = 0;
+
+    public CoalescingWriter(OutputStream out, Listener listener) {
+        this.out = out;
+        this.listener = listener;
+        writerThread = new Thread(() -> {
+            writeLoop();
+            Runnable callback;
+            synchronized (lock) {
+                callback = onClosed;
+            }
+            if (callback != null) callback.run();
+        }, "CoalescingWriter");
+        writerThread.start();
+    }
+
+    /**
+     * Queue {@code data} behind everything submitted before it. Returns false once closed.
+     */
+    public boolean submit(byte[] data) {
+        return submit(data, 0);
+    }
+
+    /**
+     * Queue a command that sets the joints in {@code jointMask} (bit 0 is joint A), so a
+     * stalled queue may drop it once later setpoints cover those joints. A mask of 0 marks
+     * a command that is always sent.
+     */
+    public boolean submit(byte[] data, int jointMask) {
+        int dropped = 0;
+        synchronized (lock) {
+            if (closed) return false;
+
+            long now = System.nanoTime();
+            if (now - lastSubmitNs > maxWindowNs) {
+                // Idle link, do not hold a lone command back
+                windowNs = 0;
+            }
+            lastSubmitNs = now;
+
+            if (pendingSize + data.length > MAX_QUEUE_BYTES) {
+                dropped = dropSuperseded(jointMask);
+            }
+            if (pendingSize + data.length > pending.length) {
+                byte[] grown = new byte[Math.max(pending.length * 2, pendingSize + data.length)];
+                System.arraycopy(pending, 0, grown, 0, pendingSize);
+                pending = grown;
+            }
+            if (pendingCommands == pendingEnds.length) {
+                pendingEnds = Arrays.copyOf(pendingEnds, pendingCommands * 2);
+                pendingMasks = Arrays.copyOf(pendingMasks, pendingCommands * 2);
+            }
+            System.arraycopy(data, 0, pending, pendingSize, data.length);
+            pendingSize += data.length;
+            pendingEnds[pendingCommands] = pendingSize;
+            pendingMasks[pendingCommands] = jointMask;
+            pendingCommands++;
+            lock.notifyAll();
+        }
+        if (dropped > 0) {
+            listener.onSetpointsDropped(dropped);
+        }
+        return true;
+    }
+
+    /**
+     * Write out what is queued, then stop the writer thread and run {@code onClosed} on it.
+     * Returns at once; write errors from then on are not reported.
+     */
+    public void close(Runnable onClosed) {
+        synchronized (lock) {
+            closed = true;
+            this.onClosed = onClosed;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Longest a batch is held open, between {@link #MIN_WINDOW_NS} and {@link #MAX_WINDOW_NS}.
+     */
+    public void setMaxWindowNs(long windowNs) {
+        synchronized (lock) {
+            maxWindowNs = Math.max(MIN_WINDOW_NS, Math.min(MAX_WINDOW_NS, windowNs));
+            this.windowNs = Math.min(this.windowNs, maxWindowNs);
+        }
+    }
+
+    public long getCommandCount() {
+        return commands;
+    }
+
+    public long getWriteCount() {
+        return writes;
+    }
+
+    public long getByteCount() {
+        return bytes;
+    }
+
+    /**
+     * Setpoints dropped unsent because later ones replaced them.
+     */
+    public long getDroppedSetpointCount() {
+        return droppedSetpoints;
+    }
+
+    /**
+     * Average commands per packet so far.
+     */
+    public float getBatchFactor() {
+        long w = writes;
+        return w == 0 ? 0f : (float) commands / w;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            int size;
+            int batched;
+            synchronized (lock) {
+                try {
+                    while (pendingSize == 0 && !closed) {
+                        lock.wait();
+                    }
+                    if (pendingSize == 0) return;
+
+                    long deadline = System.nanoTime() + windowNs;
+                    long remaining;
+                    while (!closed && pendingSize < MAX_BATCH_BYTES
+                            && (remaining = deadline - System.nanoTime()) > 0) {
+                        lock.wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                // Swap buffers so submit can fill the other one while this one is written
+                byte[] batch = pending;
+                pending = writing;
+                writing = batch;
+                size = pendingSize;
+                batched = pendingCommands;
+                pendingSize = 0;
+                pendingCommands = 0;
+
+                if (batched > 1) {
+                    windowNs = Math.min(maxWindowNs, Math.max(MIN_WINDOW_NS, windowNs * 2));
+                } else {
+                    windowNs = windowNs / 2 < MIN_WINDOW_NS ? 0 : windowNs / 2;
+                }
+            }
+
+            try {
+                out.write(writing, 0, size);
+                out.flush();
+                commands += batched;
+                writes++;
+                bytes += size;
+                listener.onWriteComplete(size);
+            } catch (IOException e) {
+                reportError(e);
+            } catch (SecurityException e) {
+                reportError(new IOException(e));
+            }
+        }
+    }
+
+    private void reportError(IOException e) {
+        synchronized (lock) {
+            // Once closed the socket is going away, and its reader reports the loss
+            if (closed) return;
+        }
+        listener.onWriteError(e);
+    }
+
+    /**
+     * Drop queued setpoints whose every joint is set again later in the queue or by the
+     * command about to be queued, and return how many went. Call with the lock held.
+     */
+    private int dropSuperseded(int newerMask) {
+        boolean[] keep = new boolean[pendingCommands];
+        int covered = newerMask;
+        for (int i = pendingCommands - 1; i >= 0; i--) {
+            keep[i] = pendingMasks[i] == 0 || (pendingMasks[i] & ~covered) != 0;
+            covered |= pendingMasks[i];
+        }
+
+        int size = 0;
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i < pendingCommands; i++) {
+            int end = pendingEnds[i];
+            if (keep[i]) {
+                System.arraycopy(pending, start, pending, size, end - start);
+                size += end - start;
+                pendingEnds[count] = size;
+                pendingMasks[count] = pendingMasks[i];
+                count++;
+            }
+            start = end;
+        }
+
+        int dropped = pendingCommands - count;
+        pendingSize = size;
+        pendingCommands = count;
+        droppedSetpoints += dropped;
+        return dropped;
+    }
+}
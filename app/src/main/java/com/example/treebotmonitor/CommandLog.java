@@ -0,0 +1,89 @@
+package com.example.treebotmonitor;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * Text log of every command sent to and message received from the harvesting arm.
+ *
+ * Each line is {@code <elapsedRealtimeNanos> <direction> <text>}, with ">" for sent
+ * commands, "<" for received messages and "#" for notes. That is the same clock as the
+ * camera frame timestamps, so a recording can be lined up with the log. Callers only
+ * take a timestamp and post; the file is written on a background thread. Recording and
+ * closing are synchronized, so a line recorded on another thread during {@link #close()}
+ * is either written or dropped, never posted to a stopped executor.
+ */
+public class CommandLog {
+    private static final String TAG = "CommandLog";
+
+    public static final String SENT = ">";
+    public static final String RECEIVED = "<";
+    public static final String NOTE = "#";
+
+    private final BufferedWriter writer;
+    private final LongSupplier clock;
+    private final ExecutorService logExecutor =
+            Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "CommandLog"));
+    private boolean closed = false;
+
+    public CommandLog(File file) throws IOException {
+        this(new FileWriter(file), SystemClock::elapsedRealtimeNanos);
+        note("clock elapsedRealtimeNanos");
+    }
+
+    /**
+     * @param clock nanosecond clock for the line timestamps
+     */
+    public CommandLog(Writer out, LongSupplier clock) {
+        writer = new BufferedWriter(out);
+        this.clock = clock;
+    }
+
+    public synchronized void record(String direction, String text) {
+        if (closed) return;
+        final long timestampNs = clock.getAsLong();
+        logExecutor.execute(() -> write(timestampNs, direction, text));
+    }
+
+    public void note(String text) {
+        record(NOTE, text);
+    }
+
+    /**
+     * Stop logging; lines already recorded are still written before the file is closed.
+     */
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        logExecutor.execute(() -> {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Error closing command log", e);
+            }
+        });
+        logExecutor.shutdown();
+    }
+
+    private void write(long timestampNs, String direction, String text) {
+        try {
+            writer.write(Long.toString(timestampNs));
+            writer.write(' ');
+            writer.write(direction);
+            writer.write(' ');
+            writer.write(text);
+            writer.newLine();
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing command log", e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.treebotmonitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Latest-frame-only handoff between the camera thread and frame analysis.
+ *
+ * The camera submits every frame into a single slot. If analysis has not picked up the
+ * previous one yet, that stale frame goes straight back to its pool and is counted as
+ * dropped, so frames never queue up and each result describes the freshest frame.
+ * Analysis runs on its own thread and the frame is released once it returns.
+ *
+ * Latency is measured from the frame's capture timestamp to the end of analysis, using
+ * a clock on the same timebase as {@link CameraFrame#timestampNs}.
+ */
+public class FrameAnalyzer {
+
+    public interface Analysis {
+        /**
+         * Called on the analysis thread. The frame is released after this returns.
+         */
+        void analyze(CameraFrame frame);
+    }
+
+    private final Analysis analysis;
+    private final LongSupplier clock;
+    private final AtomicReference<CameraFrame> latest = new AtomicReference<>();
+    private final Thread analysisThread;
+    private volatile boolean released = false;
+
+    // Handoff statistics
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile long analyzedFrames = 0;
+    private volatile long lastLatencyNs = 0;
+    private volatile long averageLatencyNs = 0;
+    private volatile long maxLatencyNs = 0;
+
+    /**
+     * @param clock nanosecond clock matching the frame timestamps,
+     *              e.g. SystemClock::elapsedRealtimeNanos for camera frames
+     */
+    public FrameAnalyzer(Analysis analysis, LongSupplier clock) {
+        this.analysis = analysis;
+        this.clock = clock;
+        analysisThread = new Thread(this::analysisLoop, "FrameAnalyzer");
+        analysisThread.setDaemon(true);
+        analysisThread.start();
+    }
+
+    /**
+     * Hand over a frame from the camera thread. Never blocks.
+     */
+    public void submit(CameraFrame frame) {
+        if (released) {
+            frame.release();
+            return;
+        }
+        CameraFrame stale = latest.getAndSet(frame);
+        if (stale != null) {
+            stale.release();
+            droppedFrames.incrementAndGet();
+        }
+        LockSupport.unpark(analysisThread);
+    }
+
+    /**
+     * Stop the analysis thread once the current frame is done.
+     */
+    public void release() {
+        released = true;
+        LockSupport.unpark(analysisThread);
+        CameraFrame pending = latest.getAndSet(null);
+        if (pending != null) {
+            pending.release();
+        }
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public long getAnalyzedFrames() {
+        return analyzedFrames;
+    }
+
+    /**
+     * Capture-to-result latency of the last analyzed frame in nanoseconds.
+     */
+    public long getLastLatencyNs() {
+        return lastLatencyNs;
+    }
+
+    /**
+     * Smoothed capture-to-result latency in nanoseconds.
+     */
+    public long getAverageLatencyNs() {
+        return averageLatencyNs;
+    }
+
+    public long getMaxLatencyNs() {
+        return maxLatencyNs;
+    }
+
+    private void analysisLoop() {
+        while (!released) {
+            CameraFrame frame = latest.getAndSet(null);
+            if (frame == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            long captureNs = frame.timestampNs;
+            try {
+                analysis.analyze(frame);
+            } finally {
+                frame.release();
+            }
+            recordLatency(clock.getAsLong() - captureNs);
+        }
+    }
+
+    private void recordLatency(long latencyNs) {
+        lastLatencyNs = latencyNs;
+        // Exponential moving average over roughly the last 8 frames
+        averageLatencyNs = analyzedFrames == 0 ? latencyNs : averageLatencyNs + (latencyNs - averageLatencyNs) / 8;
+        if (latencyNs > maxLatencyNs) {
+            maxLatencyNs = latencyNs;
+        }
+        analyzedFrames++;
+    }
+}
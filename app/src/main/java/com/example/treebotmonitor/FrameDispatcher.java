@@ -0,0 +1,61 @@
+package com.example.treebotmonitor;
+
+/**
+ * Hands pooled camera frames to the {@link HarvestCamera.FrameListener} while the camera
+ * runs, and counts deliveries and drops.
+ *
+ * The listener is registered once and survives stop and start, since the preview surface
+ * is destroyed and recreated every time the activity goes to the background. While stopped,
+ * images still in flight on the camera thread are dropped instead of delivered.
+ */
+public class FrameDispatcher {
+
+    private volatile HarvestCamera.FrameListener listener;
+    private volatile boolean running = false;
+    private volatile long deliveredFrames = 0;
+    private volatile long droppedFrames = 0;
+
+    public void setListener(HarvestCamera.FrameListener listener) {
+        this.listener = listener;
+    }
+
+    public void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Frame to copy the next image into, or null to skip the image: stopped, no listener,
+     * or every pooled frame still held by analysis.
+     */
+    public CameraFrame acquire(CameraFrame.Pool pool) {
+        if (!running || listener == null) return null;
+        CameraFrame frame = pool.acquire();
+        if (frame == null) droppedFrames++;
+        return frame;
+    }
+
+    /**
+     * Pass a filled frame to the listener, or release it if the camera stopped meanwhile.
+     */
+    public void deliver(CameraFrame frame) {
+        HarvestCamera.FrameListener current = listener;
+        if (!running || current == null) {
+            frame.release();
+            return;
+        }
+        deliveredFrames++;
+        current.onFrame(frame);
+    }
+
+    public long getDeliveredFrames() {
+        return deliveredFrames;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.treebotmonitor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Colour-threshold fruit detector working directly on {@link CameraFrame} YUV planes.
+ *
+ * Runs at chroma resolution (half width, half height): a pixel is fruit when its luma is
+ * bright enough and its chroma falls in the ripe red/orange range (high V, low U).
+ * Foreground pixels are grouped with union-find connected-component labelling, and each
+ * component large enough becomes a {@link Blob} with centroid, area and bounding box in
+ * full-frame pixel coordinates.
+ *
+ * The frame is split into horizontal strips that are thresholded and labelled in parallel
+ * on persistent worker threads; labels are then joined across strip borders. Detection can
+ * be limited to a region of the frame, which is what {@link FruitTracker} uses between full
+ * scans. All buffers and blobs are allocated up front, so {@link #detect} does not allocate.
+ * An instance is meant to be driven from a single analysis thread.
+ */
+public class FruitDetector {
+
+    public static final int MAX_BLOBS = 16;
+    private static final int MAX_COMPONENTS = 512;
+    private static final int DEFAULT_MIN_AREA = 64; // Full-frame pixels, about 8x8
+    private static final int MIN_TILE_ROWS = 16;    // Smaller regions are not worth splitting
+
+    // Default thresholds for ripe red/orange fruit
+    private static final int DEFAULT_MIN_LUMA = 40;
+    private static final int DEFAULT_MAX_CHROMA_U = 120;
+    private static final int DEFAULT_MIN_CHROMA_V = 150;
+
+    /**
+     * One detected fruit, in full-frame pixel coordinates.
+     */
+    public static class Blob {
+        public float centerX;
+        public float centerY;
+        public int area;
+        public int left, top, right, bottom;
+    }
+
+    private final int width;   // Analysis (chroma) resolution
+    private final int height;
+    private final int tiles;
+
+    private int minLuma = DEFAULT_MIN_LUMA;
+    private int maxChromaU = DEFAULT_MAX_CHROMA_U;
+    private int minChromaV = DEFAULT_MIN_CHROMA_V;
+    private int minArea = DEFAULT_MIN_AREA;
+
+    // Per-pixel buffers at analysis resolution
+    private final boolean[] mask;
+    private final int[] parent;
+    private final int[] slotStamp;
+    private final int[] slotOfRoot;
+    private int stamp = 0;
+
+    // Per-component accumulators
+    private final long[] sumX = new long[MAX_COMPONENTS];
+    private final long[] sumY = new long[MAX_COMPONENTS];
+    private final int[] count = new int[MAX_COMPONENTS];
+    private final int[] minX = new int[MAX_COMPONENTS];
+    private final int[] minRow = new int[MAX_COMPONENTS];
+    private final int[] maxX = new int[MAX_COMPONENTS];
+    private final int[] maxRow = new int[MAX_COMPONENTS];
+
+    private final Blob[] blobs = new Blob[MAX_BLOBS];
+    private int blobCount = 0;
+
+    // Region being scanned, in analysis pixels (right and bottom exclusive)
+    private int regionLeft, regionTop, regionRight, regionBottom;
+
+    // Parallel tile workers, tile 0 runs on the calling thread
+    private final TileWorker[] workers;
+    private volatile int activeTiles;
+    private final AtomicInteger pendingTiles = new AtomicInteger();
+    private volatile Thread caller;
+    private volatile CameraFrame currentFrame;
+    private volatile boolean released = false;
+
+    public FruitDetector(int frameWidth, int frameHeight, int threads) {
+        width = frameWidth / 2;
+        height = frameHeight / 2;
+        tiles = Math.max(1, Math.min(threads, height));
+
+        int pixels = width * height;
+        mask = new boolean[pixels];
+        parent = new int[pixels];
+        slotStamp = new int[pixels];
+        slotOfRoot = new int[pixels];
+        for (int i = 0; i < MAX_BLOBS; i++) {
+            blobs[i] = new Blob();
+        }
+
+        workers = new TileWorker[tiles - 1];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new TileWorker(i + 1);
+            workers[i].start();
+        }
+    }
+
+    public void setThresholds(int minLuma, int maxChromaU, int minChromaV) {
+        this.minLuma = minLuma;
+        this.maxChromaU = maxChromaU;
+        this.minChromaV = minChromaV;
+    }
+
+    public void setMinArea(int pixels) {
+        minArea = pixels;
+    }
+
+    /**
+     * Detect fruit in a frame. Results stay valid until the next call.
+     *
+     * @return number of blobs, largest first, read them with {@link #getBlob(int)}
+     */
+    public int detect(CameraFrame frame) {
+        return detect(frame, 0, 0, frame.width, frame.height);
+    }
+
+    /**
+     * Detect fruit inside a region of the frame, given in full-frame pixels with
+     * {@code right} and {@code bottom} exclusive. The region is clipped to the frame.
+     * Blobs touching the region border may be cut off by it.
+     *
+     * @return number of blobs, largest first, read them with {@link #getBlob(int)}
+     */
+    public int detect(CameraFrame frame, int left, int top, int right, int bottom) {
+        if (frame.width / 2 != width || frame.height / 2 != height) {
+            throw new IllegalArgumentException("Frame size does not match detector");
+        }
+
+        regionLeft = Math.max(0, left / 2);
+        regionTop = Math.max(0, top / 2);
+        regionRight = Math.min(width, (right + 1) / 2);
+        regionBottom = Math.min(height, (bottom + 1) / 2);
+        if (regionLeft >= regionRight || regionTop >= regionBottom) {
+            blobCount = 0;
+            return 0;
+        }
+
+        // Threshold and label every strip in parallel
+        int rows = regionBottom - regionTop;
+        int usedTiles = Math.max(1, Math.min(tiles, rows / MIN_TILE_ROWS));
+        activeTiles = usedTiles;
+        currentFrame = frame;
+        caller = Thread.currentThread();
+        pendingTiles.set(usedTiles - 1);
+        for (int i = 0; i < usedTiles - 1; i++) {
+            workers[i].requested++;
+            LockSupport.unpark(workers[i]);
+        }
+        labelTile(frame, 0);
+        while (pendingTiles.get() > 0) {
+            LockSupport.park(this);
+        }
+        currentFrame = null;
+
+        // Join components that continue across strip borders
+        for (int tile = 1; tile < usedTiles; tile++) {
+            int row = tileStart(tile);
+            int offset = row * width;
+            for (int x = regionLeft; x < regionRight; x++) {
+                int p = offset + x;
+                if (mask[p] && mask[p - width]) {
+                    union(p, p - width);
+                }
+            }
+        }
+
+        collectComponents();
+        return blobCount;
+    }
+
+    public Blob getBlob(int index) {
+        return blobs[index];
+    }
+
+    public int getBlobCount() {
+        return blobCount;
+    }
+
+    /**
+     * Stop the worker threads once they are idle. The detector cannot be used afterwards.
+     */
+    public void release() {
+        released = true;
+        for (TileWorker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private int tileStart(int tile) {
+        return regionTop + tile * (regionBottom - regionTop) / activeTiles;
+    }
+
+    private void labelTile(CameraFrame frame, int tile) {
+        int rowStart = tileStart(tile);
+        int rowEnd = tileStart(tile + 1);
+        byte[] yPlane = frame.y;
+        byte[] uPlane = frame.u;
+        byte[] vPlane = frame.v;
+        int lumaStride = frame.width;
+
+        for (int row = rowStart; row < rowEnd; row++) {
+            int offset = row * width;
+            int lumaOffset = row * 2 * lumaStride;
+            for (int x = regionLeft; x < regionRight; x++) {
+                int p = offset + x;
+                int luma = yPlane[lumaOffset + x * 2] & 0xFF;
+                boolean fruit = luma >= minLuma && (uPlane[p] & 0xFF) <= maxChromaU && (vPlane[p] & 0xFF) >= minChromaV;
+                mask[p] = fruit;
+                parent[p] = p;
+                if (!fruit) continue;
+
+                if (x > regionLeft && mask[p - 1]) {
+                    union(p, p - 1);
+                }
+                if (row > rowStart && mask[p - width]) {
+                    union(p, p - width);
+                }
+            }
+        }
+    }
+
+    private void collectComponents() {
+        stamp++;
+        int components = 0;
+
+        for (int row = regionTop; row < regionBottom; row++) {
+            int offset = row * width;
+            for (int x = regionLeft; x < regionRight; x++) {
+                int p = offset + x;
+                if (!mask[p]) continue;
+
+                int root = find(p);
+                int slot;
+                if (slotStamp[root] == stamp) {
+                    slot = slotOfRoot[root];
+                } else {
+                    if (components == MAX_COMPONENTS) continue; // Extremely noisy frame
+                    slot = components++;
+                    slotStamp[root] = stamp;
+                    slotOfRoot[root] = slot;
+                    sumX[slot] = 0;
+                    sumY[slot] = 0;
+                    count[slot] = 0;
+                    minX[slot] = x;
+                    maxX[slot] = x;
+                    minRow[slot] = row;
+                    maxRow[slot] = row;
+                }
+
+                sumX[slot] += x;
+                sumY[slot] += row;
+                count[slot]++;
+                if (x < minX[slot]) minX[slot] = x;
+                if (x > maxX[slot]) maxX[slot] = x;
+                maxRow[slot] = row; // Rows are visited in order
+            }
+        }
+
+        // Keep the largest components, sorted by area
+        blobCount = 0;
+        for (int slot = 0; slot < components; slot++) {
+            int area = count[slot] * 4;
+            if (area < minArea) continue;
+
+            int position = blobCount < MAX_BLOBS ? blobCount++ : MAX_BLOBS;
+            while (position > 0 && blobs[position - 1].area < area) {
+                if (position < MAX_BLOBS) {
+                    copyBlob(blobs[position - 1], blobs[position]);
+                }
+                position--;
+            }
+            if (position >= MAX_BLOBS) continue;
+
+            Blob blob = blobs[position];
+            blob.area = area;
+            blob.centerX = (sumX[slot] * 2f / count[slot]) + 0.5f;
+            blob.centerY = (sumY[slot] * 2f / count[slot]) + 0.5f;
+            blob.left = minX[slot] * 2;
+            blob.top = minRow[slot] * 2;
+            blob.right = maxX[slot] * 2 + 1;
+            blob.bottom = maxRow[slot] * 2 + 1;
+        }
+    }
+
+    private static void copyBlob(Blob from, Blob to) {
+        to.centerX = from.centerX;
+        to.centerY = from.centerY;
+        to.area = from.area;
+        to.left = from.left;
+        to.top = from.top;
+        to.right = from.right;
+        to.bottom = from.bottom;
+    }
+
+    private int find(int p) {
+        while (parent[p] != p) {
+            parent[p] = parent[parent[p]]; // Path halving
+            p = parent[p];
+        }
+        return p;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) return;
+        // Lower index becomes the root, it stays inside the strip that owns both pixels
+        if (rootA < rootB) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootA] = rootB;
+        }
+    }
+
+    private class TileWorker extends Thread {
+        private final int tile;
+        volatile long requested = 0;
+
+        TileWorker(int tile) {
+            super("FruitDetector-" + tile);
+            this.tile = tile;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long done = 0;
+            while (true) {
+                if (requested == done) {
+                    // Only stop when idle, so a detect() in progress always completes
+                    if (released) return;
+                    LockSupport.park(this);
+                    continue;
+                }
+                done = requested;
+                labelTile(currentFrame, tile);
+                if (pendingTiles.decrementAndGet() == 0) {
+                    LockSupport.unpark(caller);
+                }
+            }
+        }
+    }
+}
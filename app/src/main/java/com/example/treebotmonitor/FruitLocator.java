@@ -0,0 +1,63 @@
+package com.example.treebotmonitor;
+
+/**
+ * Estimates where a tracked fruit is in the arm base frame, so the fruit in view from the
+ * search pose can be handed to {@link HarvestOrderPlanner} as a batch.
+ *
+ * The camera sits on the wrist looking along the gripper, as {@link VisualServoController}
+ * assumes, with wrist roll at neutral. A pinhole model with the camera's horizontal field of
+ * view turns the blob centre into a viewing ray, and the blob width against a nominal fruit
+ * diameter into its depth. That is only good enough to order the picks and bring the
+ * gripper close; the visual servo still centres on each fruit before gripping.
+ *
+ * Not thread-safe; use one instance per thread.
+ */
+public class FruitLocator {
+
+    public static final float DEFAULT_HORIZONTAL_FOV = 65f; // Degrees
+    public static final float DEFAULT_FRUIT_DIAMETER = 0.07f; // Metres
+
+    private final float tanHalfFov;
+    private final float fruitDiameter;
+    private final ArmKinematics kinematics = new ArmKinematics();
+    private final float[] gripper = new float[3];
+
+    public FruitLocator(float horizontalFovDegrees, float fruitDiameter) {
+        tanHalfFov = (float) Math.tan(Math.toRadians(horizontalFovDegrees) / 2);
+        this.fruitDiameter = fruitDiameter;
+    }
+
+    /**
+     * Focal length in pixels for frames {@code frameWidth} pixels wide.
+     */
+    public float getFocalLength(int frameWidth) {
+        return frameWidth / 2f / tanHalfFov;
+    }
+
+    /**
+     * Position of {@code blob}, seen with the arm at {@code pose} (servo degrees), into
+     * {@code outXyz} in metres.
+     */
+    public void locate(float[] pose, FruitDetector.Blob blob, int frameWidth, int frameHeight, float[] outXyz) {
+        kinematics.forward(pose, gripper);
+        float pitch = kinematics.getForwardPitch();
+        float yaw = ArmKinematics.baseYaw(pose[0]);
+        float cosPitch = (float) Math.cos(pitch), sinPitch = (float) Math.sin(pitch);
+        float cosYaw = (float) Math.cos(yaw), sinYaw = (float) Math.sin(yaw);
+
+        // Ray in camera coordinates: forward 1, right u, down v
+        float focal = getFocalLength(frameWidth);
+        float u = (blob.centerX - frameWidth / 2f) / focal;
+        float v = (blob.centerY - frameHeight / 2f) / focal;
+        float depth = focal * fruitDiameter / Math.max(1, blob.right - blob.left + 1);
+
+        // Forward is the gripper direction, right is horizontal, down completes the frame.
+        // The point is depth times (forward + u right + v down).
+        float x = cosPitch * cosYaw + u * sinYaw + v * sinPitch * cosYaw;
+        float y = cosPitch * sinYaw - u * cosYaw + v * sinPitch * sinYaw;
+        float z = sinPitch - v * cosPitch;
+        outXyz[0] = gripper[0] + x * depth;
+        outXyz[1] = gripper[1] + y * depth;
+        outXyz[2] = gripper[2] + z * depth;
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.treebotmonitor;
+
+/**
+ * Follows detected fruit from frame to frame by scanning only around each target.
+ *
+ * After a full-frame detection the largest blobs become tracks. On the following frames
+ * each track's position is predicted from its last motion and {@link FruitDetector} runs
+ * only in a window around that prediction. A full-frame scan runs again every
+ * {@link #FULL_SCAN_INTERVAL} frames to pick up new fruit, and straight away when a track
+ * is lost. Tracks are reported as {@link FruitDetector.Blob}s, largest first after a full
+ * scan and in track order in between. Updates do not allocate.
+ */
+public class FruitTracker {
+
+    public static final int MAX_TRACKS = 4;
+    public static final int FULL_SCAN_INTERVAL = 15; // Frames, half a second at 30 fps
+    private static final int MAX_MISSED_FRAMES = 2;
+    private static final int SEARCH_PADDING = 24;    // Full-frame pixels around the predicted box
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    private final FruitDetector detector;
+    private final FruitDetector.Blob[] tracks = new FruitDetector.Blob[MAX_TRACKS];
+    private final float[] velocityX = new float[MAX_TRACKS];
+    private final float[] velocityY = new float[MAX_TRACKS];
+    private final int[] missedFrames = new int[MAX_TRACKS];
+    private int trackCount = 0;
+    private int framesSinceFullScan = 0;
+    private boolean trackLost = false;
+
+    // Scratch copy of the tracks during a full scan
+    private final float[] previousX = new float[MAX_TRACKS];
+    private final float[] previousY = new float[MAX_TRACKS];
+    private final float[] previousGate = new float[MAX_TRACKS];
+    private final float[] previousVelocityX = new float[MAX_TRACKS];
+    private final float[] previousVelocityY = new float[MAX_TRACKS];
+    private final boolean[] previousUsed = new boolean[MAX_TRACKS];
+
+    // Scan statistics
+    private long frames = 0;
+    private long fullScans = 0;
+    private long scannedPixels = 0;
+    private long framePixels = 0;
+
+    public FruitTracker(FruitDetector detector) {
+        this.detector = detector;
+        for (int i = 0; i < MAX_TRACKS; i++) {
+            tracks[i] = new FruitDetector.Blob();
+        }
+    }
+
+    /**
+     * Update the tracks with a new frame.
+     *
+     * @return number of tracked targets, read them with {@link #getTrack(int)}
+     */
+    public int update(CameraFrame frame) {
+        frames++;
+        framePixels += (long) frame.width * frame.height;
+
+        if (trackCount == 0 || trackLost || ++framesSinceFullScan >= FULL_SCAN_INTERVAL) {
+            fullScan(frame);
+        } else {
+            trackRegions(frame);
+        }
+        return trackCount;
+    }
+
+    public FruitDetector.Blob getTrack(int index) {
+        return tracks[index];
+    }
+
+    public int getTrackCount() {
+        return trackCount;
+    }
+
+    /**
+     * Force a full-frame scan on the next update, e.g. after the arm moved the camera.
+     */
+    public void reset() {
+        trackCount = 0;
+    }
+
+    /**
+     * Share of frame pixels scanned since creation, 1.0 means every frame was scanned fully.
+     */
+    public float getScanFraction() {
+        return framePixels == 0 ? 0f : (float) scannedPixels / framePixels;
+    }
+
+    public long getFullScans() {
+        return fullScans;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    private void fullScan(CameraFrame frame) {
+        fullScans++;
+        framesSinceFullScan = 0;
+        trackLost = false;
+        scannedPixels += (long) frame.width * frame.height;
+
+        // Remember the old tracks so surviving fruit keeps its motion estimate
+        int previousCount = trackCount;
+        for (int i = 0; i < previousCount; i++) {
+            previousX[i] = tracks[i].centerX + velocityX[i];
+            previousY[i] = tracks[i].centerY + velocityY[i];
+            previousGate[i] = (tracks[i].right - tracks[i].left) + SEARCH_PADDING;
+            previousVelocityX[i] = velocityX[i];
+            previousVelocityY[i] = velocityY[i];
+            previousUsed[i] = false;
+        }
+
+        trackCount = Math.min(detector.detect(frame), MAX_TRACKS);
+        for (int i = 0; i < trackCount; i++) {
+            FruitDetector.Blob blob = detector.getBlob(i);
+            copy(blob, tracks[i]);
+            missedFrames[i] = 0;
+            velocityX[i] = 0f;
+            velocityY[i] = 0f;
+
+            int match = -1;
+            float bestDistance = Float.MAX_VALUE;
+            for (int j = 0; j < previousCount; j++) {
+                float dx = previousX[j] - blob.centerX;
+                float dy = previousY[j] - blob.centerY;
+                float distance = dx * dx + dy * dy;
+                if (!previousUsed[j] && distance < previousGate[j] * previousGate[j] && distance < bestDistance) {
+                    bestDistance = distance;
+                    match = j;
+                }
+            }
+            if (match >= 0) {
+                previousUsed[match] = true;
+                velocityX[i] = previousVelocityX[match];
+                velocityY[i] = previousVelocityY[match];
+            }
+        }
+    }
+
+    private void trackRegions(CameraFrame frame) {
+        for (int i = 0; i < trackCount; i++) {
+            FruitDetector.Blob track = tracks[i];
+            float predictedX = track.centerX + velocityX[i];
+            float predictedY = track.centerY + velocityY[i];
+            int halfWidth = (track.right - track.left) / 2 + SEARCH_PADDING;
+            int halfHeight = (track.bottom - track.top) / 2 + SEARCH_PADDING;
+
+            int left = Math.max(0, (int) predictedX - halfWidth);
+            int top = Math.max(0, (int) predictedY - halfHeight);
+            int right = Math.min(frame.width, (int) predictedX + halfWidth);
+            int bottom = Math.min(frame.height, (int) predictedY + halfHeight);
+            if (right > left && bottom > top) {
+                scannedPixels += (long) (right - left) * (bottom - top);
+            }
+
+            int found = detector.detect(frame, left, top, right, bottom);
+            FruitDetector.Blob best = null;
+            float bestDistance = Float.MAX_VALUE;
+            for (int b = 0; b < found; b++) {
+                FruitDetector.Blob blob = detector.getBlob(b);
+                float dx = blob.centerX - predictedX;
+                float dy = blob.centerY - predictedY;
+                float distance = dx * dx + dy * dy;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = blob;
+                }
+            }
+
+            if (best == null) {
+                if (++missedFrames[i] > MAX_MISSED_FRAMES) {
+                    trackLost = true;
+                }
+                // Coast on the prediction for now
+                shift(track, predictedX - track.centerX, predictedY - track.centerY);
+                continue;
+            }
+
+            missedFrames[i] = 0;
+            velocityX[i] += VELOCITY_SMOOTHING * ((best.centerX - track.centerX) - velocityX[i]);
+            velocityY[i] += VELOCITY_SMOOTHING * ((best.centerY - track.centerY) - velocityY[i]);
+            copy(best, track);
+        }
+
+        if (trackLost) {
+            // Drop lost tracks; the next update rescans the full frame
+            int kept = 0;
+            for (int i = 0; i < trackCount; i++) {
+                if (missedFrames[i] > MAX_MISSED_FRAMES) continue;
+                if (kept != i) {
+                    copy(tracks[i], tracks[kept]);
+                    velocityX[kept] = velocityX[i];
+                    velocityY[kept] = velocityY[i];
+                    missedFrames[kept] = missedFrames[i];
+                }
+                kept++;
+            }
+            trackCount = kept;
+        }
+    }
+
+    private static void shift(FruitDetector.Blob blob, float dx, float dy) {
+        blob.centerX += dx;
+        blob.centerY += dy;
+        blob.left += (int) dx;
+        blob.right += (int) dx;
+        blob.top += (int) dy;
+        blob.bottom += (int) dy;
+    }
+
+    private static void copy(FruitDetector.Blob from, FruitDetector.Blob to) {
+        to.centerX = from.centerX;
+        to.centerY = from.centerY;
+        to.area = from.area;
+        to.left = from.left;
+        to.top = from.top;
+        to.right = from.right;
+        to.bottom = from.bottom;
+    }
+}
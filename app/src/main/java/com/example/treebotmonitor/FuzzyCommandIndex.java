@@ -0,0 +1,280 @@
+package com.example.treebotmonitor;
+
+/**
+ * Resolves misheard voice commands, the fallback when {@link VoiceCommandMatcher} finds
+ * no exact phrase.
+ *
+ * Every run of words in the transcript is compared against the phrases with the same
+ * word count. The confidence is the mean of two similarities, each 1 - edit distance /
+ * longer length: one on the spelling and one on a Soundex-style phonetic key (consonant
+ * classes, vowels dropped). So "riverse" and "reveres" still resolve to "reverse", and
+ * "staff" to "stop". Candidates whose length alone rules them out are skipped, and the
+ * edit distance gives up as soon as it cannot reach the threshold, so a transcript takes
+ * microseconds. The best hit ranks like the exact matcher: priority, then confidence,
+ * then length.
+ *
+ * Ordinary words in a sentence are often close to a command ("universe" to "reverse",
+ * "afterward" to "forward"), so only priority phrases (STOP) are looked for anywhere in the
+ * transcript. Any other phrase must make up the whole utterance and clear a stricter
+ * threshold, since a misheard motion command does more harm than a missed one.
+ *
+ * Matching reuses internal buffers, so use one index from one thread.
+ */
+public class FuzzyCommandIndex {
+
+    public static final float DEFAULT_THRESHOLD = 0.65f;
+    public static final float DEFAULT_UTTERANCE_THRESHOLD = 0.8f;
+
+    private static final int MAX_WORDS = 32;
+    private static final int MAX_WINDOW_CHARS = 64;
+
+    private final VoiceCommandMatcher.Phrase[] phrases;
+    private final char[][] spellings;
+    private final char[][] keys;
+    private final int[] wordCounts;
+    private final int maxWordCount;
+    private volatile float threshold;
+    private volatile float utteranceThreshold;
+
+    // Scratch buffers for one transcript
+    private final int[] wordStart = new int[MAX_WORDS];
+    private final int[] wordEnd = new int[MAX_WORDS];
+    private final char[] window = new char[MAX_WINDOW_CHARS];
+    private final char[] windowKey = new char[MAX_WINDOW_CHARS];
+    private int[] previousRow;
+    private int[] currentRow;
+
+    private float lastConfidence = 0f;
+
+    public FuzzyCommandIndex(VoiceCommandMatcher matcher, float threshold, float utteranceThreshold) {
+        int count = matcher.getPhraseCount();
+        phrases = new VoiceCommandMatcher.Phrase[count];
+        spellings = new char[count][];
+        keys = new char[count][];
+        wordCounts = new int[count];
+
+        int longest = MAX_WINDOW_CHARS;
+        int maxWords = 0;
+        char[] keyBuffer = new char[MAX_WINDOW_CHARS];
+        for (int p = 0; p < count; p++) {
+            phrases[p] = matcher.getPhrase(p);
+            spellings[p] = phrases[p].text.toCharArray();
+            int keyLength = phoneticKey(spellings[p], spellings[p].length, keyBuffer);
+            keys[p] = new char[keyLength];
+            System.arraycopy(keyBuffer, 0, keys[p], 0, keyLength);
+
+            wordCounts[p] = 1;
+            for (char c : spellings[p]) {
+                if (c == ' ') wordCounts[p]++;
+            }
+            maxWords = Math.max(maxWords, wordCounts[p]);
+            longest = Math.max(longest, spellings[p].length);
+        }
+        maxWordCount = maxWords;
+        previousRow = new int[longest + 1];
+        currentRow = new int[longest + 1];
+        setThreshold(threshold);
+        setUtteranceThreshold(utteranceThreshold);
+    }
+
+    /**
+     * Minimum confidence, between 0 and 1, for a near miss of a priority phrase to count.
+     */
+    public void setThreshold(float threshold) {
+        checkThreshold(threshold);
+        this.threshold = threshold;
+    }
+
+    public float getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Minimum confidence, between 0 and 1, for an utterance that is a near miss of any
+     * other phrase to count.
+     */
+    public void setUtteranceThreshold(float threshold) {
+        checkThreshold(threshold);
+        utteranceThreshold = threshold;
+    }
+
+    public float getUtteranceThreshold() {
+        return utteranceThreshold;
+    }
+
+    private static void checkThreshold(float threshold) {
+        if (threshold <= 0f || threshold > 1f) {
+            throw new IllegalArgumentException("Threshold must be in (0, 1]: " + threshold);
+        }
+    }
+
+    /**
+     * Closest phrase in {@code text} at or above its threshold, or null.
+     */
+    public VoiceCommandMatcher.Phrase findBest(CharSequence text) {
+        float priorityMinimum = threshold;
+        float utteranceMinimum = utteranceThreshold;
+        int words = splitWords(text);
+        int best = -1;
+        float bestConfidence = 0f;
+
+        for (int n = 1; n <= maxWordCount; n++) {
+            for (int first = 0; first + n <= words; first++) {
+                int windowLength = buildWindow(text, first, n);
+                if (windowLength < 0) continue;
+                int keyLength = -1;
+
+                for (int p = 0; p < phrases.length; p++) {
+                    if (wordCounts[p] != n) continue;
+                    if (best >= 0 && phrases[p].priority < phrases[best].priority) continue;
+                    boolean priority = phrases[p].priority > 0;
+                    if (!priority && n != words) continue;
+                    float minimum = priority ? priorityMinimum : utteranceMinimum;
+
+                    // Spelling similarity, stopping once even a perfect phonetic match can't help
+                    char[] spelling = spellings[p];
+                    int longer = Math.max(windowLength, spelling.length);
+                    int bound = (int) (2f * (1f - minimum) * longer);
+                    int distance = distance(window, windowLength, spelling, spelling.length, bound);
+                    if (distance > bound) continue;
+                    float spelled = 1f - (float) distance / longer;
+
+                    if (keyLength < 0) {
+                        keyLength = phoneticKey(window, windowLength, windowKey);
+                    }
+                    char[] key = keys[p];
+                    int longerKey = Math.max(keyLength, key.length);
+                    float phonetic;
+                    if (longerKey == 0) {
+                        phonetic = 1f;
+                    } else {
+                        int keyBound = (int) ((1f - (2f * minimum - spelled)) * longerKey);
+                        int keyDistance = distance(windowKey, keyLength, key, key.length, Math.max(keyBound, 0));
+                        phonetic = 1f - (float) keyDistance / longerKey;
+                    }
+
+                    float confidence = (spelled + phonetic) / 2f;
+                    if (confidence >= minimum && (best < 0 || isBetter(p, confidence, best, bestConfidence))) {
+                        best = p;
+                        bestConfidence = confidence;
+                    }
+                }
+            }
+        }
+
+        lastConfidence = bestConfidence;
+        return best < 0 ? null : phrases[best];
+    }
+
+    /**
+     * Confidence of the phrase returned by the last {@link #findBest} call.
+     */
+    public float getLastConfidence() {
+        return lastConfidence;
+    }
+
+    private boolean isBetter(int candidate, float confidence, int best, float bestConfidence) {
+        VoiceCommandMatcher.Phrase a = phrases[candidate];
+        VoiceCommandMatcher.Phrase b = phrases[best];
+        if (a.priority != b.priority) return a.priority > b.priority;
+        if (confidence != bestConfidence) return confidence > bestConfidence;
+        return a.text.length() > b.text.length();
+    }
+
+    private int splitWords(CharSequence text) {
+        int words = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length && words < MAX_WORDS) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            if (i == length) break;
+            wordStart[words] = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) i++;
+            wordEnd[words++] = i;
+        }
+        return words;
+    }
+
+    /**
+     * Lower-case words {@code first .. first + count - 1} joined by single spaces, or -1
+     * if they don't fit the buffer.
+     */
+    private int buildWindow(CharSequence text, int first, int count) {
+        int length = 0;
+        for (int w = first; w < first + count; w++) {
+            if (length + (wordEnd[w] - wordStart[w]) + 1 > MAX_WINDOW_CHARS) return -1;
+            if (w > first) window[length++] = ' ';
+            for (int i = wordStart[w]; i < wordEnd[w]; i++) {
+                window[length++] = Character.toLowerCase(text.charAt(i));
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Levenshtein distance, or {@code bound + 1} as soon as it must exceed {@code bound}.
+     */
+    private int distance(char[] a, int aLength, char[] b, int bLength, int bound) {
+        if (Math.abs(aLength - bLength) > bound) return bound + 1;
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        for (int j = 0; j <= bLength; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= aLength; i++) {
+            current[0] = i;
+            int rowMin = i;
+            char c = a[i - 1];
+            for (int j = 1; j <= bLength; j++) {
+                int cost = c == b[j - 1] ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                current[j] = value;
+                if (value < rowMin) rowMin = value;
+            }
+            if (rowMin > bound) return bound + 1;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[bLength];
+    }
+
+    /**
+     * Soundex-style key: each consonant becomes its sound class, repeats collapse, vowels are
+     * dropped but separate repeats, and words are keyed independently.
+     */
+    static int phoneticKey(char[] text, int length, char[] key) {
+        int keyLength = 0;
+        char previous = 0;
+        for (int i = 0; i < length; i++) {
+            char code = soundClass(text[i]);
+            if (code == 'h') continue;  // h and w neither code nor separate
+            if (code != 0 && code != previous && keyLength < key.length) {
+                key[keyLength++] = code;
+            }
+            previous = code;
+        }
+        return keyLength;
+    }
+
+    private static char soundClass(char c) {
+        switch (Character.toLowerCase(c)) {
+            case 'b': case 'f': case 'p': case 'v':
+                return '1';
+            case 'c': case 'g': case 'j': case 'k': case 'q': case 's': case 'x': case 'z':
+                return '2';
+            case 'd': case 't':
+                return '3';
+            case 'l':
+                return '4';
+            case 'm': case 'n':
+                return '5';
+            case 'r':
+                return '6';
+            case 'h': case 'w':
+                return 'h';
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.treebotmonitor;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CameraMetadata;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Range;
+import android.util.Size;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Camera2 pipeline for the harvest view.
+ *
+ * Opening the camera, configuring the session and copying frames all happen on a dedicated
+ * camera thread, so the UI never waits on the camera HAL. The same capture stream feeds the
+ * on-screen preview and an ImageReader; each image is copied into a pooled
+ * {@link CameraFrame} and handed to the {@link FrameListener}. When no pooled frame is free
+ * the image is dropped, so analysis that falls behind never causes allocation. The listener
+ * stays registered across {@link #stop()} and {@link #start(SurfaceHolder)}.
+ *
+ * Usage from the activity: {@link #start(SurfaceHolder)} from surfaceCreated,
+ * {@link #onPreviewSurfaceChanged(int, int)} from surfaceChanged and {@link #stop()} from
+ * surfaceDestroyed.
+ */
+public class HarvestCamera {
+    private static final String TAG = "HarvestCamera";
+
+    public static final int DEFAULT_WIDTH = 640;
+    public static final int DEFAULT_HEIGHT = 480;
+    public static final int DEFAULT_FPS = 30;
+
+    private static final int FRAME_POOL_SIZE = 3;
+    private static final int MAX_READER_IMAGES = 2;
+
+    public interface FrameListener {
+        /**
+         * Called on the camera thread. The listener owns the frame until it calls release().
+         */
+        void onFrame(CameraFrame frame);
+    }
+
+    private final CameraManager cameraManager;
+    private final int requestedWidth;
+    private final int requestedHeight;
+    private final int targetFps;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread cameraThread;
+    private Handler cameraHandler;
+    private CameraDevice cameraDevice;
+    private CameraCaptureSession captureSession;
+    private ImageReader imageReader;
+    private CameraFrame.Pool framePool;
+    private SurfaceHolder previewHolder;
+    private Size frameSize;
+    private Range<Integer> fpsRange;
+    private int surfaceWidth, surfaceHeight; // Last size reported by surfaceChanged
+    private boolean realtimeTimestamps;      // Sensor timestamps use elapsedRealtimeNanos()
+    private final FrameDispatcher dispatcher = new FrameDispatcher();
+
+    public HarvestCamera(Context context, int width, int height, int fps) {
+        cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+        requestedWidth = width;
+        requestedHeight = height;
+        targetFps = fps;
+    }
+
+    public void setFrameListener(FrameListener listener) {
+        dispatcher.setListener(listener);
+    }
+
+    /**
+     * Open the back camera and start previewing into {@code holder}. Returns immediately.
+     */
+    public synchronized void start(SurfaceHolder holder) {
+        if (cameraThread != null) return;
+
+        cameraThread = new HandlerThread("HarvestCamera");
+        cameraThread.start();
+        cameraHandler = new Handler(cameraThread.getLooper());
+        previewHolder = holder;
+        surfaceWidth = 0;
+        surfaceHeight = 0;
+        dispatcher.setRunning(true);
+        cameraHandler.post(this::openCamera);
+    }
+
+    /**
+     * Forward surfaceChanged. The session is created once the preview surface has been
+     * resized to the selected frame size.
+     */
+    public synchronized void onPreviewSurfaceChanged(int width, int height) {
+        if (cameraHandler == null) return;
+        cameraHandler.post(() -> {
+            surfaceWidth = width;
+            surfaceHeight = height;
+            createSessionIfReady();
+        });
+    }
+
+    public synchronized void stop() {
+        if (cameraThread == null) return;
+
+        dispatcher.setRunning(false);
+        cameraHandler.post(this::closeCamera);
+        cameraThread.quitSafely();
+        cameraThread = null;
+        cameraHandler = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return cameraThread != null;
+    }
+
+    public long getDeliveredFrames() {
+        return dispatcher.getDeliveredFrames();
+    }
+
+    public long getDroppedFrames() {
+        return dispatcher.getDroppedFrames();
+    }
+
+    @SuppressLint("MissingPermission") // Activity only starts the camera once CAMERA is granted
+    private void openCamera() {
+        try {
+            String cameraId = findBackCamera();
+            if (cameraId == null) {
+                Log.e(TAG, "No back-facing camera available");
+                return;
+            }
+
+            CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
+            frameSize = chooseFrameSize(characteristics);
+            fpsRange = chooseFpsRange(characteristics);
+            Integer timestampSource = characteristics.get(CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE);
+            realtimeTimestamps = timestampSource != null
+                    && timestampSource == CameraMetadata.SENSOR_INFO_TIMESTAMP_SOURCE_REALTIME;
+            Log.d(TAG, "Using " + frameSize.getWidth() + "x" + frameSize.getHeight() + " at " + fpsRange);
+
+            framePool = new CameraFrame.Pool(FRAME_POOL_SIZE, frameSize.getWidth(), frameSize.getHeight());
+            imageReader = ImageReader.newInstance(frameSize.getWidth(), frameSize.getHeight(),
+                    ImageFormat.YUV_420_888, MAX_READER_IMAGES);
+            imageReader.setOnImageAvailableListener(this::onImageAvailable, cameraHandler);
+
+            // Preview buffers must match a supported output size; surfaceChanged follows
+            final SurfaceHolder holder = previewHolder;
+            final int width = frameSize.getWidth();
+            final int height = frameSize.getHeight();
+            mainHandler.post(() -> holder.setFixedSize(width, height));
+
+            cameraManager.openCamera(cameraId, new CameraDevice.StateCallback() {
+                @Override
+                public void onOpened(CameraDevice camera) {
+                    cameraDevice = camera;
+                    createSessionIfReady();
+                }
+
+                @Override
+                public void onDisconnected(CameraDevice camera) {
+                    Log.w(TAG, "Camera disconnected");
+                    camera.close();
+                    cameraDevice = null;
+                }
+
+                @Override
+                public void onError(CameraDevice camera, int error) {
+                    Log.e(TAG, "Camera error: " + error);
+                    camera.close();
+                    cameraDevice = null;
+                }
+            }, cameraHandler);
+        } catch (CameraAccessException | SecurityException e) {
+            Log.e(TAG, "Error opening camera", e);
+        }
+    }
+
+    private void createSessionIfReady() {
+        if (cameraDevice == null || captureSession != null) return;
+        if (surfaceWidth != frameSize.getWidth() || surfaceHeight != frameSize.getHeight()) return;
+
+        try {
+            final Surface previewSurface = previewHolder.getSurface();
+            final Surface readerSurface = imageReader.getSurface();
+            cameraDevice.createCaptureSession(Arrays.asList(previewSurface, readerSurface),
+                    new CameraCaptureSession.StateCallback() {
+                        @Override
+                        public void onConfigured(CameraCaptureSession session) {
+                            if (cameraDevice == null) return;
+                            captureSession = session;
+                            try {
+                                CaptureRequest.Builder request =
+                                        cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+                                request.addTarget(previewSurface);
+                                request.addTarget(readerSurface);
+                                request.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, fpsRange);
+                                request.set(CaptureRequest.CONTROL_AF_MODE,
+                                        CameraMetadata.CONTROL_AF_MODE_CONTINUOUS_VIDEO);
+                                session.setRepeatingRequest(request.build(), null, cameraHandler);
+                            } catch (CameraAccessException | IllegalStateException e) {
+                                Log.e(TAG, "Error starting camera preview", e);
+                            }
+                        }
+
+                        @Override
+                        public void onConfigureFailed(CameraCaptureSession session) {
+                            Log.e(TAG, "Camera session configuration failed");
+                        }
+                    }, cameraHandler);
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.e(TAG, "Error creating camera session", e);
+        }
+    }
+
+    private void closeCamera() {
+        if (captureSession != null) {
+            captureSession.close();
+            captureSession = null;
+        }
+        if (cameraDevice != null) {
+            cameraDevice.close();
+            cameraDevice = null;
+        }
+        if (imageReader != null) {
+            imageReader.close();
+            imageReader = null;
+        }
+        Log.d(TAG, "Camera closed, delivered " + dispatcher.getDeliveredFrames()
+                + " frames, dropped " + dispatcher.getDroppedFrames());
+    }
+
+    private void onImageAvailable(ImageReader reader) {
+        Image image = reader.acquireLatestImage();
+        if (image == null) return;
+
+        try {
+            // Null while stopped, or when analysis still holds every buffer
+            CameraFrame frame = dispatcher.acquire(framePool);
+            if (frame == null) return;
+
+            copyImage(image, frame);
+            if (!realtimeTimestamps) {
+                // Unknown sensor timebase, fall back to arrival time so latency stays comparable
+                frame.timestampNs = SystemClock.elapsedRealtimeNanos();
+            }
+            dispatcher.deliver(frame);
+        } finally {
+            image.close();
+        }
+    }
+
+    /**
+     * Copy a YUV_420_888 image into planar buffers, honouring row and pixel strides.
+     */
+    private static void copyImage(Image image, CameraFrame frame) {
+        Image.Plane[] planes = image.getPlanes();
+        frame.timestampNs = image.getTimestamp();
+        copyPlane(planes[0], frame.width, frame.height, frame.y);
+        copyPlane(planes[1], frame.width / 2, frame.height / 2, frame.u);
+        copyPlane(planes[2], frame.width / 2, frame.height / 2, frame.v);
+    }
+
+    private static void copyPlane(Image.Plane plane, int width, int height, byte[] out) {
+        ByteBuffer buffer = plane.getBuffer();
+        int rowStride = plane.getRowStride();
+        int pixelStride = plane.getPixelStride();
+
+        if (pixelStride == 1) {
+            for (int row = 0; row < height; row++) {
+                buffer.position(row * rowStride);
+                buffer.get(out, row * width, width);
+            }
+        } else {
+            // Interleaved chroma, pick every pixelStride-th byte
+            for (int row = 0; row < height; row++) {
+                int src = row * rowStride;
+                int dst = row * width;
+                for (int col = 0; col < width; col++) {
+                    out[dst + col] = buffer.get(src + col * pixelStride);
+                }
+            }
+        }
+    }
+
+    private String findBackCamera() throws CameraAccessException {
+        for (String id : cameraManager.getCameraIdList()) {
+            Integer facing = cameraManager.getCameraCharacteristics(id).get(CameraCharacteristics.LENS_FACING);
+            if (facing != null && facing == CameraCharacteristics.LENS_FACING_BACK) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Supported YUV size closest in area to the requested resolution.
+     */
+    private Size chooseFrameSize(CameraCharacteristics characteristics) {
+        StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        Size best = new Size(requestedWidth, requestedHeight);
+        if (map == null) return best;
+
+        long requestedArea = (long) requestedWidth * requestedHeight;
+        long bestDiff = Long.MAX_VALUE;
+        for (Size size : map.getOutputSizes(ImageFormat.YUV_420_888)) {
+            long diff = Math.abs((long) size.getWidth() * size.getHeight() - requestedArea);
+            if (diff < bestDiff) {
+                bestDiff = diff;
+                best = size;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Prefer a fixed range at the target rate, otherwise the range whose top is closest to it.
+     */
+    private Range<Integer> chooseFpsRange(CameraCharacteristics characteristics) {
+        Range<Integer>[] ranges = characteristics.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES);
+        Range<Integer> best = new Range<>(targetFps, targetFps);
+        if (ranges == null) return best;
+
+        int bestScore = Integer.MAX_VALUE;
+        for (Range<Integer> range : ranges) {
+            int score = Math.abs(range.getUpper() - targetFps) * 100 + (range.getUpper() - range.getLower());
+            if (score < bestScore) {
+                bestScore = score;
+                best = range;
+            }
+        }
+        return best;
+    }
+}
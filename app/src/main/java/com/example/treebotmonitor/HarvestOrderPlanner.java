@@ -0,0 +1,105 @@
+package com.example.treebotmonitor;
+
+/**
+ * Orders a batch of harvest targets to keep arm travel time low.
+ *
+ * Targets are arm poses (already resolved through IK). The cost between two poses is the
+ * time {@link TrajectoryPlanner} needs to move between them, i.e. the slowest joint rules.
+ * A nearest-neighbour tour from the current pose gives a quick first order, then 2-opt
+ * segment reversals improve it until nothing improves or the time budget runs out.
+ * The tour is open: it starts at the current pose and ends at the last target.
+ */
+public class HarvestOrderPlanner {
+
+    private final TrajectoryPlanner trajectoryPlanner;
+    private float lastCost;
+
+    public HarvestOrderPlanner(TrajectoryPlanner trajectoryPlanner) {
+        this.trajectoryPlanner = trajectoryPlanner;
+    }
+
+    /**
+     * @param startPose    pose the arm is in now
+     * @param targetPoses  poses to visit, one per target
+     * @param budgetNanos  time allowed for 2-opt improvement
+     * @return visiting order as indices into {@code targetPoses}
+     */
+    public int[] order(float[] startPose, float[][] targetPoses, long budgetNanos) {
+        int n = targetPoses.length;
+        int[] tour = new int[n];
+        if (n == 0) {
+            lastCost = 0f;
+            return tour;
+        }
+
+        // Node 0 is the start pose, nodes 1..n are the targets
+        float[][] cost = new float[n + 1][n + 1];
+        for (int i = 0; i <= n; i++) {
+            float[] from = i == 0 ? startPose : targetPoses[i - 1];
+            for (int j = i + 1; j <= n; j++) {
+                float t = trajectoryPlanner.estimateDuration(from, targetPoses[j - 1]);
+                cost[i][j] = t;
+                cost[j][i] = t;
+            }
+        }
+
+        // Nearest neighbour from the start pose
+        int[] path = new int[n + 1];
+        boolean[] visited = new boolean[n + 1];
+        visited[0] = true;
+        for (int step = 1; step <= n; step++) {
+            int current = path[step - 1];
+            int best = -1;
+            for (int candidate = 1; candidate <= n; candidate++) {
+                if (!visited[candidate] && (best < 0 || cost[current][candidate] < cost[current][best])) {
+                    best = candidate;
+                }
+            }
+            path[step] = best;
+            visited[best] = true;
+        }
+
+        // 2-opt on the open path, the start pose stays first
+        long deadline = System.nanoTime() + budgetNanos;
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = false;
+            for (int i = 1; i < n; i++) {
+                for (int k = i + 1; k <= n; k++) {
+                    float before = cost[path[i - 1]][path[i]];
+                    float after = cost[path[i - 1]][path[k]];
+                    if (k < n) {
+                        before += cost[path[k]][path[k + 1]];
+                        after += cost[path[i]][path[k + 1]];
+                    }
+                    if (after < before - 1e-6f) {
+                        reverse(path, i, k);
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        lastCost = 0f;
+        for (int step = 1; step <= n; step++) {
+            lastCost += cost[path[step - 1]][path[step]];
+            tour[step - 1] = path[step] - 1;
+        }
+        return tour;
+    }
+
+    /**
+     * Estimated travel time of the last planned order in seconds.
+     */
+    public float getLastCost() {
+        return lastCost;
+    }
+
+    private static void reverse(int[] path, int from, int to) {
+        while (from < to) {
+            int tmp = path[from];
+            path[from++] = path[to];
+            path[to--] = tmp;
+        }
+    }
+}
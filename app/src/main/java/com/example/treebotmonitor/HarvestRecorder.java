@@ -0,0 +1,328 @@
+package com.example.treebotmonitor;
+
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Records the harvest camera to a rolling set of H.264 MP4 segments.
+ *
+ * Frames are copied on the camera thread into the recorder's own small frame pool and
+ * encoded by the platform (usually hardware) encoder on a background thread. If the pool is
+ * empty because the encoder fell behind, the frame is dropped and counted, so recording
+ * never holds up the preview, frame analysis or the arm control loops.
+ *
+ * Presentation times are the camera timestamps (elapsedRealtimeNanos in microseconds),
+ * and each new segment notes its first timestamp in the {@link CommandLog}, so video and
+ * command log line up. Only the newest {@link #MAX_SEGMENTS} segments are kept.
+ */
+public class HarvestRecorder {
+    private static final String TAG = "HarvestRecorder";
+
+    private static final int BIT_RATE = 2_000_000;
+    private static final int I_FRAME_INTERVAL_S = 1;
+    private static final long SEGMENT_DURATION_US = 60_000_000L;
+    public static final int MAX_SEGMENTS = 5;
+    private static final int FRAME_POOL_SIZE = 2;
+    private static final long STOP_TIMEOUT_MS = 2000;
+
+    private final File directory;
+    private final int frameRate;
+    private final CommandLog commandLog;
+    private final HandlerThread encoderThread;
+    private final Handler encoderHandler;
+
+    // Frames copied from the camera, waiting for an encoder input buffer
+    private volatile CameraFrame.Pool framePool;
+    private ArrayBlockingQueue<CameraFrame> pendingFrames;
+    private volatile boolean isRecording = false;
+    private boolean configuring = false;
+
+    // Encoder state, only touched on the encoder thread
+    private MediaCodec encoder;
+    private MediaFormat outputFormat;
+    private MediaMuxer muxer;
+    private int trackIndex;
+    private long segmentStartUs;
+    private int segmentNumber = 0;
+    private boolean stopping = false;
+    private long lastPresentationUs = 0;
+    private final ArrayDeque<Integer> freeInputBuffers = new ArrayDeque<>();
+    private final ArrayDeque<File> segments = new ArrayDeque<>();
+
+    // Recording statistics
+    private volatile long recordedFrames = 0;
+    private volatile long droppedFrames = 0;
+
+    private final Runnable feedRunnable = this::feedEncoder;
+    private final Runnable releaseRunnable = this::releaseEncoder;
+
+    public HarvestRecorder(File directory, int frameRate, CommandLog commandLog) {
+        this.directory = directory;
+        this.frameRate = frameRate;
+        this.commandLog = commandLog;
+        encoderThread = new HandlerThread("HarvestRecorder");
+        encoderThread.start();
+        encoderHandler = new Handler(encoderThread.getLooper());
+        isRecording = true;
+    }
+
+    /**
+     * Called on the camera thread for every frame. Copies the frame if a recorder buffer is
+     * free and returns immediately; the caller keeps ownership of {@code frame}.
+     */
+    public void offer(CameraFrame frame) {
+        if (!isRecording) return;
+
+        CameraFrame.Pool pool = framePool;
+        if (pool == null) {
+            // Encoder is set up for the first frame's size, frames are dropped until it is ready
+            if (!configuring) {
+                configuring = true;
+                final int width = frame.width;
+                final int height = frame.height;
+                encoderHandler.post(() -> configure(width, height));
+            }
+            droppedFrames++;
+            return;
+        }
+
+        CameraFrame copy = pool.acquire();
+        if (copy == null) {
+            droppedFrames++;
+            return;
+        }
+        System.arraycopy(frame.y, 0, copy.y, 0, copy.y.length);
+        System.arraycopy(frame.u, 0, copy.u, 0, copy.u.length);
+        System.arraycopy(frame.v, 0, copy.v, 0, copy.v.length);
+        copy.timestampNs = frame.timestampNs;
+        pendingFrames.offer(copy);
+        encoderHandler.post(feedRunnable);
+    }
+
+    /**
+     * Finish the current segment and stop. Frames already queued are still encoded.
+     */
+    public void stop() {
+        isRecording = false;
+        encoderHandler.post(() -> {
+            stopping = true;
+            feedEncoder();
+            // Give up on a clean end of stream if the encoder never drains
+            encoderHandler.postDelayed(releaseRunnable, STOP_TIMEOUT_MS);
+        });
+    }
+
+    public boolean isRecording() {
+        return isRecording;
+    }
+
+    public long getRecordedFrames() {
+        return recordedFrames;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    private void configure(int width, int height) {
+        if (stopping) return;
+        try {
+            MediaFormat format = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, width, height);
+            format.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                    MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+            format.setInteger(MediaFormat.KEY_BIT_RATE, BIT_RATE);
+            format.setInteger(MediaFormat.KEY_FRAME_RATE, frameRate);
+            format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, I_FRAME_INTERVAL_S);
+
+            encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_VIDEO_AVC);
+            encoder.setCallback(encoderCallback, encoderHandler);
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            encoder.start();
+
+            pendingFrames = new ArrayBlockingQueue<>(FRAME_POOL_SIZE);
+            framePool = new CameraFrame.Pool(FRAME_POOL_SIZE, width, height);
+            Log.d(TAG, "Recording " + width + "x" + height + " to " + directory);
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            Log.e(TAG, "Error starting video encoder", e);
+            isRecording = false;
+            releaseEncoder();
+        }
+    }
+
+    private final MediaCodec.Callback encoderCallback = new MediaCodec.Callback() {
+        @Override
+        public void onInputBufferAvailable(MediaCodec codec, int index) {
+            freeInputBuffers.add(index);
+            feedEncoder();
+        }
+
+        @Override
+        public void onOutputBufferAvailable(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+            writeSample(codec, index, info);
+            codec.releaseOutputBuffer(index, false);
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                releaseEncoder();
+            }
+        }
+
+        @Override
+        public void onError(MediaCodec codec, MediaCodec.CodecException e) {
+            Log.e(TAG, "Video encoder error", e);
+            isRecording = false;
+            releaseEncoder();
+        }
+
+        @Override
+        public void onOutputFormatChanged(MediaCodec codec, MediaFormat format) {
+            outputFormat = format;
+        }
+    };
+
+    private void feedEncoder() {
+        if (encoder == null) {
+            if (stopping) releaseEncoder();
+            return;
+        }
+
+        while (!freeInputBuffers.isEmpty() && !pendingFrames.isEmpty()) {
+            CameraFrame frame = pendingFrames.poll();
+            int index = freeInputBuffers.poll();
+            try {
+                Image image = encoder.getInputImage(index);
+                if (image != null) {
+                    copyPlane(frame.y, frame.width, frame.height, image.getPlanes()[0]);
+                    copyPlane(frame.u, frame.width / 2, frame.height / 2, image.getPlanes()[1]);
+                    copyPlane(frame.v, frame.width / 2, frame.height / 2, image.getPlanes()[2]);
+                }
+                lastPresentationUs = frame.timestampNs / 1000;
+                encoder.queueInputBuffer(index, 0, frame.width * frame.height * 3 / 2, lastPresentationUs, 0);
+                recordedFrames++;
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Error queueing frame to encoder", e);
+            } finally {
+                frame.release();
+            }
+        }
+
+        if (stopping && pendingFrames.isEmpty() && !freeInputBuffers.isEmpty()) {
+            encoder.queueInputBuffer(freeInputBuffers.poll(), 0, 0, lastPresentationUs,
+                    MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+        }
+    }
+
+    private void writeSample(MediaCodec codec, int index, MediaCodec.BufferInfo info) {
+        if ((info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0 || info.size == 0) return;
+
+        // Segments always start on a key frame so each file plays on its own
+        boolean keyFrame = (info.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0;
+        if (keyFrame && (muxer == null || info.presentationTimeUs - segmentStartUs >= SEGMENT_DURATION_US)) {
+            openSegment(info.presentationTimeUs);
+        }
+        if (muxer == null) return;
+
+        ByteBuffer data = codec.getOutputBuffer(index);
+        if (data != null) {
+            muxer.writeSampleData(trackIndex, data, info);
+        }
+    }
+
+    private void openSegment(long startUs) {
+        closeSegment();
+        if (outputFormat == null) return;
+
+        File file = new File(directory, String.format("harvest-%03d.mp4", segmentNumber++));
+        try {
+            muxer = new MediaMuxer(file.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+            trackIndex = muxer.addTrack(outputFormat);
+            muxer.start();
+            segmentStartUs = startUs;
+            commandLog.note("video " + file.getName() + " starts at " + (startUs * 1000));
+        } catch (IOException e) {
+            Log.e(TAG, "Error opening video segment", e);
+            muxer = null;
+            return;
+        }
+
+        // Rolling window, drop the oldest segment
+        segments.add(file);
+        while (segments.size() > MAX_SEGMENTS) {
+            File oldest = segments.poll();
+            if (!oldest.delete()) {
+                Log.w(TAG, "Could not delete old segment " + oldest);
+            }
+        }
+    }
+
+    private void closeSegment() {
+        if (muxer == null) return;
+        try {
+            muxer.stop();
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Video segment closed without samples", e);
+        }
+        muxer.release();
+        muxer = null;
+    }
+
+    private void releaseEncoder() {
+        encoderHandler.removeCallbacks(releaseRunnable);
+        closeSegment();
+        if (encoder != null) {
+            try {
+                encoder.stop();
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Encoder already stopped", e);
+            }
+            encoder.release();
+            encoder = null;
+            Log.d(TAG, "Recording stopped, " + recordedFrames + " frames recorded, " + droppedFrames + " dropped");
+        }
+        if (pendingFrames != null) {
+            CameraFrame frame;
+            while ((frame = pendingFrames.poll()) != null) {
+                frame.release();
+            }
+        }
+        freeInputBuffers.clear();
+        if (stopping) {
+            encoderThread.quitSafely();
+        }
+    }
+
+    /**
+     * Copy a planar buffer into an encoder input plane, honouring row and pixel strides.
+     */
+    private static void copyPlane(byte[] source, int width, int height, Image.Plane plane) {
+        ByteBuffer buffer = plane.getBuffer();
+        int rowStride = plane.getRowStride();
+        int pixelStride = plane.getPixelStride();
+
+        if (pixelStride == 1) {
+            for (int row = 0; row < height; row++) {
+                buffer.position(row * rowStride);
+                buffer.put(source, row * width, width);
+            }
+        } else {
+            // Interleaved chroma, write every pixelStride-th byte
+            for (int row = 0; row < height; row++) {
+                int dst = row * rowStride;
+                int src = row * width;
+                for (int col = 0; col < width; col++) {
+                    buffer.put(dst + col * pixelStride, source[src + col]);
+                }
+            }
+        }
+    }
+}
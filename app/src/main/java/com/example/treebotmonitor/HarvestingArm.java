@@ -4,11 +4,12 @@ import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.content.pm.PackageManager;
-import android.hardware.Camera;
+import android.content.res.AssetFileDescriptor;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
@@ -29,8 +30,16 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Callback {
@@ -41,6 +50,14 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
 
     // Bluetooth components - now using singleton helper
     private HarvestingBluetoothHelper bluetoothHelper;
+    private ArmMotionStreamer armMotionStreamer;
+    private VisualServoLoop visualServoLoop;
+
+    // Arm kinematics - lookup table is optional, the solver works without it
+    private final ArmKinematics armKinematics = new ArmKinematics();
+    private IkLookupTable ikLookupTable;
+    private RipenessClassifier ripenessClassifier;
+    private final boolean[] trackRipe = new boolean[FruitTracker.MAX_TRACKS]; // Analysis thread only
     private BluetoothAdapter btAdapter;
     private ArrayList<BluetoothDevice> deviceList;
     private ArrayAdapter<String> deviceAdapter;
@@ -49,8 +66,16 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
     // UI components
     private SurfaceView surfaceView;
     private SurfaceHolder surfaceHolder;
-    private Camera camera;
-    private Button btnBluetoothConnect, btnManualHarvest, btnAutoHarvest;
+    private HarvestCamera harvestCamera;
+    private FrameAnalyzer frameAnalyzer;
+    private volatile HarvestRecorder harvestRecorder; // Read on the camera thread
+    private CommandLog commandLog;
+    private FruitDetector fruitDetector; // Created on the analysis thread for the first frame
+    private FruitTracker fruitTracker;
+    private final FruitLocator fruitLocator = new FruitLocator(
+            FruitLocator.DEFAULT_HORIZONTAL_FOV, FruitLocator.DEFAULT_FRUIT_DIAMETER); // Analysis thread only
+    private int lastFruitCount = -1;
+    private Button btnBluetoothConnect, btnManualHarvest, btnAutoHarvest, btnToggleRecording;
     private LinearLayout manualControlsLayout;
     private TextView tvConnectionStatus, tvRobotStatus;
     private ProgressBar progressBarConnection;
@@ -65,6 +90,53 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
     private boolean isAutoHarvesting = false;
     private int autoHarvestStep = 0;
 
+    // Step completion tracking - the sequence advances on arm acknowledgements,
+    // the per-step timeout is only a safety net for lost or missing replies
+    private static final long GRIPPER_STEP_TIMEOUT = 2000; // Gripper open/close
+    private static final long MOVE_ACK_TIMEOUT = 1000;     // Last streamed setpoint
+    private boolean awaitingStepCompletion = false;
+    private long stepAckTarget = 0;
+
+    // Auto harvest poses in A..F joint order, streamed as smooth trajectories
+    private static final float[] SEARCH_POSE = {90, 45, 90, 90, 90, 30};
+    private static final float[] APPROACH_POSE = {120, 90, 120, 60, 90, 30};
+    private static final float[] HOME_POSE = {90, 90, 90, 90, 90, 150};
+    // Fruit is released over the collection bin, which sits at the home pose on this arm
+    private static final float[] DROP_POSE = HOME_POSE;
+    private static final float[] SLIDER_DEFAULT_POSE = {90, 90, 90, 90, 90, 90};
+    private static final int GRIPPER_JOINT = 5;
+    private static final int GRIPPER_OPEN = 30;
+    private static final int GRIPPER_CLOSED = 150;
+
+    // Slider debounce follows the link estimate, one "A180" command per interval
+    private static final int SLIDER_COMMAND_BYTES = 4;
+    private static final long SLIDER_MIN_INTERVAL_MS = 20;
+    private static final long SLIDER_MAX_INTERVAL_MS = 250;
+
+    // Batch of fruit targets as arm poses in visiting order. While targets remain the arm
+    // delivers each fruit to the drop pose and heads straight for the next target from
+    // there, without going back to the search pose to locate fruit again.
+    private static final long ORDER_PLANNING_BUDGET_NS = 5_000_000; // 5 ms of 2-opt
+    private final ArrayList<float[]> harvestBatch = new ArrayList<>();
+    private int harvestBatchIndex = 0;
+
+    // The batch is taken from the first frame captured after the arm reached the search
+    // pose. Set on the main thread, answered and cleared by the analysis thread.
+    private static final long LOCATE_TIMEOUT = 1000;
+    private volatile long locateAfterNs = 0;
+    private boolean isLocating = false;
+    private final Runnable locateTimeoutRunnable = () -> {
+        Log.w(TAG, "No camera frame to locate fruit in, using the approach pose");
+        onTargetsLocated(new ArrayList<>());
+    };
+
+    private final Runnable stepTimeoutRunnable = () -> {
+        long missing = stepAckTarget - bluetoothHelper.getAckedJointCommandCount();
+        Log.w(TAG, "Auto harvest step " + autoHarvestStep + " timed out, "
+                + missing + " acknowledgements missing");
+        completeAutoHarvestStep();
+    };
+
     // Connection monitoring
     private Handler connectionHandler;
     private final long CONNECTION_CHECK_INTERVAL = 5000; // 5 seconds
@@ -78,6 +150,8 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
         setupBluetoothAdapter();
         setupCameraView();
         setupClickListeners();
+        loadIkLookupTable();
+        loadRipenessClassifier();
         checkPermissions();
         startConnectionMonitoring();
     }
@@ -88,6 +162,7 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
         btnBluetoothConnect = findViewById(R.id.btnBluetoothConnect);
         btnManualHarvest = findViewById(R.id.btnManualHarvest);
         btnAutoHarvest = findViewById(R.id.btnAutoHarvest);
+        btnToggleRecording = findViewById(R.id.btnToggleRecording);
         manualControlsLayout = findViewById(R.id.manualControlsLayout);
         tvConnectionStatus = findViewById(R.id.tvConnectionStatus);
         tvRobotStatus = findViewById(R.id.tvRobotStatus);
@@ -159,12 +234,153 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
 
         // Initialize Bluetooth helper singleton
         bluetoothHelper = HarvestingBluetoothHelper.getInstance(this, bluetoothHandler);
+        armMotionStreamer = new ArmMotionStreamer(bluetoothHelper, SLIDER_DEFAULT_POSE);
+        bluetoothHelper.setMotionStreamer(armMotionStreamer);
+        visualServoLoop = new VisualServoLoop(bluetoothHelper, armMotionStreamer);
+    }
+
+    private void loadIkLookupTable() {
+        // Asset is stored uncompressed so it can be mapped straight from the APK
+        try (AssetFileDescriptor descriptor = getAssets().openFd(IkLookupTable.ASSET_NAME)) {
+            ikLookupTable = IkLookupTable.map(descriptor.createInputStream(),
+                    descriptor.getStartOffset(), descriptor.getDeclaredLength());
+            Log.d(TAG, "IK lookup table mapped: " + ikLookupTable.getDataSize() + " bytes");
+        } catch (IOException e) {
+            Log.w(TAG, "IK lookup table unavailable, using solver only", e);
+        }
+    }
+
+    private void loadRipenessClassifier() {
+        try (InputStream input = getAssets().open(RipenessClassifier.ASSET_NAME)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int read;
+            while ((read = input.read(chunk)) > 0) {
+                bytes.write(chunk, 0, read);
+            }
+            ripenessClassifier = new RipenessClassifier(ByteBuffer.wrap(bytes.toByteArray()));
+        } catch (IOException e) {
+            Log.w(TAG, "Ripeness model unavailable, treating all fruit as ripe", e);
+        }
     }
 
     private void setupCameraView() {
         surfaceHolder = surfaceView.getHolder();
         surfaceHolder.addCallback(this);
-        surfaceHolder.setType(SurfaceHolder.SURFACE_TYPE_PUSH_BUFFERS);
+
+        // Camera2 pipeline runs on its own thread, frames come from a fixed buffer pool
+        harvestCamera = new HarvestCamera(this, HarvestCamera.DEFAULT_WIDTH,
+                HarvestCamera.DEFAULT_HEIGHT, HarvestCamera.DEFAULT_FPS);
+
+        // Analysis only ever sees the freshest frame, stale ones are dropped
+        frameAnalyzer = new FrameAnalyzer(this::analyzeFrame, SystemClock::elapsedRealtimeNanos);
+        harvestCamera.setFrameListener(frame -> {
+            // Recorder copies the frame or drops it, it never holds up analysis
+            HarvestRecorder recorder = harvestRecorder;
+            if (recorder != null) {
+                recorder.offer(frame);
+            }
+            frameAnalyzer.submit(frame);
+        });
+    }
+
+    /**
+     * Runs on the analysis thread for the latest camera frame. The frame is released afterwards.
+     */
+    private void analyzeFrame(CameraFrame frame) {
+        if (fruitDetector == null) {
+            fruitDetector = new FruitDetector(frame.width, frame.height,
+                    Runtime.getRuntime().availableProcessors());
+            fruitTracker = new FruitTracker(fruitDetector);
+        }
+        // Only scans around known fruit between periodic full-frame scans
+        int fruitCount = fruitTracker.update(frame);
+        classifyTracks(frame, fruitCount);
+        long locateAfter = locateAfterNs;
+        if (locateAfter != 0 && frame.timestampNs > locateAfter) {
+            locateAfterNs = 0;
+            List<float[]> targets = locateRipeTracks(frame, fruitCount);
+            autoHarvestHandler.post(() -> onTargetsLocated(targets));
+        }
+        if (visualServoLoop != null && visualServoLoop.isRunning()) {
+            reportServoTarget(frame, fruitCount);
+        }
+
+        if (fruitCount != lastFruitCount) {
+            lastFruitCount = fruitCount;
+            Log.d(TAG, "Fruit in view: " + fruitCount + ", latency "
+                    + (frameAnalyzer.getAverageLatencyNs() / 1_000_000) + " ms, dropped "
+                    + frameAnalyzer.getDroppedFrames() + " frames, ripeness batch "
+                    + (ripenessClassifier != null ? ripenessClassifier.getLastBatchNs() / 1000 : 0) + " us");
+        }
+    }
+
+    /**
+     * Decide ripeness of every tracked fruit, all crops of the frame in one batch.
+     */
+    private void classifyTracks(CameraFrame frame, int fruitCount) {
+        if (ripenessClassifier == null) {
+            for (int i = 0; i < fruitCount; i++) {
+                trackRipe[i] = true;
+            }
+            return;
+        }
+
+        ripenessClassifier.beginBatch();
+        for (int i = 0; i < fruitCount; i++) {
+            FruitDetector.Blob track = fruitTracker.getTrack(i);
+            ripenessClassifier.addCrop(frame, track.left, track.top, track.right, track.bottom);
+        }
+        ripenessClassifier.runBatch();
+        for (int i = 0; i < fruitCount; i++) {
+            trackRipe[i] = ripenessClassifier.isRipe(i);
+        }
+    }
+
+    /**
+     * Positions of the ripe tracked fruit in the arm base frame, seen from the current pose.
+     */
+    private List<float[]> locateRipeTracks(CameraFrame frame, int fruitCount) {
+        float[] pose = new float[TrajectoryPlanner.JOINT_COUNT];
+        armMotionStreamer.getCurrentPose(pose);
+        ArrayList<float[]> targets = new ArrayList<>();
+        for (int i = 0; i < fruitCount; i++) {
+            if (!trackRipe[i]) continue;
+            float[] target = new float[3];
+            fruitLocator.locate(pose, fruitTracker.getTrack(i), frame.width, frame.height, target);
+            targets.add(target);
+        }
+        return targets;
+    }
+
+    /**
+     * Feed the servo loop the ripe tracked fruit closest to the image centre.
+     */
+    private void reportServoTarget(CameraFrame frame, int fruitCount) {
+        float halfWidth = frame.width / 2f;
+        float halfHeight = frame.height / 2f;
+        float bestX = 0f, bestY = 0f;
+        float bestDistance = Float.MAX_VALUE;
+        boolean found = false;
+        for (int i = 0; i < fruitCount; i++) {
+            if (!trackRipe[i]) continue; // Never servo towards unripe fruit
+            FruitDetector.Blob track = fruitTracker.getTrack(i);
+            float offsetX = (track.centerX - halfWidth) / halfWidth;
+            float offsetY = (track.centerY - halfHeight) / halfHeight;
+            float distance = offsetX * offsetX + offsetY * offsetY;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestX = offsetX;
+                bestY = offsetY;
+                found = true;
+            }
+        }
+
+        if (found) {
+            visualServoLoop.updateTarget(bestX, bestY, frame.timestampNs);
+        } else {
+            visualServoLoop.updateNoTarget(frame.timestampNs);
+        }
     }
 
     private void setupClickListeners() {
@@ -221,15 +437,65 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
                 startAutoHarvest();
             }
         });
+
+        btnToggleRecording.setOnClickListener(v -> {
+            if (harvestRecorder != null) {
+                stopRecording();
+            } else {
+                startRecording();
+            }
+        });
+    }
+
+    /**
+     * Record the camera and the command log of this session into its own folder.
+     */
+    private void startRecording() {
+        File sessionDir = new File(getExternalFilesDir("recordings"),
+                "session-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()));
+        if (!sessionDir.mkdirs()) {
+            showError("Cannot create recording folder");
+            return;
+        }
+
+        try {
+            commandLog = new CommandLog(new File(sessionDir, "commands.log"));
+        } catch (IOException e) {
+            Log.e(TAG, "Error creating command log", e);
+            showError("Cannot start recording");
+            return;
+        }
+        if (bluetoothHelper != null) {
+            bluetoothHelper.setCommandLog(commandLog);
+        }
+        harvestRecorder = new HarvestRecorder(sessionDir, HarvestCamera.DEFAULT_FPS, commandLog);
+
+        btnToggleRecording.setText("Stop Recording");
+        showSuccess("Recording to " + sessionDir.getName());
+    }
+
+    private void stopRecording() {
+        if (harvestRecorder == null) return;
+
+        harvestRecorder.stop();
+        Log.d(TAG, "Recording dropped " + harvestRecorder.getDroppedFrames() + " frames");
+        harvestRecorder = null;
+        if (bluetoothHelper != null) {
+            bluetoothHelper.setCommandLog(null);
+        }
+        commandLog.close();
+        commandLog = null;
+
+        btnToggleRecording.setText("Start Recording");
+        showSuccess("Recording saved");
     }
 
     private void startConnectionMonitoring() {
         connectionHandler.postDelayed(new Runnable() {
             @Override
             public void run() {
+                // Liveness pings are sent by the helper's LinkMonitor, this only refreshes the UI
                 if (bluetoothHelper != null && bluetoothHelper.isConnected()) {
-                    // Send ping command to check connection
-                    bluetoothHelper.sendCommand("PING");
                     updateConnectionStatus("Connected to: " + bluetoothHelper.getConnectedDeviceName(), true);
                 } else {
                     updateConnectionStatus("Not Connected", false);
@@ -503,12 +769,18 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
             updateConnectionStatus("Connection lost", false);
             showError("Connection lost");
         } else if (message.equals("OK")) {
-            // Command acknowledged
+            // Command acknowledged - advance auto harvest once the whole step is acked
+            if (awaitingStepCompletion && bluetoothHelper.getAckedJointCommandCount() >= stepAckTarget) {
+                completeAutoHarvestStep();
+            }
         } else if (message.equals("PONG")) {
-            // Ping response - connection is alive
+            // Ping response - already counted by the helper's LinkMonitor
         } else if (message.startsWith("STATUS:")) {
-            // Robot status update
+            // Robot status update - the arm reports it has settled, so the step is done
             updateRobotStatus(message.substring(7));
+            if (awaitingStepCompletion) {
+                completeAutoHarvestStep();
+            }
         } else if (message.startsWith("ERROR:")) {
             // Error from robot
             showError("Robot Error: " + message.substring(6));
@@ -547,9 +819,9 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
 
                     // Schedule new command with delay to prevent spam
                     pendingCommand[0] = () -> {
-                        sendCommand(commandPrefix + progress);
+                        sendJointCommand(commandPrefix, progress);
                     };
-                    seekBarHandler.postDelayed(pendingCommand[0], 100); // 100ms delay
+                    seekBarHandler.postDelayed(pendingCommand[0], getSliderIntervalMs());
                 }
             }
 
@@ -562,11 +834,27 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
                 if (pendingCommand[0] != null) {
                     seekBarHandler.removeCallbacks(pendingCommand[0]);
                 }
-                sendCommand(commandPrefix + sb.getProgress());
+                sendJointCommand(commandPrefix, sb.getProgress());
             }
         });
     }
 
+    private long getSliderIntervalMs() {
+        if (bluetoothHelper == null) {
+            return SLIDER_MAX_INTERVAL_MS;
+        }
+        return bluetoothHelper.getLinkEstimator()
+                .getSendIntervalMs(SLIDER_COMMAND_BYTES, SLIDER_MIN_INTERVAL_MS, SLIDER_MAX_INTERVAL_MS);
+    }
+
+    private void sendJointCommand(String commandPrefix, int angle) {
+        sendCommand(commandPrefix + angle);
+        // Keep the trajectory streamer's start pose in step with manual moves
+        if (armMotionStreamer != null) {
+            armMotionStreamer.updateJointAngle(commandPrefix.charAt(0) - 'A', angle);
+        }
+    }
+
     private void sendCommand(String command) {
         if (bluetoothHelper != null && bluetoothHelper.isConnected()) {
             bluetoothHelper.sendCommand(command);
@@ -602,11 +890,22 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
 
     private void stopAutoHarvest() {
         isAutoHarvesting = false;
+        awaitingStepCompletion = false;
+        isLocating = false;
+        locateAfterNs = 0;
+        harvestBatch.clear();
+        harvestBatchIndex = 0;
         btnAutoHarvest.setText("Auto Harvest");
         btnAutoHarvest.setBackgroundColor(getResources().getColor(android.R.color.holo_orange_dark));
 
-        // Remove any pending auto harvest callbacks
+        // Remove any pending auto harvest callbacks and halt the arm where it is
         autoHarvestHandler.removeCallbacksAndMessages(null);
+        if (armMotionStreamer != null) {
+            armMotionStreamer.stop();
+        }
+        if (visualServoLoop != null) {
+            visualServoLoop.stop();
+        }
 
         updateRobotStatus("Auto Harvest Stopped");
         showSuccess("Auto harvest stopped");
@@ -618,94 +917,190 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
         switch (autoHarvestStep) {
             case 0:
                 updateRobotStatus("Auto Harvest - Search Position");
-                sendCommand("A90");   // Base center
-                sendCommand("B45");   // Shoulder up
-                sendCommand("C90");   // Elbow neutral
-                sendCommand("D90");   // Wrist pitch neutral
-                sendCommand("E90");   // Wrist roll neutral
-                sendCommand("F30");   // Gripper open
                 autoHarvestStep++;
-                autoHarvestHandler.postDelayed(this::performAutoHarvestSequence, 3000);
+                streamStepPose(SEARCH_POSE);    // Shoulder up, gripper open
                 break;
 
             case 1:
-                updateRobotStatus("Auto Harvest - Approaching Target");
-                sendCommand("A120");  // Turn base
-                sendCommand("B90");   // Lower shoulder
-                sendCommand("C120");  // Extend elbow
-                sendCommand("D60");   // Adjust wrist
-                autoHarvestStep++;
-                autoHarvestHandler.postDelayed(this::performAutoHarvestSequence, 3000);
+                if (harvestBatchIndex < harvestBatch.size()) {
+                    approachNextTarget();
+                } else {
+                    // At the search pose, batch up the ripe fruit in view
+                    updateRobotStatus("Auto Harvest - Locating Fruit");
+                    isLocating = true;
+                    locateAfterNs = SystemClock.elapsedRealtimeNanos();
+                    autoHarvestHandler.postDelayed(locateTimeoutRunnable, LOCATE_TIMEOUT);
+                }
                 break;
 
             case 2:
-                updateRobotStatus("Auto Harvest - Gripping");
-                sendCommand("F150");  // Close gripper
+                updateRobotStatus("Auto Harvest - Centring on Fruit");
                 autoHarvestStep++;
-                autoHarvestHandler.postDelayed(this::performAutoHarvestSequence, 2000);
+                visualServoLoop.start(autoHarvestHandler, this::onServoFinished);
                 break;
 
             case 3:
-                updateRobotStatus("Auto Harvest - Returning Home");
-                sendCommand("A90");   // Base center
-                sendCommand("B90");   // Shoulder neutral
-                sendCommand("C90");   // Elbow neutral
-                sendCommand("D90");   // Wrist neutral
-                sendCommand("E90");   // Wrist roll neutral
+                updateRobotStatus("Auto Harvest - Gripping");
                 autoHarvestStep++;
-                autoHarvestHandler.postDelayed(this::performAutoHarvestSequence, 3000);
+                sendGripperStep(GRIPPER_CLOSED);
                 break;
 
             case 4:
-                updateRobotStatus("Auto Harvest - Releasing");
-                sendCommand("F30");   // Open gripper
+                // The gripper holds one fruit, so it is delivered before every next pick
+                updateRobotStatus("Auto Harvest - Delivering Fruit");
                 autoHarvestStep++;
-                autoHarvestHandler.postDelayed(this::performAutoHarvestSequence, 2000);
+                streamStepPose(DROP_POSE);  // Gripper stays closed until over the bin
                 break;
 
             case 5:
-                updateRobotStatus("Auto Harvest - Cycle Complete");
-                autoHarvestStep = 0; // Reset to start again
-                autoHarvestHandler.postDelayed(this::performAutoHarvestSequence, 3000);
+                updateRobotStatus("Auto Harvest - Releasing");
+                autoHarvestStep++;
+                sendGripperStep(GRIPPER_OPEN);
+                break;
+
+            case 6:
+                if (harvestBatchIndex < harvestBatch.size()) {
+                    // Go straight to the next target, skip the search position
+                    autoHarvestStep = 1;
+                } else {
+                    updateRobotStatus("Auto Harvest - Cycle Complete");
+                    harvestBatch.clear();
+                    harvestBatchIndex = 0;
+                    autoHarvestStep = 0; // Reset to start again
+                }
+                autoHarvestHandler.post(this::performAutoHarvestSequence);
                 break;
         }
     }
 
+    private void onTargetsLocated(List<float[]> targets) {
+        if (!isLocating) return;
+
+        isLocating = false;
+        locateAfterNs = 0;
+        autoHarvestHandler.removeCallbacks(locateTimeoutRunnable);
+        if (!targets.isEmpty()) {
+            queueHarvestTargets(targets);
+        }
+        approachNextTarget();
+    }
+
+    private void approachNextTarget() {
+        autoHarvestStep = 2;
+        if (harvestBatchIndex < harvestBatch.size()) {
+            updateRobotStatus("Auto Harvest - Approaching Target "
+                    + (harvestBatchIndex + 1) + "/" + harvestBatch.size());
+            streamStepPose(harvestBatch.get(harvestBatchIndex++));
+        } else {
+            updateRobotStatus("Auto Harvest - Approaching Target");
+            streamStepPose(APPROACH_POSE);  // Turn base, lower shoulder, extend elbow
+        }
+    }
+
+    private void onServoFinished(boolean centred) {
+        if (!isAutoHarvesting) return;
+
+        if (!centred) {
+            // Nothing to grip here, move on to the next target or search again
+            Log.w(TAG, "Could not centre on fruit, skipping grip");
+            updateRobotStatus("Auto Harvest - Fruit Not Found");
+            autoHarvestStep = 6;
+        }
+        performAutoHarvestSequence();
+    }
+
+    /**
+     * Queue fruit targets for the next auto harvest cycles. Targets are gripper positions
+     * {x, y, z} in metres in the arm base frame. Unreachable ones are dropped and the rest
+     * are ordered to minimise joint travel time from the current pose.
+     */
+    void queueHarvestTargets(List<float[]> targets) {
+        float[] currentPose = new float[TrajectoryPlanner.JOINT_COUNT];
+        armMotionStreamer.getCurrentPose(currentPose);
+
+        ArrayList<float[]> poses = new ArrayList<>();
+        for (float[] target : targets) {
+            float[] pose = new float[TrajectoryPlanner.JOINT_COUNT];
+            boolean reached = ikLookupTable != null
+                    ? ikLookupTable.resolve(target[0], target[1], target[2], armKinematics, currentPose, pose)
+                    : armKinematics.solve(target[0], target[1], target[2], Float.NaN, currentPose, pose);
+            if (reached) {
+                pose[GRIPPER_JOINT] = GRIPPER_OPEN;
+                poses.add(pose);
+            } else {
+                Log.w(TAG, "Skipping unreachable harvest target");
+            }
+        }
+
+        HarvestOrderPlanner orderPlanner = new HarvestOrderPlanner(armMotionStreamer.getPlanner());
+        int[] order = orderPlanner.order(currentPose, poses.toArray(new float[0][]), ORDER_PLANNING_BUDGET_NS);
+        Log.d(TAG, "Planned " + order.length + " targets, travel " + orderPlanner.getLastCost() + " s");
+
+        // Replace the targets not visited yet with the new plan
+        harvestBatch.subList(harvestBatchIndex, harvestBatch.size()).clear();
+        for (int index : order) {
+            harvestBatch.add(poses.get(index));
+        }
+    }
+
+    /**
+     * Open or close the gripper. Goes through the streamer so the next move starts from here.
+     */
+    private void sendGripperStep(int angle) {
+        armMotionStreamer.sendJoint(GRIPPER_JOINT, angle, autoHarvestHandler,
+                () -> awaitStepAcks(GRIPPER_STEP_TIMEOUT));
+    }
+
+    /**
+     * Move the arm to a full pose along a smooth trajectory, at the planner's servo limits.
+     */
+    private void streamStepPose(float[] pose) {
+        armMotionStreamer.moveTo(pose, autoHarvestHandler, () -> awaitStepAcks(MOVE_ACK_TIMEOUT));
+    }
+
+    /**
+     * Wait for the arm to acknowledge every joint command sent so far, which includes the
+     * step's last one. The step completes on that "OK" or on a "STATUS:" report, whichever
+     * comes first, or after the timeout if the arm stays silent. Acks arrive in order, so a
+     * late "OK" for an earlier setpoint or servo correction cannot complete it early.
+     */
+    private void awaitStepAcks(long timeoutMs) {
+        if (!isAutoHarvesting) return;
+
+        awaitingStepCompletion = true;
+        stepAckTarget = bluetoothHelper.getSentJointCommandCount();
+        autoHarvestHandler.postDelayed(stepTimeoutRunnable, timeoutMs);
+        if (bluetoothHelper.getAckedJointCommandCount() >= stepAckTarget) {
+            completeAutoHarvestStep();
+        }
+    }
+
+    private void completeAutoHarvestStep() {
+        if (!awaitingStepCompletion) return;
+
+        awaitingStepCompletion = false;
+        autoHarvestHandler.removeCallbacks(stepTimeoutRunnable);
+        autoHarvestHandler.post(this::performAutoHarvestSequence);
+    }
+
     // Camera surface callbacks
     @Override
     public void surfaceCreated(SurfaceHolder holder) {
-        try {
-            if (ActivityCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
-                    == PackageManager.PERMISSION_GRANTED) {
-                camera = Camera.open();
-                camera.setPreviewDisplay(holder);
-                camera.startPreview();
-            }
-        } catch (IOException e) {
-            Log.e(TAG, "Error starting camera preview", e);
+        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
+                == PackageManager.PERMISSION_GRANTED) {
+            // Opens asynchronously on the camera thread
+            harvestCamera.start(holder);
         }
     }
 
     @Override
     public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
-        if (camera != null) {
-            try {
-                camera.stopPreview();
-                camera.setPreviewDisplay(holder);
-                camera.startPreview();
-            } catch (IOException e) {
-                Log.e(TAG, "Error changing camera surface", e);
-            }
-        }
+        harvestCamera.onPreviewSurfaceChanged(width, height);
     }
 
     @Override
     public void surfaceDestroyed(SurfaceHolder holder) {
-        if (camera != null) {
-            camera.stopPreview();
-            camera.release();
-            camera = null;
-        }
+        harvestCamera.stop();
     }
 
     @Override
@@ -714,7 +1109,7 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
 
         if (requestCode == REQUEST_CAMERA_PERMISSION) {
             if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-                if (surfaceHolder != null) {
+                if (surfaceHolder != null && surfaceHolder.getSurface().isValid()) {
                     surfaceCreated(surfaceHolder);
                 }
             } else {
@@ -775,7 +1170,8 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
 
         // Resume camera if permission is granted
         if (ActivityCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
-                == PackageManager.PERMISSION_GRANTED && camera == null && surfaceHolder != null) {
+                == PackageManager.PERMISSION_GRANTED && !harvestCamera.isRunning()
+                && surfaceHolder != null && surfaceHolder.getSurface().isValid()) {
             surfaceCreated(surfaceHolder);
         }
     }
@@ -794,13 +1190,28 @@ public class HarvestingArm extends AppCompatActivity implements SurfaceHolder.Ca
         // Stop all handlers
         connectionHandler.removeCallbacksAndMessages(null);
         stopAutoHarvest();
+        stopRecording();
+
+        if (armMotionStreamer != null) {
+            // A recreated screen may already have registered its own streamer
+            if (bluetoothHelper.getMotionStreamer() == armMotionStreamer) {
+                bluetoothHelper.setMotionStreamer(null);
+            }
+            armMotionStreamer.release();
+        }
+        if (visualServoLoop != null) {
+            visualServoLoop.release();
+        }
 
         // Close camera
-        if (camera != null) {
-            camera.stopPreview();
-            camera.release();
-            camera = null;
+        harvestCamera.stop();
+        frameAnalyzer.release();
+        if (fruitDetector != null) {
+            fruitDetector.release();
         }
+        Log.d(TAG, "Frame analysis: " + frameAnalyzer.getAnalyzedFrames() + " analyzed, "
+                + frameAnalyzer.getDroppedFrames() + " dropped, max latency "
+                + (frameAnalyzer.getMaxLatencyNs() / 1_000_000) + " ms");
 
         // DO NOT disconnect Bluetooth here - let the singleton manage it
         // Only disconnect if user explicitly chooses to, or app is completely destroyed
@@ -9,6 +9,7 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.ActivityCompat;
@@ -16,13 +17,20 @@ import androidx.core.app.ActivityCompat;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class HarvestingBluetoothHelper {
     private static final String TAG = "HarvestingBluetoothHelper";
     private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
     private static final long RECONNECT_DELAY = 5000; // 5 seconds
+    private static final long PROTOCOL_NEGOTIATION_TIMEOUT = 1000;
+    private static final long WRITER_CLOSE_TIMEOUT_MS = 100;
+    // Joint commands remembered for delivery samples while their OK is outstanding
+    private static final int DELIVERY_HISTORY = 64;
 
     // Singleton instance for harvesting
     private static HarvestingBluetoothHelper instance;
@@ -41,11 +49,57 @@ public class HarvestingBluetoothHelper {
     private Handler reconnectHandler;
     private boolean autoReconnectEnabled = true;
 
+    // Joint commands sent and acknowledged on this connection. The controller answers each
+    // with "OK" in order, so every command up to the acknowledged count has been carried out.
+    private final AtomicLong jointCommandsSent = new AtomicLong();
+    private volatile long jointCommandsAcked = 0;
+    // Dropped unsent by the writer in favour of later setpoints, so never acknowledged
+    private final AtomicLong jointCommandsDropped = new AtomicLong();
+
+    // Optional session log of all traffic, set while recording
+    private volatile CommandLog commandLog;
+
+    // Streamer of the open arm screen, so other screens move the arm through it too
+    private volatile ArmMotionStreamer motionStreamer;
+
+    // Liveness of the open link, checked on the main thread
+    private final LinkMonitor linkMonitor = new LinkMonitor(LinkMonitor.DEFAULT_LIVENESS_DEADLINE_MS);
+
+    // Throughput and round trip estimate that send rates adapt to
+    private final LinkEstimator linkEstimator = new LinkEstimator();
+
+    // Offer CRC-framed binary commands on connect, ASCII stays the fallback
+    private volatile boolean binaryProtocolEnabled = true;
+    private final Handler linkHandler;
+
+    private final Runnable linkCheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            ConnectedThread thread = connectedThread;
+            if (thread == null || !isConnected.get()) return;
+
+            long now = SystemClock.uptimeMillis();
+            if (linkMonitor.isDead(now)) {
+                Log.w(TAG, "No data from harvesting device for " + linkMonitor.getSilenceMs(now)
+                        + " ms, " + linkMonitor.getMissedPongs() + " pings unanswered - link dead");
+                // Closing the socket ends the blocking read, which reports the loss and reconnects
+                thread.cancel();
+                return;
+            }
+            if (linkMonitor.shouldPing(now)) {
+                linkMonitor.onPingSent(now);
+                sendCommand("PING");
+            }
+            linkHandler.postDelayed(this, linkMonitor.getNextCheckDelay(SystemClock.uptimeMillis()));
+        }
+    };
+
     // Private constructor for singleton
     private HarvestingBluetoothHelper(Context context, Handler handler) {
         this.context = context.getApplicationContext(); // Use application context to prevent memory leaks
         this.handler = handler;
         this.reconnectHandler = new Handler();
+        this.linkHandler = new Handler();
         bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
         Log.d(TAG, "HarvestingBluetoothHelper instance created");
     }
@@ -60,6 +114,11 @@ public class HarvestingBluetoothHelper {
         return instance;
     }
 
+    // Existing instance if the arm is connected, without taking over its handler
+    public static synchronized HarvestingBluetoothHelper getConnectedInstance() {
+        return instance != null && instance.isConnected() ? instance : null;
+    }
+
     // Update handler for different activities (if needed)
     public void updateHandler(Handler newHandler) {
         this.handler = newHandler;
@@ -140,6 +199,7 @@ public class HarvestingBluetoothHelper {
 
         isConnected.set(false);
         connectedDeviceName = "";
+        linkHandler.removeCallbacks(linkCheckRunnable);
 
         // Cancel any pending reconnection attempts
         if (reconnectHandler != null) {
@@ -149,10 +209,41 @@ public class HarvestingBluetoothHelper {
         sendStatusUpdate("Harvesting Bluetooth: Disconnected");
     }
 
+    public void setCommandLog(CommandLog log) {
+        commandLog = log;
+    }
+
+    public void setMotionStreamer(ArmMotionStreamer streamer) {
+        motionStreamer = streamer;
+    }
+
+    public ArmMotionStreamer getMotionStreamer() {
+        return motionStreamer;
+    }
+
     public void sendCommand(String command) {
         if (connectedThread != null && isConnected.get()) {
+            if (Integer.bitCount(jointMask(command)) > 1 && !isBinaryProtocolActive()) {
+                // The ASCII controller acknowledges each joint, so each must count as a command
+                int start = 0;
+                for (int i = 1; i <= command.length(); i++) {
+                    if (i == command.length() || !Character.isDigit(command.charAt(i))) {
+                        sendCommand(command.substring(start, i));
+                        start = i;
+                    }
+                }
+                return;
+            }
             Log.d(TAG, "Sending harvesting command: " + command);
-            connectedThread.write(command.getBytes());
+            CommandLog log = commandLog;
+            if (log != null) {
+                log.record(CommandLog.SENT, command);
+            }
+            if (jointMask(command) != 0) {
+                // Counted before the write so its "OK" can never arrive first
+                jointCommandsSent.incrementAndGet();
+            }
+            connectedThread.writeCommand(command);
         } else {
             Log.w(TAG, "Cannot send command - not connected to harvesting device");
             sendStatusUpdate("Harvesting Bluetooth: Not connected");
@@ -168,10 +259,73 @@ public class HarvestingBluetoothHelper {
         return isConnected.get() && connectedThread != null;
     }
 
+    public long getSentJointCommandCount() {
+        return jointCommandsSent.get();
+    }
+
+    /**
+     * Joint commands the controller has acknowledged, the first this many sent. Commands
+     * dropped unsent in favour of later ones count as acknowledged.
+     */
+    public long getAckedJointCommandCount() {
+        return Math.min(jointCommandsAcked + jointCommandsDropped.get(), jointCommandsSent.get());
+    }
+
+    /**
+     * Joints set by a command like "A90" or "A91B46", bit 0 for joint A, or 0 for any other
+     * command.
+     */
+    private static int jointMask(String command) {
+        int mask = 0;
+        for (int i = 0; i < command.length(); i++) {
+            char c = command.charAt(i);
+            if (c >= 'A' && c <= 'F' && i + 1 < command.length() && Character.isDigit(command.charAt(i + 1))) {
+                mask |= 1 << (c - 'A');
+            } else if (!Character.isDigit(c)) {
+                return 0;
+            }
+        }
+        return mask;
+    }
+
     public String getConnectedDeviceName() {
         return connectedDeviceName;
     }
 
+    /**
+     * Silence after which an open link is declared dead and closed. A slow round trip
+     * lengthens the wait for each pong, never the deadline.
+     */
+    public void setLivenessDeadline(long deadlineMs) {
+        linkMonitor.setLivenessDeadline(deadlineMs);
+    }
+
+    public LinkMonitor getLinkMonitor() {
+        return linkMonitor;
+    }
+
+    public LinkEstimator getLinkEstimator() {
+        return linkEstimator;
+    }
+
+    /**
+     * Whether to offer {@link BinaryProtocol} framing on the next connect.
+     */
+    public void setBinaryProtocolEnabled(boolean enabled) {
+        binaryProtocolEnabled = enabled;
+    }
+
+    public boolean isBinaryProtocolActive() {
+        ConnectedThread thread = connectedThread;
+        return thread != null && thread.binaryFraming;
+    }
+
+    private void startLinkMonitoring() {
+        linkMonitor.reset(SystemClock.uptimeMillis());
+        linkHandler.removeCallbacks(linkCheckRunnable);
+        linkHandler.postDelayed(linkCheckRunnable, linkMonitor.getNextCheckDelay(SystemClock.uptimeMillis()));
+    }
+
     public void enableAutoReconnect(boolean enable) {
         autoReconnectEnabled = enable;
         if (!enable) {
@@ -267,9 +421,16 @@ public class HarvestingBluetoothHelper {
                 Log.d(TAG, "Successfully connected to harvesting device: " + deviceName);
 
                 // Start the connected thread
+                jointCommandsSent.set(0);
+                jointCommandsAcked = 0;
+                jointCommandsDropped.set(0);
                 connectedThread = new ConnectedThread(socket);
                 connectedThread.start();
                 isConnected.set(true);
+                if (binaryProtocolEnabled) {
+                    connectedThread.offerBinaryFraming();
+                }
+                linkHandler.post(HarvestingBluetoothHelper.this::startLinkMonitoring);
 
                 // Send initial handshake or ready signal
                 sendStatusUpdate("Harvesting System: Ready for commands");
@@ -309,12 +470,28 @@ public class HarvestingBluetoothHelper {
         }
     }
 
-    private class ConnectedThread extends Thread {
+    private class ConnectedThread extends Thread implements CoalescingWriter.Listener {
         private final BluetoothSocket socket;
         private final InputStream inStream;
         private final OutputStream outStream;
+        private final CoalescingWriter writer;
         private byte[] buffer;
 
+        // Wire protocol, ASCII until the controller accepts binary frames
+        private final BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        private final BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder();
+        private final List<String> decoded = new ArrayList<>();
+        private volatile boolean binaryFraming = false;
+        private volatile long negotiationDeadline = 0;
+
+        // Bytes queued so far, and the running total and queue time at each recent joint
+        // command, so its OK tells the link estimator how much has been delivered. Guarded
+        // by encoder.
+        private long bytesQueued = 0;
+        private long jointCommandsQueued = 0;
+        private final long[] bytesQueuedAt = new long[DELIVERY_HISTORY];
+        private final long[] queuedNsAt = new long[DELIVERY_HISTORY];
+
         public ConnectedThread(BluetoothSocket socket) {
             this.socket = socket;
             InputStream tmpIn = null;
@@ -333,6 +510,7 @@ public class HarvestingBluetoothHelper {
 
             inStream = tmpIn;
             outStream = tmpOut;
+            writer = tmpOut != null ? new CoalescingWriter(tmpOut, this) : null;
         }
 
         public void run() {
@@ -357,6 +535,16 @@ public class HarvestingBluetoothHelper {
                 try {
                     numBytes = inStream.read(buffer);
                     if (numBytes > 0) {
+                        linkMonitor.onInbound(SystemClock.uptimeMillis());
+                        if (binaryFraming) {
+                            decoder.feed(buffer, numBytes, decoded);
+                            for (String message : decoded) {
+                                processHarvestingMessage(message);
+                            }
+                            decoded.clear();
+                            continue;
+                        }
+
                         String received = new String(buffer, 0, numBytes);
                         messageBuffer.append(received);
 
@@ -402,6 +590,35 @@ public class HarvestingBluetoothHelper {
 
         private void processHarvestingMessage(String message) {
             Log.d(TAG, "Processing harvesting message: " + message);
+            CommandLog log = commandLog;
+            if (log != null) {
+                log.record(CommandLog.RECEIVED, message);
+            }
+            if (message.equals("OK")) {
+                // Only the reader thread writes the acknowledged count
+                if (jointCommandsAcked + jointCommandsDropped.get() < jointCommandsSent.get()) {
+                    jointCommandsAcked++;
+                    recordDelivery();
+                }
+            } else if (message.startsWith("STATUS:")) {
+                // The arm has settled, so everything sent so far is done even if an OK was lost
+                jointCommandsAcked = jointCommandsSent.get() - jointCommandsDropped.get();
+            } else if (message.equals("PONG")) {
+                linkEstimator.onRttSample(linkMonitor.onPong(SystemClock.uptimeMillis()));
+                linkMonitor.setMinPongTimeout(linkEstimator.getRtoMs());
+            } else if (message.equals(BinaryProtocol.HELLO_ACK)
+                    || message.equals(BinaryProtocol.HELLO_ACK_DELTA)) {
+                acceptBinaryFraming(message.equals(BinaryProtocol.HELLO_ACK_DELTA));
+                return;
+            } else if (binaryFraming && message.startsWith("NAK:")) {
+                int seq = BinaryProtocol.parseNak(message);
+                if (seq >= 0) {
+                    resendFrame(seq);
+                } else {
+                    Log.w(TAG, "Ignoring malformed NAK: " + message);
+                }
+                return;
+            }
 
             // Send the processed message to the handler
             if (handler != null) {
@@ -411,32 +628,136 @@ public class HarvestingBluetoothHelper {
             }
         }
 
+        /**
+         * Queue one command in the negotiated wire format.
+         */
+        public void writeCommand(String command) {
+            // Frames must be queued in sequence order
+            synchronized (encoder) {
+                write(binaryFraming ? encoder.encode(command) : command.getBytes(), jointMask(command));
+            }
+            Log.d(TAG, "Harvesting command queued: " + command);
+        }
+
         public void write(byte[] bytes) {
-            try {
-                if (outStream == null) {
-                    sendStatusUpdate("Harvesting Bluetooth: Output stream error");
-                    return;
+            write(bytes, 0);
+        }
+
+        private void write(byte[] bytes, int jointMask) {
+            if (writer == null) {
+                sendStatusUpdate("Harvesting Bluetooth: Output stream error");
+                return;
+            }
+            synchronized (encoder) {
+                bytesQueued += bytes.length;
+                if (jointMask != 0) {
+                    int slot = (int) (jointCommandsQueued++ % DELIVERY_HISTORY);
+                    bytesQueuedAt[slot] = bytesQueued;
+                    queuedNsAt[slot] = System.nanoTime();
                 }
-                outStream.write(bytes);
-                outStream.flush(); // Ensure data is sent immediately
-                Log.d(TAG, "Harvesting data sent: " + new String(bytes));
-            } catch (IOException e) {
-                Log.e(TAG, "Error sending harvesting data", e);
-                sendStatusUpdate("Harvesting Bluetooth: Error sending command");
-                isConnected.set(false);
+            }
+            // Commands queued close together go out in one packet
+            writer.submit(bytes, jointMask);
+        }
 
-                // Try to reconnect if enabled
-                if (autoReconnectEnabled && !shouldStopReconnecting.get()) {
-                    startReconnectionAttempt();
+        /**
+         * Report the bytes up to the last acknowledged joint command as delivered.
+         */
+        private void recordDelivery() {
+            long acked = getAckedJointCommandCount();
+            long totalBytes;
+            long sentNs;
+            synchronized (encoder) {
+                // Too old, its slot has been reused
+                if (acked == 0 || jointCommandsQueued - acked >= DELIVERY_HISTORY) return;
+                int slot = (int) ((acked - 1) % DELIVERY_HISTORY);
+                totalBytes = bytesQueuedAt[slot];
+                sentNs = queuedNsAt[slot];
+            }
+            linkEstimator.onDelivered(totalBytes, sentNs, System.nanoTime());
+        }
+
+        public void offerBinaryFraming() {
+            negotiationDeadline = SystemClock.uptimeMillis() + PROTOCOL_NEGOTIATION_TIMEOUT;
+            write((BinaryProtocol.HELLO + "\n").getBytes());
+        }
+
+        private void acceptBinaryFraming(boolean deltaEncoding) {
+            if (binaryFraming || SystemClock.uptimeMillis() > negotiationDeadline) {
+                // Outside the negotiation window; the controller stays on ASCII until it sees a frame
+                Log.w(TAG, "Ignoring late binary protocol acknowledgement");
+                return;
+            }
+            synchronized (encoder) {
+                encoder.setDeltaEncoding(deltaEncoding);
+                binaryFraming = true;
+            }
+            Log.d(TAG, "Harvesting link switched to binary frames" + (deltaEncoding ? " with deltas" : ""));
+            // The controller switches on our first frame
+            linkMonitor.onPingSent(SystemClock.uptimeMillis());
+            writeCommand("PING");
+        }
+
+        private void resendFrame(int seq) {
+            synchronized (encoder) {
+                byte[] frame = encoder.getResendFrame(seq);
+                if (frame != null) {
+                    write(frame);
                 }
-            } catch (SecurityException e) {
+            }
+            Log.w(TAG, "Controller lost frame " + seq + ", resent");
+        }
+
+        // Listener calls come from the writer thread
+        @Override
+        public void onWriteComplete(int bytes) {
+            linkEstimator.onWriteComplete(bytes);
+            writer.setMaxWindowNs(linkEstimator.getBatchWindowNs(
+                    CoalescingWriter.MIN_WINDOW_NS, CoalescingWriter.MAX_WINDOW_NS));
+        }
+
+        @Override
+        public void onSetpointsDropped(int count) {
+            jointCommandsDropped.addAndGet(count);
+        }
+
+        @Override
+        public void onWriteError(IOException e) {
+            if (e.getCause() instanceof SecurityException) {
                 Log.e(TAG, "Permission denied when writing harvesting data", e);
                 sendStatusUpdate("Harvesting Bluetooth: Permission denied");
+                return;
+            }
+            Log.e(TAG, "Error sending harvesting data", e);
+            sendStatusUpdate("Harvesting Bluetooth: Error sending command");
+            isConnected.set(false);
+
+            // Try to reconnect if enabled
+            if (autoReconnectEnabled && !shouldStopReconnecting.get()) {
+                startReconnectionAttempt();
             }
         }
 
         public void cancel() {
             isConnected.set(false);
+            if (binaryFraming) {
+                Log.d(TAG, "Harvesting decoder: " + decoder.getFrameCount() + " frames, "
+                        + decoder.getCrcErrorCount() + " CRC errors");
+            }
+            if (writer == null) {
+                closeConnectedSocket();
+                return;
+            }
+            Log.d(TAG, "Harvesting writer sent " + writer.getCommandCount() + " commands in "
+                    + writer.getWriteCount() + " packets, dropped " + writer.getDroppedSetpointCount()
+                    + " stale setpoints");
+            // Let the writer drain first, without blocking the caller; a stalled write must not
+            // keep the socket open, so it is closed after a short wait regardless
+            writer.close(this::closeConnectedSocket);
+            linkHandler.postDelayed(this::closeConnectedSocket, WRITER_CLOSE_TIMEOUT_MS);
+        }
+
+        private void closeConnectedSocket() {
             try {
                 if (socket != null) {
                     socket.close();
@@ -0,0 +1,184 @@
+package com.example.treebotmonitor;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Precomputed inverse kinematics over the harvesting workspace.
+ *
+ * The table is a regular grid of arm poses built offline with {@link ArmKinematics} and
+ * shipped as an uncompressed asset. At startup it is memory-mapped, so it costs no heap
+ * and pages in on demand. A query interpolates the eight surrounding grid poses and lets
+ * the solver refine from there, which converges in one or two iterations instead of a
+ * full solve. Targets near the edge of the reachable space fall back to a normal solve.
+ *
+ * File layout, little endian: magic, version, nx, ny, nz (ints), origin x/y/z and grid
+ * step (floats, metres), then nx * ny * nz points of four shorts (joints A..D in
+ * hundredths of a degree), x fastest. Unreachable points hold {@link #UNREACHABLE}.
+ */
+public class IkLookupTable {
+
+    public static final String ASSET_NAME = "ik_table.iklt";
+
+    private static final int MAGIC = 0x494B4C54; // "IKLT"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 9 * 4;
+    private static final int JOINTS = 4;          // Base, shoulder, elbow, wrist pitch
+    private static final short UNREACHABLE = Short.MIN_VALUE;
+    private static final float ANGLE_SCALE = 100f;
+
+    // Workspace in front of the arm covered by the shipped table
+    private static final float ORIGIN_X = 0.05f, ORIGIN_Y = -0.35f, ORIGIN_Z = 0.0f;
+    private static final float GRID_STEP = 0.02f;
+    private static final int NX = 21, NY = 36, NZ = 26;
+
+    private final ShortBuffer poses;
+    private final int nx, ny, nz;
+    private final float originX, originY, originZ, step;
+
+    // Interpolated seed pose, reused between queries
+    private final float[] seed = new float[TrajectoryPlanner.JOINT_COUNT];
+
+    public IkLookupTable(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an IK lookup table");
+        }
+        nx = buffer.getInt(8);
+        ny = buffer.getInt(12);
+        nz = buffer.getInt(16);
+        originX = buffer.getFloat(20);
+        originY = buffer.getFloat(24);
+        originZ = buffer.getFloat(28);
+        step = buffer.getFloat(32);
+
+        int expected = HEADER_SIZE + nx * ny * nz * JOINTS * 2;
+        if (buffer.capacity() < expected) {
+            throw new IOException("IK lookup table truncated");
+        }
+        buffer.position(HEADER_SIZE);
+        poses = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    /**
+     * Memory-map a table from a file region, e.g. an uncompressed asset's file descriptor.
+     */
+    public static IkLookupTable map(FileInputStream input, long offset, long length) throws IOException {
+        FileChannel channel = input.getChannel();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return new IkLookupTable(buffer);
+    }
+
+    /**
+     * Resolve a gripper target to a pose. Uses the interpolated grid pose as the starting
+     * point when the target lies inside the table, otherwise solves from {@code current}.
+     *
+     * @return true if the target was reached within the solver tolerance
+     */
+    public boolean resolve(float x, float y, float z, ArmKinematics kinematics, float[] current, float[] out) {
+        if (interpolate(x, y, z, current, seed)) {
+            return kinematics.solve(x, y, z, Float.NaN, seed, out);
+        }
+        return kinematics.solve(x, y, z, Float.NaN, current, out);
+    }
+
+    /**
+     * Trilinear interpolation of the grid poses around (x, y, z). Joints E and F are copied
+     * from {@code current}. Returns false if the point is outside the table or next to an
+     * unreachable grid point.
+     */
+    public boolean interpolate(float x, float y, float z, float[] current, float[] out) {
+        float gx = (x - originX) / step;
+        float gy = (y - originY) / step;
+        float gz = (z - originZ) / step;
+        int ix = (int) Math.floor(gx);
+        int iy = (int) Math.floor(gy);
+        int iz = (int) Math.floor(gz);
+        if (ix < 0 || iy < 0 || iz < 0 || ix >= nx - 1 || iy >= ny - 1 || iz >= nz - 1) {
+            return false;
+        }
+        float fx = gx - ix, fy = gy - iy, fz = gz - iz;
+
+        for (int j = 0; j < JOINTS; j++) {
+            out[j] = 0f;
+        }
+        for (int corner = 0; corner < 8; corner++) {
+            int cx = corner & 1, cy = (corner >> 1) & 1, cz = (corner >> 2) & 1;
+            float weight = (cx == 1 ? fx : 1f - fx) * (cy == 1 ? fy : 1f - fy) * (cz == 1 ? fz : 1f - fz);
+            int base = (((iz + cz) * ny + (iy + cy)) * nx + (ix + cx)) * JOINTS;
+            for (int j = 0; j < JOINTS; j++) {
+                short value = poses.get(base + j);
+                if (value == UNREACHABLE) {
+                    return false;
+                }
+                out[j] += weight * value / ANGLE_SCALE;
+            }
+        }
+        for (int j = JOINTS; j < TrajectoryPlanner.JOINT_COUNT; j++) {
+            out[j] = current[j];
+        }
+        return true;
+    }
+
+    /**
+     * Size of the mapped pose data in bytes.
+     */
+    public int getDataSize() {
+        return poses.capacity() * 2;
+    }
+
+    /**
+     * Build the workspace table. Each row is swept along x and warm-started from the
+     * previous point, so neighbouring cells stay on the same elbow configuration and
+     * interpolate cleanly.
+     */
+    public static void build(ArmKinematics kinematics, OutputStream output) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(NX).putInt(NY).putInt(NZ);
+        header.putFloat(ORIGIN_X).putFloat(ORIGIN_Y).putFloat(ORIGIN_Z).putFloat(GRID_STEP);
+        output.write(header.array());
+
+        float[] reachPose = {90, 45, 135, 90, 90, 90};
+        float[] rowSeed = new float[TrajectoryPlanner.JOINT_COUNT];
+        float[] pose = new float[TrajectoryPlanner.JOINT_COUNT];
+        ByteBuffer point = ByteBuffer.allocate(JOINTS * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int iz = 0; iz < NZ; iz++) {
+            for (int iy = 0; iy < NY; iy++) {
+                System.arraycopy(reachPose, 0, rowSeed, 0, rowSeed.length);
+                for (int ix = 0; ix < NX; ix++) {
+                    float x = ORIGIN_X + ix * GRID_STEP;
+                    float y = ORIGIN_Y + iy * GRID_STEP;
+                    float z = ORIGIN_Z + iz * GRID_STEP;
+                    boolean reached = kinematics.solve(x, y, z, Float.NaN, rowSeed, pose);
+
+                    point.clear();
+                    for (int j = 0; j < JOINTS; j++) {
+                        point.putShort(reached ? (short) Math.round(pose[j] * ANGLE_SCALE) : UNREACHABLE);
+                    }
+                    output.write(point.array());
+                    if (reached) {
+                        System.arraycopy(pose, 0, rowSeed, 0, rowSeed.length);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Regenerate the shipped asset: {@code java IkLookupTable app/src/main/assets/ik_table.iklt}
+     */
+    public static void main(String[] args) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(args[0]))) {
+            build(new ArmKinematics(), output);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.treebotmonitor;
+
+/**
+ * Measures the drive keep-alive stream: achieved rate, the largest gap between drive
+ * commands and the bytes per second it costs on the link.
+ *
+ * The gap is what the climber's deadman timer sees, so {@link #getBudgetMarginMs}
+ * (timeout minus largest gap) must stay positive or the robot stops while still driven.
+ */
+public class KeepAliveStats {
+
+    private final long deadmanTimeoutMs;
+
+    // Current stream, lastMs is -1 while not driving
+    private long firstMs = -1;
+    private long lastMs = -1;
+
+    // Totals over all streams
+    private long closedSpanMs = 0;
+    private long streams = 0;
+    private long count = 0;
+    private long bytes = 0;
+    private long maxGapMs = 0;
+
+    public KeepAliveStats(long deadmanTimeoutMs) {
+        this.deadmanTimeoutMs = deadmanTimeoutMs;
+    }
+
+    /**
+     * A drive command of {@code size} bytes went out at {@code nowMs}.
+     */
+    public void record(long nowMs, int size) {
+        if (lastMs < 0) {
+            firstMs = nowMs;
+            streams++;
+        } else {
+            maxGapMs = Math.max(maxGapMs, nowMs - lastMs);
+        }
+        lastMs = nowMs;
+        count++;
+        bytes += size;
+    }
+
+    /**
+     * Drive stopped; the next command starts a new stream and its gap is not counted.
+     */
+    public void endStream() {
+        if (lastMs < 0) return;
+        closedSpanMs += lastMs - firstMs;
+        lastMs = -1;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxGapMs() {
+        return maxGapMs;
+    }
+
+    public long getBudgetMarginMs() {
+        return deadmanTimeoutMs - maxGapMs;
+    }
+
+    /**
+     * Average command rate while driving.
+     */
+    public float getRateHz() {
+        long spanMs = streamedMs();
+        return spanMs <= 0 ? 0f : (count - streams) * 1000f / spanMs;
+    }
+
+    public float getBytesPerSecond() {
+        long spanMs = streamedMs();
+        return spanMs <= 0 ? 0f : bytes * 1000f / spanMs;
+    }
+
+    private long streamedMs() {
+        return closedSpanMs + (lastMs >= 0 ? lastMs - firstMs : 0);
+    }
+}
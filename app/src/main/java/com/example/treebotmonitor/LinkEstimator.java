@@ -0,0 +1,144 @@
+package com.example.treebotmonitor;
+
+/**
+ * Running estimate of what a Bluetooth link can carry, for choosing send rates.
+ *
+ * Throughput comes from acknowledged bytes, not from timing writes: a socket write only
+ * copies into the stack's buffer and returns long before the bytes are on the air. Each
+ * acknowledgement gives a delivery rate sample, as in BBR: the bytes acknowledged since the
+ * previous sample over the longer of the send and acknowledgement intervals, so a burst of
+ * acks does not look like a fast link. Samples shorter than {@link #MIN_SAMPLE_MS} are
+ * merged into the next. The estimate is the highest of the last {@link #RATE_SAMPLES}
+ * samples, since a sender that was idle part of the time can only underestimate. Until the
+ * first sample, and on links that acknowledge nothing, it is {@link #INITIAL_THROUGHPUT_BPS}.
+ * Round trips are smoothed as in TCP (RFC 6298).
+ *
+ * {@link #getSendIntervalMs} spaces updates so they use at most {@link #LINK_SHARE} of the
+ * estimate, which leaves room for acks, pings and other commands. Methods are synchronized
+ * because samples come from the writer and reader threads.
+ */
+public class LinkEstimator {
+
+    public static final float INITIAL_THROUGHPUT_BPS = 2000f;
+    public static final float LINK_SHARE = 0.5f;
+    public static final long MIN_SAMPLE_MS = 50;
+    public static final int RATE_SAMPLES = 10;
+    private static final float WRITE_GAIN = 1f / 8;
+    private static final float RTT_GAIN = 1f / 8;
+    private static final float RTT_VAR_GAIN = 1f / 4;
+
+    private float avgWriteBytes = 0f;
+    private long writes = 0;
+
+    // Start of the delivery sample in progress, deliveredBytes -1 before the first ack
+    private long deliveredBytes = -1;
+    private long deliveredSentNs;
+    private long deliveredAckedNs;
+    private final float[] rateSamples = new float[RATE_SAMPLES];
+    private long samples = 0;
+
+    private float smoothedRttMs = -1f;
+    private float rttVarianceMs = 0f;
+
+    /**
+     * One write of {@code bytes} went to the socket.
+     */
+    public synchronized void onWriteComplete(int bytes) {
+        if (bytes <= 0) return;
+        if (writes++ == 0) {
+            avgWriteBytes = bytes;
+        } else {
+            avgWriteBytes += WRITE_GAIN * (bytes - avgWriteBytes);
+        }
+    }
+
+    /**
+     * The peer acknowledged the first {@code totalBytes} written, the last of which was
+     * queued at {@code sentNs}; the acknowledgement arrived at {@code ackedNs}.
+     */
+    public synchronized void onDelivered(long totalBytes, long sentNs, long ackedNs) {
+        if (deliveredBytes < 0) {
+            deliveredBytes = totalBytes;
+            deliveredSentNs = sentNs;
+            deliveredAckedNs = ackedNs;
+            return;
+        }
+        if (totalBytes <= deliveredBytes) return;
+
+        long intervalNs = Math.max(ackedNs - deliveredAckedNs, sentNs - deliveredSentNs);
+        if (intervalNs < MIN_SAMPLE_MS * 1_000_000) return;
+        float rate = (totalBytes - deliveredBytes) * 1e9f / intervalNs;
+        rateSamples[(int) (samples++ % RATE_SAMPLES)] = rate;
+        deliveredBytes = totalBytes;
+        deliveredSentNs = sentNs;
+        deliveredAckedNs = ackedNs;
+    }
+
+    public synchronized void onRttSample(long rttMs) {
+        if (rttMs < 0) return;
+        if (smoothedRttMs < 0) {
+            smoothedRttMs = rttMs;
+            rttVarianceMs = rttMs / 2f;
+        } else {
+            rttVarianceMs += RTT_VAR_GAIN * (Math.abs(smoothedRttMs - rttMs) - rttVarianceMs);
+            smoothedRttMs += RTT_GAIN * (rttMs - smoothedRttMs);
+        }
+    }
+
+    public synchronized float getThroughputBytesPerSecond() {
+        if (samples == 0) return INITIAL_THROUGHPUT_BPS;
+        float max = 0f;
+        for (int i = 0; i < Math.min(samples, RATE_SAMPLES); i++) {
+            max = Math.max(max, rateSamples[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Time the link takes to carry one average write at the estimated throughput, or 0
+     * before the first write.
+     */
+    public synchronized long getWriteTimeNs() {
+        return (long) (avgWriteBytes * 1e9f / getThroughputBytesPerSecond());
+    }
+
+    /**
+     * Smoothed round trip, or -1 before the first sample.
+     */
+    public synchronized float getSmoothedRttMs() {
+        return smoothedRttMs;
+    }
+
+    public synchronized float getRttVarianceMs() {
+        return rttVarianceMs;
+    }
+
+    /**
+     * Retransmission timeout as in RFC 6298, the smoothed round trip plus four deviations,
+     * or -1 before the first sample.
+     */
+    public synchronized long getRtoMs() {
+        if (smoothedRttMs < 0) return -1;
+        return (long) Math.ceil(smoothedRttMs + 4 * rttVarianceMs);
+    }
+
+    public synchronized long getWriteCount() {
+        return writes;
+    }
+
+    /**
+     * Interval between updates of {@code bytesPerUpdate} that keeps them within the link
+     * share, clamped to {@code [minMs, maxMs]}.
+     */
+    public long getSendIntervalMs(int bytesPerUpdate, long minMs, long maxMs) {
+        float intervalMs = bytesPerUpdate * 1000f / (LINK_SHARE * getThroughputBytesPerSecond());
+        return Math.max(minMs, Math.min(maxMs, (long) Math.ceil(intervalMs)));
+    }
+
+    /**
+     * Coalescing window: about one write time, since the link is busy that long anyway.
+     */
+    public long getBatchWindowNs(long minNs, long maxNs) {
+        return Math.max(minNs, Math.min(maxNs, getWriteTimeNs()));
+    }
+}
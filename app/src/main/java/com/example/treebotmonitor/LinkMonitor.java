@@ -0,0 +1,153 @@
+package com.example.treebotmonitor;
+
+/**
+ * Decides when to ping the harvesting controller and when its link is dead.
+ *
+ * Any inbound byte proves the link alive, so pings are only sent once the link has been
+ * silent for a third of the liveness deadline; while traffic flows none are needed at all.
+ * A ping that gets no PONG within a sixth of the deadline counts as missed and is retried
+ * at once, so a suspicious link is pinged at that faster rate. On a link whose round trip
+ * is slower than that, the pong timeout follows {@link #setMinPongTimeout} up to a third
+ * of the deadline. The link is declared dead once it has been silent for the whole
+ * deadline, which leaves room for four pings on a link that just went quiet; the
+ * deadline itself never stretches.
+ *
+ * Times are in milliseconds on any monotonic clock. Methods are synchronized because bytes
+ * arrive on the reader thread while pings are scheduled elsewhere.
+ */
+public class LinkMonitor {
+
+    public static final long DEFAULT_LIVENESS_DEADLINE_MS = 3000;
+
+    private long deadlineMs;
+    private long minPongTimeoutMs = 0;
+
+    private long lastInboundMs;
+    // Send time of the unanswered ping, or -1
+    private long pingSentMs = -1;
+    private int missedPongs = 0;
+    private long totalMissedPongs = 0;
+    private long lastRttMs = -1;
+
+    public LinkMonitor(long livenessDeadlineMs) {
+        setLivenessDeadline(livenessDeadlineMs);
+    }
+
+    public synchronized void setLivenessDeadline(long livenessDeadlineMs) {
+        if (livenessDeadlineMs <= 0) {
+            throw new IllegalArgumentException("Liveness deadline must be positive: " + livenessDeadlineMs);
+        }
+        deadlineMs = livenessDeadlineMs;
+    }
+
+    public synchronized long getLivenessDeadline() {
+        return deadlineMs;
+    }
+
+    /**
+     * Wait at least this long for each pong, e.g. the link's retransmission timeout, so a
+     * slow but live link does not count as missing pings. Capped at a third of the deadline.
+     */
+    public synchronized void setMinPongTimeout(long timeoutMs) {
+        minPongTimeoutMs = Math.max(0, timeoutMs);
+    }
+
+    /**
+     * Link (re)connected at {@code nowMs}; the deadline starts from here.
+     */
+    public synchronized void reset(long nowMs) {
+        lastInboundMs = nowMs;
+        pingSentMs = -1;
+        missedPongs = 0;
+    }
+
+    /**
+     * Bytes arrived from the controller.
+     */
+    public synchronized void onInbound(long nowMs) {
+        lastInboundMs = Math.max(lastInboundMs, nowMs);
+        missedPongs = 0;
+    }
+
+    public synchronized void onPingSent(long nowMs) {
+        pingSentMs = nowMs;
+    }
+
+    /**
+     * Returns the round trip of the answered ping, or -1 for an unsolicited PONG.
+     */
+    public synchronized long onPong(long nowMs) {
+        long rttMs = -1;
+        if (pingSentMs >= 0) {
+            rttMs = nowMs - pingSentMs;
+            lastRttMs = rttMs;
+            pingSentMs = -1;
+        }
+        onInbound(nowMs);
+        return rttMs;
+    }
+
+    /**
+     * True if a ping should go out now. Also counts an unanswered ping as missed.
+     */
+    public synchronized boolean shouldPing(long nowMs) {
+        if (pingSentMs >= 0) {
+            if (nowMs - pingSentMs < pongTimeoutMs()) return false;
+            // Anything received since the ping also proves the link
+            if (lastInboundMs <= pingSentMs) {
+                missedPongs++;
+                totalMissedPongs++;
+            }
+            pingSentMs = -1;
+        }
+        return nowMs >= nextPingTime();
+    }
+
+    /**
+     * Milliseconds until {@link #shouldPing} or {@link #isDead} may change, at least 1.
+     */
+    public synchronized long getNextCheckDelay(long nowMs) {
+        long next = pingSentMs >= 0 ? pingSentMs + pongTimeoutMs() : nextPingTime();
+        next = Math.min(next, lastInboundMs + deadlineMs);
+        return Math.max(1, next - nowMs);
+    }
+
+    public synchronized boolean isDead(long nowMs) {
+        return nowMs - lastInboundMs >= deadlineMs;
+    }
+
+    /**
+     * True while pings go unanswered, i.e. pinging at the fast rate.
+     */
+    public synchronized boolean isSuspicious() {
+        return missedPongs > 0;
+    }
+
+    public synchronized long getSilenceMs(long nowMs) {
+        return nowMs - lastInboundMs;
+    }
+
+    public synchronized int getMissedPongs() {
+        return missedPongs;
+    }
+
+    public synchronized long getTotalMissedPongs() {
+        return totalMissedPongs;
+    }
+
+    /**
+     * Round trip of the last answered ping, or -1 if none yet.
+     */
+    public synchronized long getLastRttMs() {
+        return lastRttMs;
+    }
+
+    private long nextPingTime() {
+        // After a miss, retry at once
+        return missedPongs > 0 ? lastInboundMs : lastInboundMs + deadlineMs / 3;
+    }
+
+    private long pongTimeoutMs() {
+        return Math.max(1, Math.max(deadlineMs / 6, Math.min(minPongTimeoutMs, deadlineMs / 3)));
+    }
+}
@@ -9,13 +9,18 @@ import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
 import android.util.Log;
+import android.view.MotionEvent;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.SeekBar;
+import android.widget.Switch;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
@@ -24,10 +29,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 
 public class MainActivity extends AppCompatActivity {
@@ -40,8 +43,10 @@ public class MainActivity extends AppCompatActivity {
     private TextView tvSpeedStatus;
     private Button btnConnect;
     private Button btnVoiceCommand;
+    private Switch switchHandsFree;
     private Button btnSpeedUp;
     private Button btnSpeedDown;
+    private SeekBar seekSpeed;
     private Button btnHarvesting;
     private BluetoothAdapter bluetoothAdapter;
     private String selectedDeviceAddress; // Stores the selected device's MAC address
@@ -49,11 +54,28 @@ public class MainActivity extends AppCompatActivity {
     // Voice command components
     private SpeechRecognizer speechRecognizer;
     private boolean isListening = false;
-    private Map<String, String> voiceCommandMap;
-
-    // Speed control
-    private int currentSpeed = 1; // 1 = Low, 2 = Medium, 3 = High
+    private VoiceCommandMatcher voiceCommandMatcher;
+    private VoiceCommandGate voiceCommandGate;
+
+    // Hands-free mode re-arms the recognizer after every result
+    private final Handler voiceHandler = new Handler(Looper.getMainLooper());
+    private final VoiceListeningSession listeningSession = new VoiceListeningSession(SystemClock::elapsedRealtimeNanos);
+    private final Runnable rearmRunnable = this::startListening;
+    private boolean resumeHandsFree = false;
+    private final Runnable delayedStopRunnable = () -> sendMotionCommand("STOP*");
+
+    // Speed control, a continuous setpoint in percent of full speed, ramped on the way
+    private static final int MIN_SPEED_PERCENT = 10;
+    private static final int SPEED_STEP_PERCENT = 10;
+    private static final int[] SPEED_LEVEL_PERCENT = {33, 67, 100}; // Low, Medium, High
+    private static final float SPEED_ACCELERATION = 50f; // Percent per second, 0 to full in 2 s
+    private int speedPercent = SPEED_LEVEL_PERCENT[0];
     private final String[] speedLabels = {"Low Speed", "Medium Speed", "High Speed"};
+    private SpeedRampStreamer speedRampStreamer;
+    private static final int VOICE_PRIORITY_STOP = 1;
+    private static final int VOICE_MAX_HYPOTHESES = 5;
+    private static final float VOICE_FUZZY_THRESHOLD = FuzzyCommandIndex.DEFAULT_THRESHOLD;
+    private static final float VOICE_FUZZY_UTTERANCE_THRESHOLD = FuzzyCommandIndex.DEFAULT_UTTERANCE_THRESHOLD;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -72,8 +94,10 @@ public class MainActivity extends AppCompatActivity {
         tvSpeedStatus = findViewById(R.id.tvSpeedStatus);
         btnConnect = findViewById(R.id.btnConnect);
         btnVoiceCommand = findViewById(R.id.btnVoiceCommand);
+        switchHandsFree = findViewById(R.id.switchHandsFree);
         btnSpeedUp = findViewById(R.id.btnSpeedUp);
         btnSpeedDown = findViewById(R.id.btnSpeedDown);
+        seekSpeed = findViewById(R.id.seekSpeed);
         btnHarvesting = findViewById(R.id.btnHarvesting);
     }
 
@@ -88,6 +112,7 @@ public class MainActivity extends AppCompatActivity {
                 return true;
             }
         }));
+        speedRampStreamer = new SpeedRampStreamer(bluetoothHelper, SPEED_ACCELERATION);
 
         btnConnect.setOnClickListener(v -> {
             if (checkBluetoothPermissions()) {
@@ -115,35 +140,39 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void setupVoiceCommandComponents() {
-        // Initialize voice command mapping (updated to include speed commands)
-        voiceCommandMap = new HashMap<>();
-        voiceCommandMap.put("forward", "FORWARD*");
-        voiceCommandMap.put("go forward", "FORWARD*");
-        voiceCommandMap.put("move forward", "FORWARD*");
-        voiceCommandMap.put("climb up", "FORWARD*");
-        voiceCommandMap.put("reverse", "REVERSE*");
-        voiceCommandMap.put("go back", "REVERSE*");
-        voiceCommandMap.put("move back", "REVERSE*");
-        voiceCommandMap.put("backward", "REVERSE*");
-        voiceCommandMap.put("go backward", "REVERSE*");
-        voiceCommandMap.put("climb down", "REVERSE*");
-        voiceCommandMap.put("riverse", "REVERSE*");
-        voiceCommandMap.put("reveres", "REVERSE*");
-        voiceCommandMap.put("stop", "STOP*");
-        voiceCommandMap.put("Stop", "STOP*");
-        voiceCommandMap.put("top", "STOP*");
-        voiceCommandMap.put("staff", "STOP*");
-        voiceCommandMap.put("STOP", "STOP*");
-
-        // Speed control voice commands
-        voiceCommandMap.put("speed up", "SPEED_UP");
-        voiceCommandMap.put("increase speed", "SPEED_UP");
-        voiceCommandMap.put("faster", "SPEED_UP");
-        voiceCommandMap.put("speed down", "SPEED_DOWN");
-        voiceCommandMap.put("decrease speed", "SPEED_DOWN");
-        voiceCommandMap.put("slower", "SPEED_DOWN");
-        voiceCommandMap.put("low speed", "SPEED_LOW");
-        voiceCommandMap.put("high speed", "SPEED_HIGH");
+        // Voice phrases compiled into one automaton; STOP outranks anything else said with it.
+        // Common STOP misrecognitions stay exact so they keep STOP priority anywhere in a sentence;
+        // other near misses are left to the fuzzy index.
+        voiceCommandMatcher = new VoiceCommandMatcher.Builder()
+                .add("forward", "FORWARD*")
+                .add("go forward", "FORWARD*")
+                .add("move forward", "FORWARD*")
+                .add("climb up", "FORWARD*")
+                .add("reverse", "REVERSE*")
+                .add("go back", "REVERSE*")
+                .add("move back", "REVERSE*")
+                .add("backward", "REVERSE*")
+                .add("go backward", "REVERSE*")
+                .add("climb down", "REVERSE*")
+                .add("stop", "STOP*", VOICE_PRIORITY_STOP)
+                .add("top", "STOP*", VOICE_PRIORITY_STOP)
+                .add("staff", "STOP*", VOICE_PRIORITY_STOP)
+
+                // Speed control voice commands
+                .add("speed up", "SPEED_UP")
+                .add("increase speed", "SPEED_UP")
+                .add("faster", "SPEED_UP")
+                .add("speed down", "SPEED_DOWN")
+                .add("decrease speed", "SPEED_DOWN")
+                .add("slower", "SPEED_DOWN")
+                .add("low speed", "SPEED_LOW")
+                .add("high speed", "SPEED_HIGH")
+                .build();
+        FuzzyCommandIndex fuzzyCommandIndex = new FuzzyCommandIndex(voiceCommandMatcher, VOICE_FUZZY_THRESHOLD,
+                VOICE_FUZZY_UTTERANCE_THRESHOLD);
+        voiceCommandGate = new VoiceCommandGate(voiceCommandMatcher, fuzzyCommandIndex,
+                VOICE_PRIORITY_STOP, VoiceCommandGate.DEFAULT_EARLY_CONFIDENCE,
+                VoiceCommandGate.DEFAULT_MIN_SCORE);
 
         // Initialize speech recognizer
         if (SpeechRecognizer.isRecognitionAvailable(this)) {
@@ -152,6 +181,7 @@ public class MainActivity extends AppCompatActivity {
         } else {
             Toast.makeText(this, "Speech recognition not available on this device", Toast.LENGTH_SHORT).show();
             btnVoiceCommand.setEnabled(false);
+            switchHandsFree.setEnabled(false);
         }
 
         // Set up voice command button
@@ -162,6 +192,20 @@ public class MainActivity extends AppCompatActivity {
                 requestVoicePermission();
             }
         });
+
+        switchHandsFree.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (isChecked == listeningSession.isActive()) return;
+            if (isChecked) {
+                if (checkVoicePermission()) {
+                    startHandsFree();
+                } else {
+                    switchHandsFree.setChecked(false);
+                    requestVoicePermission();
+                }
+            } else {
+                stopHandsFree();
+            }
+        });
     }
 
     private boolean checkVoicePermission() {
@@ -177,32 +221,88 @@ public class MainActivity extends AppCompatActivity {
 
     private void toggleVoiceRecognition() {
         if (isListening) {
-            // Stop listening
-            speechRecognizer.stopListening();
-            btnVoiceCommand.setText("🎤 Voice Command");
-            isListening = false;
+            stopListening();
         } else {
-            // Start listening
-            Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-            intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-            intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault());
-            intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 1);
-
-            try {
-                speechRecognizer.startListening(intent);
-                btnVoiceCommand.setText("🔴 Listening...");
-                isListening = true;
-            } catch (Exception e) {
-                Log.e(TAG, "Error starting speech recognition: " + e.getMessage());
-                Toast.makeText(this, "Error starting voice recognition", Toast.LENGTH_SHORT).show();
+            startListening();
+        }
+    }
+
+    private void startListening() {
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, Locale.getDefault());
+        // N-best hypotheses, all scored against the command vocabulary
+        intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, VOICE_MAX_HYPOTHESES);
+        // Partial results let STOP go out before the user finishes speaking
+        intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
+
+        try {
+            voiceCommandGate.beginUtterance();
+            speechRecognizer.startListening(intent);
+            btnVoiceCommand.setText("🔴 Listening...");
+            isListening = true;
+        } catch (Exception e) {
+            Log.e(TAG, "Error starting speech recognition: " + e.getMessage());
+            Toast.makeText(this, "Error starting voice recognition", Toast.LENGTH_SHORT).show();
+            if (listeningSession.isActive()) {
+                rearmAfterError(VoiceListeningSession.ERROR_TRANSIENT);
             }
         }
     }
 
+    private void stopListening() {
+        speechRecognizer.stopListening();
+        btnVoiceCommand.setText("🎤 Voice Command");
+        isListening = false;
+    }
+
+    private void startHandsFree() {
+        listeningSession.start();
+        btnVoiceCommand.setEnabled(false);
+        if (!isListening) {
+            startListening();
+        }
+        Log.d(TAG, "Hands-free listening started");
+    }
+
+    private void stopHandsFree() {
+        voiceHandler.removeCallbacks(rearmRunnable);
+        Log.d(TAG, String.format(Locale.US,
+                "Hands-free listening stopped, duty cycle %.0f%%, re-arm average %d ms, max %d ms over %d re-arms",
+                listeningSession.getDutyCycle() * 100, listeningSession.getAverageRearmNs() / 1_000_000,
+                listeningSession.getMaxRearmNs() / 1_000_000, listeningSession.getRearms()));
+        listeningSession.stop();
+        if (isListening) {
+            stopListening();
+        }
+        btnVoiceCommand.setEnabled(true);
+        if (switchHandsFree.isChecked()) {
+            switchHandsFree.setChecked(false);
+        }
+    }
+
+    /**
+     * Schedule the next hands-free listen after an error, or give up after repeated failures.
+     */
+    private void rearmAfterError(int kind) {
+        long delayMs = listeningSession.onError(kind);
+        if (delayMs < 0) {
+            showToast("Hands-free listening stopped");
+            stopHandsFree();
+            return;
+        }
+        if (kind == VoiceListeningSession.ERROR_TRANSIENT) {
+            // A busy recognizer has to be cancelled before it accepts a new session
+            speechRecognizer.cancel();
+        }
+        voiceHandler.postDelayed(rearmRunnable, delayMs);
+    }
+
     private class VoiceRecognitionListener implements RecognitionListener {
         @Override
         public void onReadyForSpeech(Bundle params) {
             // Ready to receive speech
+            listeningSession.onReady();
         }
 
         @Override
@@ -223,6 +323,7 @@ public class MainActivity extends AppCompatActivity {
         @Override
         public void onEndOfSpeech() {
             // User stopped speaking
+            voiceCommandGate.onEndOfSpeech(SystemClock.elapsedRealtimeNanos());
             btnVoiceCommand.setText("🎤 Voice Command");
             isListening = false;
         }
@@ -264,23 +365,60 @@ public class MainActivity extends AppCompatActivity {
                     break;
             }
             Log.e(TAG, "Speech recognition error: " + errorMessage);
-            Toast.makeText(MainActivity.this, errorMessage, Toast.LENGTH_SHORT).show();
             btnVoiceCommand.setText("🎤 Voice Command");
             isListening = false;
+
+            if (listeningSession.isActive()) {
+                // Silence is normal when hands-free, no toast for it
+                if (error == SpeechRecognizer.ERROR_NO_MATCH || error == SpeechRecognizer.ERROR_SPEECH_TIMEOUT) {
+                    rearmAfterError(VoiceListeningSession.ERROR_NO_SPEECH);
+                } else if (error == SpeechRecognizer.ERROR_AUDIO
+                        || error == SpeechRecognizer.ERROR_INSUFFICIENT_PERMISSIONS) {
+                    Toast.makeText(MainActivity.this, errorMessage, Toast.LENGTH_SHORT).show();
+                    rearmAfterError(VoiceListeningSession.ERROR_FATAL);
+                } else {
+                    rearmAfterError(VoiceListeningSession.ERROR_TRANSIENT);
+                }
+                return;
+            }
+            Toast.makeText(MainActivity.this, errorMessage, Toast.LENGTH_SHORT).show();
         }
 
         @Override
         public void onResults(Bundle results) {
             ArrayList<String> matches = results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
             if (matches != null && !matches.isEmpty()) {
-                String command = matches.get(0).toLowerCase();
-                processVoiceCommand(command);
+                float[] scores = results.getFloatArray(SpeechRecognizer.CONFIDENCE_SCORES);
+                processVoiceCommand(matches, scores);
+            }
+            if (voiceCommandGate.isLatencyMeasured()) {
+                Log.d(TAG, "Voice latency, end of speech to command sent: "
+                        + (voiceCommandGate.getLastLatencyNs() / 1_000_000) + " ms, average "
+                        + (voiceCommandGate.getAverageLatencyNs() / 1_000_000) + " ms");
+            }
+
+            btnVoiceCommand.setText("🎤 Voice Command");
+            isListening = false;
+            if (listeningSession.isActive()) {
+                listeningSession.onResult();
+                voiceHandler.post(rearmRunnable);
             }
         }
 
         @Override
         public void onPartialResults(Bundle partialResults) {
-            // Partial recognition results
+            // Only safety commands act on partial results
+            ArrayList<String> matches = partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
+            if (matches == null || matches.isEmpty()) return;
+
+            String text = matches.get(0);
+            // "stop in two seconds" is left to the final result
+            if (VoiceGrammar.isDelayedStop(text)) return;
+            VoiceCommandMatcher.Phrase match = voiceCommandGate.onPartialResult(text);
+            if (match != null) {
+                Log.d(TAG, "Early voice command from partial result: " + text);
+                executeVoiceCommand(match.command);
+            }
         }
 
         @Override
@@ -289,62 +427,98 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void processVoiceCommand(String command) {
-        Log.d(TAG, "Processing voice command: " + command);
+    private void processVoiceCommand(List<String> hypotheses, float[] scores) {
+        Log.d(TAG, "Processing voice command hypotheses: " + hypotheses);
+
+        // Compound and parametric commands first, "speed three forward" and the like
+        for (String hypothesis : hypotheses) {
+            VoiceGrammar.Batch batch = VoiceGrammar.parse(hypothesis);
+            if (batch != null && batch.isCompound()) {
+                Toast.makeText(this, "Command: " + hypothesis, Toast.LENGTH_SHORT).show();
+                executeVoiceBatch(batch);
+                return;
+            }
+        }
+
+        // Every hypothesis, exact phrase first, otherwise the closest by spelling and sound
+        VoiceCommandMatcher.Phrase match = voiceCommandGate.resolve(hypotheses, scores);
+        String command = hypotheses.get(Math.max(voiceCommandGate.getLastHypothesis(), 0));
 
         // Display the recognized command to the user
         Toast.makeText(this, "Command: " + command, Toast.LENGTH_SHORT).show();
 
-        // Try direct match first
-        if (voiceCommandMap.containsKey(command)) {
-            String mappedCommand = voiceCommandMap.get(command);
-
-            // Handle speed commands locally
-            if (mappedCommand.equals("SPEED_UP")) {
-                increaseSpeed();
-                return;
-            } else if (mappedCommand.equals("SPEED_DOWN")) {
-                decreaseSpeed();
-                return;
-            } else if (mappedCommand.equals("SPEED_LOW")) {
-                setSpeed(1);
-                return;
-            } else if (mappedCommand.equals("SPEED_HIGH")) {
-                setSpeed(3);
+        if (match != null) {
+            if (voiceCommandGate.isSentEarly(match)) {
+                Log.d(TAG, "Voice command already sent from a partial result: " + match.command);
                 return;
             }
-
-            sendCommand(mappedCommand);
+            if (voiceCommandGate.getLastConfidence() < 1f || voiceCommandGate.getLastHypothesis() > 0) {
+                Log.d(TAG, "Voice command \"" + command + "\" (hypothesis " + voiceCommandGate.getLastHypothesis()
+                        + ") heard as \"" + match.text + "\", confidence " + voiceCommandGate.getLastConfidence());
+            }
+            executeVoiceCommand(match.command);
             return;
         }
 
-        // If no direct match, try to find a partial match
-        for (Map.Entry<String, String> entry : voiceCommandMap.entrySet()) {
-            if (command.contains(entry.getKey())) {
-                String mappedCommand = entry.getValue();
-
-                // Handle speed commands locally
-                if (mappedCommand.equals("SPEED_UP")) {
-                    increaseSpeed();
-                    return;
-                } else if (mappedCommand.equals("SPEED_DOWN")) {
-                    decreaseSpeed();
-                    return;
-                } else if (mappedCommand.equals("SPEED_LOW")) {
-                    setSpeed(1);
-                    return;
-                } else if (mappedCommand.equals("SPEED_HIGH")) {
-                    setSpeed(3);
-                    return;
-                }
+        // If no match found
+        Toast.makeText(this, "Command not recognized: " + command, Toast.LENGTH_SHORT).show();
+    }
 
-                sendCommand(mappedCommand);
-                return;
+    private void executeVoiceCommand(String mappedCommand) {
+        // Handle speed commands locally
+        if (mappedCommand.equals("SPEED_UP")) {
+            increaseSpeed();
+        } else if (mappedCommand.equals("SPEED_DOWN")) {
+            decreaseSpeed();
+        } else if (mappedCommand.equals("SPEED_LOW")) {
+            setSpeed(1);
+        } else if (mappedCommand.equals("SPEED_HIGH")) {
+            setSpeed(3);
+        } else {
+            sendMotionCommand(mappedCommand);
+        }
+
+        // Writes are synchronous, so a connected link means the bytes are out
+        if (bluetoothHelper != null && bluetoothHelper.isConnected()) {
+            voiceCommandGate.onCommandSent(SystemClock.elapsedRealtimeNanos());
+        }
+    }
+
+    private void executeVoiceBatch(VoiceGrammar.Batch batch) {
+        // Speed first, so a start from rest ramps straight to it
+        if (batch.speed > 0) {
+            setSpeed(batch.speed);
+        }
+        if (batch.motion != null) {
+            sendMotionCommand(batch.motion);
+            if (bluetoothHelper != null && bluetoothHelper.isConnected()) {
+                voiceCommandGate.onCommandSent(SystemClock.elapsedRealtimeNanos());
             }
         }
 
-        // If no match found
-        Toast.makeText(this, "Command not recognized: " + command, Toast.LENGTH_SHORT).show();
+        if (batch.stopDelayMs >= 0) {
+            voiceHandler.removeCallbacks(delayedStopRunnable);
+            voiceHandler.postDelayed(delayedStopRunnable, batch.stopDelayMs);
+            showToast("Stopping in " + (batch.stopDelayMs / 1000) + " s");
+        }
+
+        // Joint targets move the harvesting arm smoothly, through the arm screen's streamer
+        if (batch.getArmCommands().length > 0) {
+            HarvestingBluetoothHelper arm = HarvestingBluetoothHelper.getConnectedInstance();
+            ArmMotionStreamer streamer = arm == null ? null : arm.getMotionStreamer();
+            if (arm == null) {
+                showToast("Harvesting arm not connected");
+            } else if (streamer == null) {
+                showToast("Open the harvesting arm screen to move joints");
+            } else {
+                float[] target = new float[TrajectoryPlanner.JOINT_COUNT];
+                streamer.getCurrentPose(target);
+                for (int i = 0; i < target.length; i++) {
+                    if (batch.jointAngles[i] >= 0) target[i] = batch.jointAngles[i];
+                }
+                streamer.moveTo(target, voiceHandler, null);
+            }
+        }
     }
 
     private void showAvailableDevices() {
@@ -410,13 +584,29 @@ public class MainActivity extends AppCompatActivity {
 
     private void setupControlButtons() {
         // Climbing controls
-        findViewById(R.id.btnClimbForward).setOnClickListener(v -> sendCommand("FORWARD*"));
-        findViewById(R.id.btnClimbReverse).setOnClickListener(v -> sendCommand("REVERSE*"));
-        findViewById(R.id.btnClimbStop).setOnClickListener(v -> sendCommand("STOP*"));
+        // Hold to drive, release to stop
+        setHoldToDrive(findViewById(R.id.btnClimbForward), "FORWARD*");
+        setHoldToDrive(findViewById(R.id.btnClimbReverse), "REVERSE*");
+        findViewById(R.id.btnClimbStop).setOnClickListener(v -> sendMotionCommand("STOP*"));
 
         // Speed controls
         btnSpeedUp.setOnClickListener(v -> increaseSpeed());
         btnSpeedDown.setOnClickListener(v -> decreaseSpeed());
+        seekSpeed.setProgress(speedPercent);
+        seekSpeed.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (fromUser) {
+                    setSpeedPercent(progress);
+                }
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {}
+        });
 
         // Harvesting button - navigate to harvesting activity
         btnHarvesting.setOnClickListener(v -> {
@@ -427,52 +617,74 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void increaseSpeed() {
-        if (currentSpeed < 3) {
-            currentSpeed++;
-            updateSpeedDisplay();
-            sendSpeedCommand();
-        }
+        setSpeedPercent(speedPercent + SPEED_STEP_PERCENT);
     }
 
     private void decreaseSpeed() {
-        if (currentSpeed > 1) {
-            currentSpeed--;
-            updateSpeedDisplay();
-            sendSpeedCommand();
-        }
+        setSpeedPercent(speedPercent - SPEED_STEP_PERCENT);
     }
 
     private void setSpeed(int speed) {
         if (speed >= 1 && speed <= 3) {
-            currentSpeed = speed;
-            updateSpeedDisplay();
-            sendSpeedCommand();
+            setSpeedPercent(SPEED_LEVEL_PERCENT[speed - 1]);
         }
     }
 
-    private void updateSpeedDisplay() {
-        tvSpeedStatus.setText("Speed: " + speedLabels[currentSpeed - 1]);
+    private void setSpeedPercent(int percent) {
+        speedPercent = Math.max(MIN_SPEED_PERCENT, Math.min(100, percent));
+        updateSpeedDisplay();
+        if (seekSpeed.getProgress() != speedPercent) {
+            seekSpeed.setProgress(speedPercent);
+        }
+        speedRampStreamer.setTarget(speedPercent);
     }
 
-    private void sendSpeedCommand() {
-        String speedCommand = "SPEED_" + currentSpeed + "*";
-        sendCommand(speedCommand);
+    private void updateSpeedDisplay() {
+        int level = speedPercent <= SPEED_LEVEL_PERCENT[0] ? 0 : speedPercent <= SPEED_LEVEL_PERCENT[1] ? 1 : 2;
+        tvSpeedStatus.setText("Speed: " + speedLabels[level] + " (" + speedPercent + "%)");
     }
 
-    private void sendCommand(String command) {
-        if (bluetoothHelper != null && bluetoothHelper.isConnected()) {
-            try {
-                bluetoothHelper.sendCommand(command);
-                Log.d(TAG, "Command sent: " + command);
-            } catch (Exception e) {
-                Log.e(TAG, "Error sending command: " + e.getMessage());
-                showToast("Error sending command");
-            }
+    /**
+     * Motion goes through the speed ramp, which keeps FORWARD* / REVERSE* alive until STOP*.
+     */
+    private void sendMotionCommand(String motion) {
+        boolean connected = bluetoothHelper != null && bluetoothHelper.isConnected();
+        if (motion.equals("STOP*")) {
+            // Always clear the drive state, even if the link is already gone
+            speedRampStreamer.stop();
+        } else if (connected) {
+            speedRampStreamer.startMotion(motion);
+        }
+        if (connected) {
+            Log.d(TAG, "Command sent: " + motion);
         } else {
             showToast("Not connected to device");
         }
     }
 
+    /**
+     * Drive while the button is held, STOP* as soon as it is released.
+     */
+    private void setHoldToDrive(Button button, String motion) {
+        button.setOnTouchListener((v, event) -> {
+            switch (event.getAction()) {
+                case MotionEvent.ACTION_DOWN:
+                    sendMotionCommand(motion);
+                    return true;
+                case MotionEvent.ACTION_UP:
+                    sendMotionCommand("STOP*");
+                    speedRampStreamer.logKeepAliveStats();
+                    v.performClick();
+                    return true;
+                case MotionEvent.ACTION_CANCEL:
+                    sendMotionCommand("STOP*");
+                    return true;
+                default:
+                    return false;
+            }
+        });
+    }
+
     private void showToast(String message) {
         Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
     }
@@ -498,10 +710,23 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (resumeHandsFree) {
+            resumeHandsFree = false;
+            switchHandsFree.setChecked(true);
+        }
+    }
+
     @Override
     protected void onPause() {
         super.onPause();
-        if (speechRecognizer != null && isListening) {
+        if (listeningSession.isActive()) {
+            // Otherwise results and errors keep re-arming the microphone in the background
+            resumeHandsFree = true;
+            stopHandsFree();
+        } else if (speechRecognizer != null && isListening) {
             speechRecognizer.stopListening();
             isListening = false;
             btnVoiceCommand.setText("🎤 Voice Command");
@@ -511,6 +736,12 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        voiceHandler.removeCallbacks(rearmRunnable);
+        voiceHandler.removeCallbacks(delayedStopRunnable);
+        listeningSession.stop();
+        if (speedRampStreamer != null) {
+            speedRampStreamer.release();
+        }
         if (bluetoothHelper != null) {
             bluetoothHelper.disconnect();
         }
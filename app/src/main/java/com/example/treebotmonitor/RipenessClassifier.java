@@ -0,0 +1,369 @@
+package com.example.treebotmonitor;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Small int8-quantized classifier deciding whether a detected fruit is ripe.
+ *
+ * Each crop is reduced to an 8x8 grid of average Y, U and V values (192 inputs) and run
+ * through a two-layer network with int8 weights and int32 accumulators on the CPU. All
+ * crops of a frame are queued with {@link #addCrop} and evaluated together by
+ * {@link #runBatch()}, which walks each weight row once for the whole batch. Input, hidden
+ * and output tensors are allocated up front, so classification does not allocate.
+ *
+ * The model is trained offline on synthetic fruit by {@link #main} and shipped as an asset.
+ * File layout, little endian: magic, version, inputs, hidden (ints), hidden requantization
+ * multiplier and output scale (floats), then hidden * inputs int8 weights, hidden int32
+ * biases, hidden int8 output weights and one int32 output bias.
+ */
+public class RipenessClassifier {
+
+    public static final String ASSET_NAME = "ripeness.rqnn";
+    public static final int MAX_BATCH = 8;
+    public static final float RIPE_THRESHOLD = 0.5f;
+
+    private static final int MAGIC = 0x52495045; // "RIPE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 6 * 4;
+    private static final int GRID = 8;
+    private static final int INPUTS = GRID * GRID * 3;
+    private static final int HIDDEN = 16;
+
+    // Quantized model
+    private final byte[] hiddenWeights = new byte[HIDDEN * INPUTS];
+    private final int[] hiddenBias = new int[HIDDEN];
+    private final byte[] outputWeights = new byte[HIDDEN];
+    private final int outputBias;
+    private final float hiddenMultiplier;  // Accumulator to int8 hidden activation
+    private final float outputScale;       // Accumulator to logit
+
+    // Preallocated tensors for one batch
+    private final byte[] input = new byte[MAX_BATCH * INPUTS];
+    private final byte[] hidden = new byte[MAX_BATCH * HIDDEN];
+    private final int[] accumulator = new int[MAX_BATCH];
+    private final float[] ripeProbability = new float[MAX_BATCH];
+    private int batchSize = 0;
+    private long lastBatchNs = 0;
+
+    public RipenessClassifier(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a ripeness model");
+        }
+        if (buffer.getInt(8) != INPUTS || buffer.getInt(12) != HIDDEN) {
+            throw new IOException("Unsupported ripeness model shape");
+        }
+        int expected = HEADER_SIZE + HIDDEN * INPUTS + HIDDEN * 4 + HIDDEN + 4;
+        if (buffer.capacity() < expected) {
+            throw new IOException("Ripeness model truncated");
+        }
+
+        hiddenMultiplier = buffer.getFloat(16);
+        outputScale = buffer.getFloat(20);
+        buffer.position(HEADER_SIZE);
+        buffer.get(hiddenWeights);
+        for (int i = 0; i < HIDDEN; i++) {
+            hiddenBias[i] = buffer.getInt();
+        }
+        buffer.get(outputWeights);
+        outputBias = buffer.getInt();
+    }
+
+    /**
+     * Start a new batch, dropping the previous results.
+     */
+    public void beginBatch() {
+        batchSize = 0;
+    }
+
+    /**
+     * Queue the crop of a fruit, in full-frame pixels with {@code right} and {@code bottom}
+     * inclusive like {@link FruitDetector.Blob}.
+     *
+     * @return false if the batch is already full
+     */
+    public boolean addCrop(CameraFrame frame, int left, int top, int right, int bottom) {
+        if (batchSize == MAX_BATCH) return false;
+
+        left = Math.max(0, Math.min(left, frame.width - 2)) & ~1;
+        top = Math.max(0, Math.min(top, frame.height - 2)) & ~1;
+        right = Math.max(left + 1, Math.min(right, frame.width - 1));
+        bottom = Math.max(top + 1, Math.min(bottom, frame.height - 1));
+        int cropWidth = right - left + 1;
+        int cropHeight = bottom - top + 1;
+        int chromaWidth = frame.width / 2;
+
+        int offset = batchSize * INPUTS;
+        for (int gy = 0; gy < GRID; gy++) {
+            int y0 = top + gy * cropHeight / GRID;
+            int y1 = Math.max(y0 + 2, top + (gy + 1) * cropHeight / GRID);
+            for (int gx = 0; gx < GRID; gx++) {
+                int x0 = left + gx * cropWidth / GRID;
+                int x1 = Math.max(x0 + 2, left + (gx + 1) * cropWidth / GRID);
+
+                // Average over the cell at chroma resolution
+                int sumY = 0, sumU = 0, sumV = 0, samples = 0;
+                for (int y = y0 & ~1; y < y1 && y < frame.height; y += 2) {
+                    int lumaRow = y * frame.width;
+                    int chromaRow = (y / 2) * chromaWidth;
+                    for (int x = x0 & ~1; x < x1 && x < frame.width; x += 2) {
+                        sumY += frame.y[lumaRow + x] & 0xFF;
+                        sumU += frame.u[chromaRow + x / 2] & 0xFF;
+                        sumV += frame.v[chromaRow + x / 2] & 0xFF;
+                        samples++;
+                    }
+                }
+                if (samples == 0) samples = 1;
+
+                // Symmetric int8 input, real value (v - 128) / 128
+                int cell = offset + (gy * GRID + gx) * 3;
+                input[cell] = (byte) (sumY / samples - 128);
+                input[cell + 1] = (byte) (sumU / samples - 128);
+                input[cell + 2] = (byte) (sumV / samples - 128);
+            }
+        }
+        batchSize++;
+        return true;
+    }
+
+    /**
+     * Classify every queued crop in one pass.
+     *
+     * @return number of crops classified, read them with {@link #isRipe(int)}
+     */
+    public int runBatch() {
+        long startNs = System.nanoTime();
+        int batch = batchSize;
+
+        // Hidden layer: each weight row is read once and applied to the whole batch
+        for (int n = 0; n < HIDDEN; n++) {
+            int rowOffset = n * INPUTS;
+            for (int b = 0; b < batch; b++) {
+                accumulator[b] = hiddenBias[n];
+            }
+            for (int i = 0; i < INPUTS; i++) {
+                int w = hiddenWeights[rowOffset + i];
+                if (w == 0) continue;
+                for (int b = 0; b < batch; b++) {
+                    accumulator[b] += w * input[b * INPUTS + i];
+                }
+            }
+            for (int b = 0; b < batch; b++) {
+                // ReLU, then requantize to int8
+                int q = Math.round(accumulator[b] * hiddenMultiplier);
+                hidden[b * HIDDEN + n] = (byte) Math.max(0, Math.min(127, q));
+            }
+        }
+
+        // Output logit
+        for (int b = 0; b < batch; b++) {
+            int acc = outputBias;
+            int hiddenOffset = b * HIDDEN;
+            for (int n = 0; n < HIDDEN; n++) {
+                acc += outputWeights[n] * hidden[hiddenOffset + n];
+            }
+            ripeProbability[b] = 1f / (1f + (float) Math.exp(-acc * outputScale));
+        }
+
+        lastBatchNs = System.nanoTime() - startNs;
+        return batch;
+    }
+
+    public float getRipeProbability(int index) {
+        return ripeProbability[index];
+    }
+
+    public boolean isRipe(int index) {
+        return ripeProbability[index] >= RIPE_THRESHOLD;
+    }
+
+    /**
+     * Inference time of the last batch in nanoseconds, feature extraction excluded.
+     */
+    public long getLastBatchNs() {
+        return lastBatchNs;
+    }
+
+    /**
+     * Train the model on synthetic fruit crops and write it quantized to {@code output}.
+     */
+    public static void train(long seed, OutputStream output) throws IOException {
+        Random random = new Random(seed);
+        int samples = 4000;
+        float[][] features = new float[samples][INPUTS];
+        float[] labels = new float[samples];
+
+        // Render synthetic crops and extract features exactly like addCrop does
+        CameraFrame frame = new CameraFrame.Pool(1, 64, 64).acquire();
+        RipenessClassifier extractor = new RipenessClassifier();
+        for (int s = 0; s < samples; s++) {
+            boolean ripe = (s & 1) == 0;
+            renderFruit(frame, ripe, random);
+            extractor.beginBatch();
+            extractor.addCrop(frame, 0, 0, 63, 63);
+            for (int i = 0; i < INPUTS; i++) {
+                features[s][i] = extractor.input[i] / 128f;
+            }
+            labels[s] = ripe ? 1f : 0f;
+        }
+
+        // Float MLP with logistic output, plain SGD
+        float[][] w1 = new float[HIDDEN][INPUTS];
+        float[] b1 = new float[HIDDEN];
+        float[] w2 = new float[HIDDEN];
+        float b2 = 0f;
+        for (float[] row : w1) {
+            for (int i = 0; i < INPUTS; i++) {
+                row[i] = (float) random.nextGaussian() * 0.05f;
+            }
+        }
+        for (int n = 0; n < HIDDEN; n++) {
+            w2[n] = (float) random.nextGaussian() * 0.3f;
+        }
+
+        float learningRate = 0.02f;
+        float[] h = new float[HIDDEN];
+        for (int epoch = 0; epoch < 30; epoch++) {
+            for (int s = 0; s < samples; s++) {
+                float[] x = features[s];
+                float logit = b2;
+                for (int n = 0; n < HIDDEN; n++) {
+                    float a = b1[n];
+                    for (int i = 0; i < INPUTS; i++) {
+                        a += w1[n][i] * x[i];
+                    }
+                    h[n] = Math.max(0f, a);
+                    logit += w2[n] * h[n];
+                }
+                float error = 1f / (1f + (float) Math.exp(-logit)) - labels[s];
+
+                for (int n = 0; n < HIDDEN; n++) {
+                    float gradHidden = h[n] > 0f ? error * w2[n] : 0f;
+                    w2[n] -= learningRate * error * h[n];
+                    b1[n] -= learningRate * gradHidden;
+                    for (int i = 0; i < INPUTS; i++) {
+                        w1[n][i] -= learningRate * gradHidden * x[i];
+                    }
+                }
+                b2 -= learningRate * error;
+            }
+        }
+
+        // Symmetric per-tensor quantization, hidden range calibrated on the training set
+        float inputScale = 1f / 128f;
+        float w1Scale = maxAbs(w1) / 127f;
+        float hiddenMax = 0f;
+        for (int s = 0; s < samples; s++) {
+            for (int n = 0; n < HIDDEN; n++) {
+                float a = b1[n];
+                for (int i = 0; i < INPUTS; i++) {
+                    a += w1[n][i] * features[s][i];
+                }
+                hiddenMax = Math.max(hiddenMax, a);
+            }
+        }
+        float hiddenScale = hiddenMax / 127f;
+        float w2Scale = maxAbs(new float[][]{w2}) / 127f;
+
+        ByteBuffer model = ByteBuffer.allocate(HEADER_SIZE + HIDDEN * INPUTS + HIDDEN * 4 + HIDDEN + 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        model.putInt(MAGIC).putInt(VERSION).putInt(INPUTS).putInt(HIDDEN);
+        model.putFloat(inputScale * w1Scale / hiddenScale).putFloat(hiddenScale * w2Scale);
+        for (int n = 0; n < HIDDEN; n++) {
+            for (int i = 0; i < INPUTS; i++) {
+                model.put((byte) Math.round(w1[n][i] / w1Scale));
+            }
+        }
+        for (int n = 0; n < HIDDEN; n++) {
+            model.putInt(Math.round(b1[n] / (inputScale * w1Scale)));
+        }
+        for (int n = 0; n < HIDDEN; n++) {
+            model.put((byte) Math.round(w2[n] / w2Scale));
+        }
+        model.putInt(Math.round(b2 / (hiddenScale * w2Scale)));
+        output.write(model.array());
+    }
+
+    /**
+     * Feature extractor only, used while training.
+     */
+    private RipenessClassifier() {
+        outputBias = 0;
+        hiddenMultiplier = 0f;
+        outputScale = 0f;
+    }
+
+    /**
+     * Draw one fruit over foliage. Ripe fruit is red to orange with at most a green patch,
+     * unripe fruit is green to yellow-green with at most a red blush.
+     */
+    static void renderFruit(CameraFrame frame, boolean ripe, Random random) {
+        int size = frame.width;
+        int chromaSize = size / 2;
+        float radius = size * (0.35f + random.nextFloat() * 0.15f);
+        float cx = size / 2f + (random.nextFloat() - 0.5f) * size * 0.2f;
+        float cy = size / 2f + (random.nextFloat() - 0.5f) * size * 0.2f;
+        int brightness = 70 + random.nextInt(120);
+
+        int mainU = ripe ? 85 + random.nextInt(35) : 80 + random.nextInt(45);
+        int mainV = ripe ? 160 + random.nextInt(60) : 95 + random.nextInt(50);
+        int patchU = ripe ? 90 + random.nextInt(30) : 95 + random.nextInt(20);
+        int patchV = ripe ? 100 + random.nextInt(40) : 160 + random.nextInt(40);
+        float patchAngle = random.nextFloat() * 6.283f;
+        float patchSize = random.nextFloat() * 0.6f; // Fraction of the fruit, under a third
+
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                float dx = x - cx, dy = y - cy;
+                boolean inside = dx * dx + dy * dy < radius * radius;
+                int luma = inside ? brightness - (int) (30 * (dx * dx + dy * dy) / (radius * radius))
+                        : 50 + random.nextInt(80);
+                frame.y[y * size + x] = (byte) Math.max(0, Math.min(255, luma + random.nextInt(11) - 5));
+            }
+        }
+        for (int y = 0; y < chromaSize; y++) {
+            for (int x = 0; x < chromaSize; x++) {
+                float dx = x * 2 - cx, dy = y * 2 - cy;
+                int u, v;
+                if (dx * dx + dy * dy < radius * radius) {
+                    // Patch covers the side of the fruit facing patchAngle
+                    float along = (dx * (float) Math.cos(patchAngle) + dy * (float) Math.sin(patchAngle)) / radius;
+                    boolean patch = along > 1f - patchSize;
+                    u = patch ? patchU : mainU;
+                    v = patch ? patchV : mainV;
+                } else {
+                    // Foliage
+                    u = 95 + random.nextInt(30);
+                    v = 95 + random.nextInt(30);
+                }
+                frame.u[y * chromaSize + x] = (byte) (u + random.nextInt(7) - 3);
+                frame.v[y * chromaSize + x] = (byte) (v + random.nextInt(7) - 3);
+            }
+        }
+    }
+
+    private static float maxAbs(float[][] values) {
+        float max = 1e-6f;
+        for (float[] row : values) {
+            for (float value : row) {
+                max = Math.max(max, Math.abs(value));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Regenerate the shipped asset: {@code java RipenessClassifier app/src/main/assets/ripeness.rqnn}
+     */
+    public static void main(String[] args) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(args[0]))) {
+            train(1, output);
+        }
+    }
+}
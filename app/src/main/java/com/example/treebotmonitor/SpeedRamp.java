@@ -0,0 +1,77 @@
+package com.example.treebotmonitor;
+
+/**
+ * Acceleration-limited ramp from the current climbing speed to a target speed.
+ *
+ * Speeds are percentages of full speed. Each {@link #step} moves the output towards the
+ * target by at most {@code acceleration * dt}, so a speed change is spread over time
+ * instead of jolting the climber.
+ */
+public class SpeedRamp {
+
+    private float acceleration;
+    private float target = 0f;
+    private float output = 0f;
+
+    /**
+     * @param acceleration maximum speed change in percent per second
+     */
+    public SpeedRamp(float acceleration) {
+        setAcceleration(acceleration);
+    }
+
+    public void setAcceleration(float acceleration) {
+        if (acceleration <= 0f) {
+            throw new IllegalArgumentException("Acceleration must be positive: " + acceleration);
+        }
+        this.acceleration = acceleration;
+    }
+
+    public float getAcceleration() {
+        return acceleration;
+    }
+
+    public void setTarget(float percent) {
+        target = Math.max(0f, Math.min(100f, percent));
+    }
+
+    public float getTarget() {
+        return target;
+    }
+
+    /**
+     * Jump the output to {@code percent}, e.g. to 0 when the climber starts from rest.
+     */
+    public void reset(float percent) {
+        output = Math.max(0f, Math.min(100f, percent));
+    }
+
+    /**
+     * Advance the ramp by {@code dt} seconds and return the new output.
+     */
+    public float step(float dt) {
+        float maxChange = acceleration * dt;
+        float error = target - output;
+        if (Math.abs(error) <= maxChange) {
+            output = target;
+        } else {
+            output += Math.signum(error) * maxChange;
+        }
+        return output;
+    }
+
+    public float getOutput() {
+        return output;
+    }
+
+    public boolean isSettled() {
+        return output == target;
+    }
+
+    /**
+     * Time in seconds for the output to reach the target from where it is now.
+     */
+    public float getTimeToTarget() {
+        return Math.abs(target - output) / acceleration;
+    }
+}
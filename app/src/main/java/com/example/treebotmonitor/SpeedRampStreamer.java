@@ -0,0 +1,203 @@
+package com.example.treebotmonitor;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Drives the climber: ramped speed setpoints plus a deadman keep-alive.
+ *
+ * While the climber moves, each tick advances the {@link SpeedRamp} and sends
+ * "SPEED_P&lt;percent&gt;*" whenever the whole-percent setpoint changed. Starting from rest,
+ * or reversing, sends "SPEED_P0*" with the motion command in one write and ramps up
+ * from there.
+ *
+ * The motion command itself is repeated at least every {@link #KEEPALIVE_PERIOD_MS} for as
+ * long as the climber should move. The climber stops by itself if no drive command arrives
+ * within {@link #DEADMAN_TIMEOUT_MS}, so a dropped link or a crashed app halts it.
+ * Every write is made under one lock, so no keep-alive can follow a STOP*.
+ *
+ * Both rates follow the link's {@link LinkEstimator}: a good link gets setpoints at
+ * {@link #RAMP_RATE_HZ} and keep-alives twice as often, a slow one is not sent more than
+ * it can carry.
+ */
+public class SpeedRampStreamer {
+    private static final String TAG = "SpeedRampStreamer";
+
+    public static final int RAMP_RATE_HZ = 20;
+    private static final long MIN_RAMP_PERIOD_MS = 1000 / RAMP_RATE_HZ;
+    private static final long MAX_RAMP_PERIOD_MS = 200;
+    public static final long KEEPALIVE_PERIOD_MS = 200;
+    private static final long MIN_KEEPALIVE_PERIOD_MS = KEEPALIVE_PERIOD_MS / 2;
+    public static final long DEADMAN_TIMEOUT_MS = 3 * KEEPALIVE_PERIOD_MS;
+    // Longest setpoint, "SPEED_P100*"
+    private static final int SETPOINT_BYTES = 11;
+
+    private final BluetoothHelper bluetoothHelper;
+    private final HandlerThread streamThread;
+    private final Handler streamHandler;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private final SpeedRamp ramp;
+    private final KeepAliveStats keepAliveStats = new KeepAliveStats(DEADMAN_TIMEOUT_MS);
+    private String currentMotion = null;
+    private int sentPercent = -1;
+    private long lastTickTime;
+    private long lastMotionTime;
+
+    private volatile long sentCommands = 0;
+
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long delay;
+            synchronized (lock) {
+                if (currentMotion == null) return;
+
+                long now = SystemClock.uptimeMillis();
+                ramp.step((now - lastTickTime) / 1000f);
+                lastTickTime = now;
+                sendSetpoint();
+
+                LinkEstimator link = bluetoothHelper.getLinkEstimator();
+                long keepAlivePeriod = link.getSendIntervalMs(currentMotion.length(),
+                        MIN_KEEPALIVE_PERIOD_MS, KEEPALIVE_PERIOD_MS);
+                long keepAliveDue = lastMotionTime + keepAlivePeriod;
+                if (now >= keepAliveDue) {
+                    sendMotion(now, "");
+                    keepAliveDue = now + keepAlivePeriod;
+                }
+
+                // Ramp rate while the speed changes, otherwise just the keep-alive
+                delay = keepAliveDue - now;
+                if (!ramp.isSettled()) {
+                    delay = Math.min(delay, link.getSendIntervalMs(SETPOINT_BYTES,
+                            MIN_RAMP_PERIOD_MS, MAX_RAMP_PERIOD_MS));
+                }
+            }
+            streamHandler.postDelayed(this, delay);
+        }
+    };
+
+    /**
+     * @param acceleration maximum speed change in percent per second
+     */
+    public SpeedRampStreamer(BluetoothHelper bluetoothHelper, float acceleration) {
+        this.bluetoothHelper = bluetoothHelper;
+        ramp = new SpeedRamp(acceleration);
+        streamThread = new HandlerThread("SpeedRampStreamer");
+        streamThread.start();
+        streamHandler = new Handler(streamThread.getLooper());
+    }
+
+    public void setAcceleration(float acceleration) {
+        synchronized (lock) {
+            ramp.setAcceleration(acceleration);
+        }
+    }
+
+    /**
+     * New speed setpoint. Ramped to while moving, used as the cruise speed for the next start otherwise.
+     */
+    public void setTarget(int percent) {
+        synchronized (lock) {
+            ramp.setTarget(percent);
+        }
+        restartTicks();
+    }
+
+    /**
+     * Start or continue a motion ("FORWARD*", "REVERSE*") and keep it alive until {@link #stop}.
+     */
+    public void startMotion(String motion) {
+        synchronized (lock) {
+            long now = SystemClock.uptimeMillis();
+            if (motion.equals(currentMotion)) {
+                sendMotion(now, "");
+            } else {
+                // From rest or reversing: start at zero and ramp up, speed and motion in one write
+                currentMotion = motion;
+                ramp.reset(0f);
+                sentPercent = 0;
+                lastTickTime = now;
+                sendMotion(now, "SPEED_P0*");
+            }
+        }
+        restartTicks();
+    }
+
+    /**
+     * Send STOP* now and end the keep-alive stream.
+     */
+    public void stop() {
+        synchronized (lock) {
+            currentMotion = null;
+            send("STOP*");
+            keepAliveStats.endStream();
+        }
+        streamHandler.removeCallbacks(tickRunnable);
+    }
+
+    public boolean isMoving() {
+        synchronized (lock) {
+            return currentMotion != null;
+        }
+    }
+
+    public long getSentCommands() {
+        return sentCommands;
+    }
+
+    /**
+     * Log keep-alive rate, largest gap against the deadman timeout and link cost.
+     */
+    public void logKeepAliveStats() {
+        synchronized (lock) {
+            Log.d(TAG, String.format(Locale.US,
+                    "Keep-alive %.1f Hz, max gap %d ms of %d ms deadman (margin %d ms), %.0f B/s",
+                    keepAliveStats.getRateHz(), keepAliveStats.getMaxGapMs(), DEADMAN_TIMEOUT_MS,
+                    keepAliveStats.getBudgetMarginMs(), keepAliveStats.getBytesPerSecond()));
+        }
+    }
+
+    public void release() {
+        if (isMoving()) {
+            stop();
+        }
+        logKeepAliveStats();
+        streamThread.quitSafely();
+    }
+
+    private void restartTicks() {
+        streamHandler.removeCallbacks(tickRunnable);
+        streamHandler.post(tickRunnable);
+    }
+
+    private void sendSetpoint() {
+        int percent = Math.round(ramp.getOutput());
+        if (percent == sentPercent) return;
+        sentPercent = percent;
+        send("SPEED_P" + percent + "*");
+    }
+
+    private void sendMotion(long now, String prefix) {
+        String command = prefix + currentMotion;
+        if (send(command)) {
+            keepAliveStats.record(now, command.length());
+        }
+        lastMotionTime = now;
+    }
+
+    private boolean send(String command) {
+        if (!bluetoothHelper.isConnected()) {
+            return false;
+        }
+        bluetoothHelper.sendCommand(command);
+        sentCommands++;
+        return true;
+    }
+}
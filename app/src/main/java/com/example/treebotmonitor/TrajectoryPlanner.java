@@ -0,0 +1,152 @@
+package com.example.treebotmonitor;
+
+/**
+ * Time-parameterized joint trajectories for the harvesting arm.
+ *
+ * Every joint gets a trapezoidal velocity profile (accelerate, cruise, decelerate) limited
+ * by its own max velocity and acceleration. The slowest joint sets the move duration and
+ * the other joints are stretched to finish at the same moment, so the gripper follows a
+ * coordinated path instead of each servo snapping to its target on its own.
+ *
+ * Plain Java with no Android dependencies so it can be exercised on the JVM.
+ * Planning and sampling do not allocate.
+ */
+public class TrajectoryPlanner {
+
+    // Joint order matches the arm command prefixes A..F (base .. gripper)
+    public static final int JOINT_COUNT = 6;
+    public static final String[] JOINT_PREFIXES = {"A", "B", "C", "D", "E", "F"};
+    public static final float MIN_ANGLE = 0f;
+    public static final float MAX_ANGLE = 180f; // Same range as the manual control sliders
+
+    // Default servo limits in degrees per second and degrees per second squared
+    private static final float DEFAULT_MAX_VELOCITY = 120f;
+    private static final float DEFAULT_MAX_ACCELERATION = 360f;
+
+    private final float[] maxVelocity = new float[JOINT_COUNT];
+    private final float[] maxAcceleration = new float[JOINT_COUNT];
+
+    // Current plan, one profile per joint
+    private final float[] start = new float[JOINT_COUNT];
+    private final float[] distance = new float[JOINT_COUNT];     // Signed travel
+    private final float[] cruiseVelocity = new float[JOINT_COUNT];
+    private final float[] acceleration = new float[JOINT_COUNT];
+    private final float[] rampTime = new float[JOINT_COUNT];
+    private float duration = 0f;
+
+    public TrajectoryPlanner() {
+        for (int i = 0; i < JOINT_COUNT; i++) {
+            maxVelocity[i] = DEFAULT_MAX_VELOCITY;
+            maxAcceleration[i] = DEFAULT_MAX_ACCELERATION;
+        }
+    }
+
+    public void setJointLimits(int joint, float velocity, float accel) {
+        if (velocity <= 0f || accel <= 0f) {
+            throw new IllegalArgumentException("Joint limits must be positive");
+        }
+        maxVelocity[joint] = velocity;
+        maxAcceleration[joint] = accel;
+    }
+
+    /**
+     * Plan a synchronized move from one pose to another. Targets are clamped to the
+     * joint range. Returns the move duration in seconds.
+     */
+    public float plan(float[] from, float[] to) {
+        // Minimum time for each joint on its own, the slowest one sets the pace
+        duration = 0f;
+        for (int i = 0; i < JOINT_COUNT; i++) {
+            start[i] = clamp(from[i]);
+            distance[i] = clamp(to[i]) - start[i];
+            float t = minimumTime(Math.abs(distance[i]), maxVelocity[i], maxAcceleration[i]);
+            if (t > duration) {
+                duration = t;
+            }
+        }
+
+        // Stretch every joint to the common duration by lowering its cruise velocity
+        for (int i = 0; i < JOINT_COUNT; i++) {
+            float d = Math.abs(distance[i]);
+            if (d == 0f || duration == 0f) {
+                cruiseVelocity[i] = 0f;
+                acceleration[i] = 0f;
+                rampTime[i] = 0f;
+                continue;
+            }
+
+            float a = maxAcceleration[i];
+            // Peak velocity v of a trapezoid covering d in time T: d = v * (T - v / a)
+            float disc = a * a * duration * duration - 4f * a * d;
+            float v = (a * duration - (float) Math.sqrt(Math.max(disc, 0f))) / 2f;
+            if (v * duration < d) {
+                // Rounding on the slowest joint, fall back to a triangle over the full duration
+                v = 2f * d / duration;
+                a = 2f * v / duration;
+            }
+
+            cruiseVelocity[i] = v;
+            acceleration[i] = a;
+            rampTime[i] = v / a;
+        }
+        return duration;
+    }
+
+    /**
+     * Fill {@code out} with the joint setpoints at time {@code t} seconds into the move.
+     * Times past the end return the target pose.
+     */
+    public void sample(float t, float[] out) {
+        for (int i = 0; i < JOINT_COUNT; i++) {
+            float d = Math.abs(distance[i]);
+            float s;
+            if (d == 0f || t <= 0f) {
+                s = 0f;
+            } else if (t >= duration) {
+                s = d;
+            } else {
+                float v = cruiseVelocity[i];
+                float a = acceleration[i];
+                float tr = rampTime[i];
+                if (t < tr) {
+                    s = 0.5f * a * t * t;
+                } else if (t <= duration - tr) {
+                    s = 0.5f * v * tr + v * (t - tr);
+                } else {
+                    float remaining = duration - t;
+                    s = d - 0.5f * a * remaining * remaining;
+                }
+            }
+            out[i] = start[i] + Math.copySign(s, distance[i]);
+        }
+    }
+
+    public float getDuration() {
+        return duration;
+    }
+
+    /**
+     * Duration a move between two poses would take, without replacing the current plan.
+     */
+    public float estimateDuration(float[] from, float[] to) {
+        float longest = 0f;
+        for (int i = 0; i < JOINT_COUNT; i++) {
+            float d = Math.abs(clamp(to[i]) - clamp(from[i]));
+            longest = Math.max(longest, minimumTime(d, maxVelocity[i], maxAcceleration[i]));
+        }
+        return longest;
+    }
+
+    private static float minimumTime(float d, float vMax, float aMax) {
+        if (d == 0f) return 0f;
+        // Triangle profile if the joint cannot reach max velocity before it has to brake
+        if (d <= vMax * vMax / aMax) {
+            return 2f * (float) Math.sqrt(d / aMax);
+        }
+        return d / vMax + vMax / aMax;
+    }
+
+    private static float clamp(float angle) {
+        return Math.max(MIN_ANGLE, Math.min(MAX_ANGLE, angle));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.treebotmonitor;
+
+/**
+ * Turns the image offset of a detected fruit into small joint corrections.
+ *
+ * Image offsets are normalised to -1..1 from the frame centre (x to the right, y down).
+ * The base joint turns to cancel the horizontal offset and the wrist pitch tilts to cancel
+ * the vertical one, each with a proportional gain and a per-update step limit so a noisy
+ * detection cannot jerk the arm. The target counts as centred once it stays inside the
+ * tolerance for a few measurements in a row.
+ *
+ * Signs assume the camera sits on the wrist looking along the gripper. Plain Java so the
+ * control law can be checked on the JVM.
+ */
+public class VisualServoController {
+
+    private static final int BASE = 0;
+    private static final int WRIST_PITCH = 3;
+
+    // Degrees of correction per unit of normalised image offset
+    private static final float BASE_GAIN = -12f;
+    private static final float PITCH_GAIN = 10f;
+    private static final float MAX_STEP = 4f;  // Degrees per update
+
+    public static final float CENTRED_TOLERANCE = 0.05f;
+    public static final int CENTRED_MEASUREMENTS = 3;
+
+    private int centredCount = 0;
+
+    public void reset() {
+        centredCount = 0;
+    }
+
+    /**
+     * Apply one correction to {@code pose} (servo degrees, modified in place).
+     *
+     * @return true once the target has been centred for enough consecutive measurements
+     */
+    public boolean update(float offsetX, float offsetY, float[] pose) {
+        if (Math.abs(offsetX) <= CENTRED_TOLERANCE && Math.abs(offsetY) <= CENTRED_TOLERANCE) {
+            return ++centredCount >= CENTRED_MEASUREMENTS;
+        }
+        centredCount = 0;
+
+        pose[BASE] = clampAngle(pose[BASE] + clampStep(BASE_GAIN * offsetX));
+        pose[WRIST_PITCH] = clampAngle(pose[WRIST_PITCH] + clampStep(PITCH_GAIN * offsetY));
+        return false;
+    }
+
+    private static float clampStep(float step) {
+        return Math.max(-MAX_STEP, Math.min(MAX_STEP, step));
+    }
+
+    private static float clampAngle(float angle) {
+        return Math.max(TrajectoryPlanner.MIN_ANGLE, Math.min(TrajectoryPlanner.MAX_ANGLE, angle));
+    }
+}
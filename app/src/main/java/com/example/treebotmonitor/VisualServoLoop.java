@@ -0,0 +1,260 @@
+package com.example.treebotmonitor;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Closed loop from fruit detection to arm commands.
+ *
+ * Frame analysis reports the target's image offset with {@link #updateTarget}. At a fixed
+ * rate the loop feeds the newest measurement to {@link VisualServoController} and sends the
+ * joints that changed by a whole degree through {@link HarvestingBluetoothHelper}. Each
+ * measurement is used once, and frames captured before the last correction went out are
+ * ignored, so a slow camera never makes the loop correct twice for the same error. The
+ * loop finishes when the target is centred, or fails when the target stays out of sight
+ * or the time limit runs out.
+ *
+ * Achieved control rate and capture-to-command latency are tracked per run.
+ */
+public class VisualServoLoop {
+    private static final String TAG = "VisualServoLoop";
+
+    public static final int CONTROL_RATE_HZ = 15;
+    private static final long CONTROL_PERIOD_MS = 1000 / CONTROL_RATE_HZ;
+    private static final long TARGET_LOST_TIMEOUT_MS = 1500;
+    private static final long SERVO_TIMEOUT_MS = 8000;
+
+    public interface Callback {
+        /**
+         * @param centred true if the gripper is lined up with the target
+         */
+        void onServoFinished(boolean centred);
+    }
+
+    private final HarvestingBluetoothHelper bluetoothHelper;
+    private final ArmMotionStreamer armMotionStreamer;
+    private final VisualServoController controller = new VisualServoController();
+    private final HandlerThread servoThread;
+    private final Handler servoHandler;
+
+    // Latest measurement from frame analysis
+    private final Object measurementLock = new Object();
+    private boolean measuredTarget;
+    private float measuredX, measuredY;
+    private long measuredCaptureNs;
+    private long measurementSequence = 0;
+
+    // Loop state, only touched on the servo thread
+    private final float[] pose = new float[TrajectoryPlanner.JOINT_COUNT];
+    private final int[] sentAngles = new int[TrajectoryPlanner.JOINT_COUNT];
+    private volatile boolean isRunning = false;
+    private long usedSequence;
+    private long startTime;
+    private long nextTickTime;
+    private long lastTargetTime;
+    private long lastCommandNs;
+    private Callback callback;
+    private Handler callbackHandler;
+
+    // Loop statistics for the current or last run
+    private volatile long ticks = 0;
+    private volatile long corrections = 0;
+    private volatile long runTimeMs = 0;
+    private volatile long lastLatencyNs = 0;
+    private volatile long totalLatencyNs = 0;
+
+    private final Runnable tickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!isRunning) return;
+
+            long now = SystemClock.uptimeMillis();
+            ticks++;
+            runTimeMs = now - startTime;
+
+            boolean hasTarget;
+            float offsetX, offsetY;
+            long captureNs, sequence;
+            synchronized (measurementLock) {
+                hasTarget = measuredTarget;
+                offsetX = measuredX;
+                offsetY = measuredY;
+                captureNs = measuredCaptureNs;
+                sequence = measurementSequence;
+            }
+
+            if (sequence != usedSequence) {
+                usedSequence = sequence;
+                if (hasTarget) {
+                    lastTargetTime = now;
+                }
+                // Frames older than the last correction still show the arm before it moved
+                if (hasTarget && captureNs >= lastCommandNs) {
+                    if (controller.update(offsetX, offsetY, pose)) {
+                        finish(true);
+                        return;
+                    }
+                    if (sendChangedJoints()) {
+                        lastCommandNs = SystemClock.elapsedRealtimeNanos();
+                        recordLatency(lastCommandNs - captureNs);
+                    }
+                }
+            }
+
+            if (now - lastTargetTime > TARGET_LOST_TIMEOUT_MS || now - startTime > SERVO_TIMEOUT_MS) {
+                finish(false);
+                return;
+            }
+
+            // Schedule against the ideal timeline so the rate does not drift
+            nextTickTime += CONTROL_PERIOD_MS;
+            if (nextTickTime <= now) {
+                nextTickTime = now + CONTROL_PERIOD_MS;
+            }
+            servoHandler.postAtTime(this, nextTickTime);
+        }
+    };
+
+    public VisualServoLoop(HarvestingBluetoothHelper bluetoothHelper, ArmMotionStreamer armMotionStreamer) {
+        this.bluetoothHelper = bluetoothHelper;
+        this.armMotionStreamer = armMotionStreamer;
+        servoThread = new HandlerThread("VisualServoLoop");
+        servoThread.start();
+        servoHandler = new Handler(servoThread.getLooper());
+    }
+
+    /**
+     * Start centring on the target from the arm's current pose. {@code callback} runs on
+     * {@code handler} when the loop finishes, unless it is stopped first.
+     */
+    public void start(Handler handler, Callback callback) {
+        servoHandler.post(() -> {
+            servoHandler.removeCallbacks(tickRunnable);
+            armMotionStreamer.getCurrentPose(pose);
+            for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+                sentAngles[i] = Math.round(pose[i]);
+            }
+            controller.reset();
+            synchronized (measurementLock) {
+                usedSequence = measurementSequence;
+            }
+
+            this.callback = callback;
+            callbackHandler = handler;
+            ticks = 0;
+            corrections = 0;
+            totalLatencyNs = 0;
+            startTime = SystemClock.uptimeMillis();
+            lastTargetTime = startTime;
+            lastCommandNs = SystemClock.elapsedRealtimeNanos(); // Arm may have been moving until now
+            nextTickTime = startTime;
+            isRunning = true;
+            tickRunnable.run();
+        });
+    }
+
+    /**
+     * Report the target seen in a frame, as an offset from the image centre normalised to
+     * -1..1. Called from the analysis thread.
+     */
+    public void updateTarget(float offsetX, float offsetY, long captureNs) {
+        synchronized (measurementLock) {
+            measuredTarget = true;
+            measuredX = offsetX;
+            measuredY = offsetY;
+            measuredCaptureNs = captureNs;
+            measurementSequence++;
+        }
+    }
+
+    /**
+     * Report a frame in which no target was found.
+     */
+    public void updateNoTarget(long captureNs) {
+        synchronized (measurementLock) {
+            measuredTarget = false;
+            measuredCaptureNs = captureNs;
+            measurementSequence++;
+        }
+    }
+
+    /**
+     * Stop where the arm is. The pending callback is dropped.
+     */
+    public void stop() {
+        isRunning = false;
+        servoHandler.post(() -> {
+            servoHandler.removeCallbacks(tickRunnable);
+            callback = null;
+            callbackHandler = null;
+        });
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Control ticks per second achieved over the current or last run.
+     */
+    public float getAchievedRateHz() {
+        long elapsed = runTimeMs;
+        return elapsed == 0 ? 0f : ticks * 1000f / elapsed;
+    }
+
+    /**
+     * Average time from frame capture to the correction being sent, in nanoseconds.
+     */
+    public long getAverageLatencyNs() {
+        long count = corrections;
+        return count == 0 ? 0 : totalLatencyNs / count;
+    }
+
+    public long getLastLatencyNs() {
+        return lastLatencyNs;
+    }
+
+    public void release() {
+        isRunning = false;
+        servoHandler.removeCallbacksAndMessages(null);
+        servoThread.quitSafely();
+    }
+
+    private boolean sendChangedJoints() {
+        StringBuilder command = new StringBuilder();
+        for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+            int angle = Math.round(pose[i]);
+            if (angle != sentAngles[i]) {
+                sentAngles[i] = angle;
+                command.append(TrajectoryPlanner.JOINT_PREFIXES[i]).append(angle);
+                // Next trajectory starts from the corrected pose
+                armMotionStreamer.updateJointAngle(i, angle);
+            }
+        }
+        if (command.length() == 0) return false;
+        bluetoothHelper.sendCommand(command.toString());
+        return true;
+    }
+
+    private void recordLatency(long latencyNs) {
+        lastLatencyNs = latencyNs;
+        totalLatencyNs += latencyNs;
+        corrections++;
+    }
+
+    private void finish(boolean centred) {
+        isRunning = false;
+        Log.d(TAG, (centred ? "Target centred" : "Target not centred") + " after " + runTimeMs + " ms, "
+                + getAchievedRateHz() + " Hz, latency " + (getAverageLatencyNs() / 1_000_000) + " ms");
+
+        Callback done = callback;
+        Handler target = callbackHandler;
+        callback = null;
+        callbackHandler = null;
+        if (done != null && target != null) {
+            target.post(() -> done.onServoFinished(centred));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.treebotmonitor;
+
+import java.util.List;
+
+/**
+ * Decides which recognised phrase to act on during one utterance, and when.
+ *
+ * Transcripts resolve through the exact {@link VoiceCommandMatcher} first, then the
+ * {@link FuzzyCommandIndex}. Safety commands (priority at least {@code earlyPriority}) are
+ * also acted on from partial results once they resolve with {@code earlyConfidence}, so
+ * STOP goes out while the user is still speaking instead of after end of speech and the
+ * final result. Each utterance fires an early command at most once, and a final result
+ * that resolves to the same command is suppressed.
+ *
+ * Final results are N-best lists: every hypothesis is resolved and scored by the
+ * recognizer's confidence times the match confidence, so a command in second place still
+ * counts when the top hypothesis is noise. Below {@code minScore} a hypothesis is ignored,
+ * except for safety commands: a faint STOP is still worth acting on.
+ *
+ * Also measures end-of-speech to command-sent latency per utterance. It is negative
+ * when a partial result got the command out before speech ended.
+ */
+public class VoiceCommandGate {
+
+    public static final float DEFAULT_EARLY_CONFIDENCE = 0.85f;
+    public static final float DEFAULT_MIN_SCORE = 0.25f;
+
+    private final VoiceCommandMatcher matcher;
+    private final FuzzyCommandIndex fuzzyIndex;
+    private final int earlyPriority;
+    private final float earlyConfidence;
+    private final float minScore;
+
+    private float lastConfidence = 0f;
+    private int lastHypothesis = -1;
+    private String earlyCommand = null;
+
+    // Latency of the current utterance, paired whichever event comes first
+    private long endOfSpeechNs = -1;
+    private long sentNs = -1;
+    private long lastLatencyNs = 0;
+    private long totalLatencyNs = 0;
+    private int measuredUtterances = 0;
+    private int earlyCommands = 0;
+
+    public VoiceCommandGate(VoiceCommandMatcher matcher, FuzzyCommandIndex fuzzyIndex,
+                            int earlyPriority, float earlyConfidence, float minScore) {
+        this.matcher = matcher;
+        this.fuzzyIndex = fuzzyIndex;
+        this.earlyPriority = earlyPriority;
+        this.earlyConfidence = earlyConfidence;
+        this.minScore = minScore;
+    }
+
+    /**
+     * Call when listening starts.
+     */
+    public void beginUtterance() {
+        earlyCommand = null;
+        endOfSpeechNs = -1;
+        sentNs = -1;
+    }
+
+    /**
+     * Best phrase for a transcript, exact matches first, or null.
+     */
+    public VoiceCommandMatcher.Phrase resolve(CharSequence text) {
+        VoiceCommandMatcher.Phrase phrase = matcher.findBest(text);
+        if (phrase != null) {
+            lastConfidence = 1f;
+            return phrase;
+        }
+        phrase = fuzzyIndex.findBest(text);
+        lastConfidence = phrase == null ? 0f : fuzzyIndex.getLastConfidence();
+        return phrase;
+    }
+
+    /**
+     * Best phrase over N-best hypotheses, or null if none resolves. Ranked by priority, then
+     * recognizer confidence times match confidence; non-safety phrases scoring below the
+     * minimum are skipped.
+     *
+     * @param scores recognizer confidence per hypothesis; null or non-positive entries
+     *               fall back to a prior that decreases with rank
+     */
+    public VoiceCommandMatcher.Phrase resolve(List<String> hypotheses, float[] scores) {
+        VoiceCommandMatcher.Phrase best = null;
+        float bestScore = 0f;
+        float bestConfidence = 0f;
+        int bestIndex = -1;
+
+        for (int i = 0; i < hypotheses.size(); i++) {
+            VoiceCommandMatcher.Phrase phrase = resolve(hypotheses.get(i));
+            if (phrase == null) continue;
+
+            float prior = scores != null && i < scores.length && scores[i] > 0f
+                    ? scores[i] : 1f / (i + 1);
+            float score = prior * lastConfidence;
+            if (phrase.priority < earlyPriority && score < minScore) continue;
+            if (best == null || phrase.priority > best.priority
+                    || (phrase.priority == best.priority && score > bestScore)) {
+                best = phrase;
+                bestScore = score;
+                bestConfidence = lastConfidence;
+                bestIndex = i;
+            }
+        }
+
+        lastConfidence = bestConfidence;
+        lastHypothesis = bestIndex;
+        return best;
+    }
+
+    /**
+     * Index of the hypothesis the last N-best {@link #resolve} picked, or -1.
+     */
+    public int getLastHypothesis() {
+        return lastHypothesis;
+    }
+
+    /**
+     * Confidence of the phrase returned by the last {@link #resolve} call, 1 for an exact match.
+     */
+    public float getLastConfidence() {
+        return lastConfidence;
+    }
+
+    /**
+     * Phrase to act on right now for a partial result, or null to wait for more speech.
+     */
+    public VoiceCommandMatcher.Phrase onPartialResult(CharSequence text) {
+        if (earlyCommand != null) return null;
+        VoiceCommandMatcher.Phrase phrase = resolve(text);
+        if (phrase == null || phrase.priority < earlyPriority || lastConfidence < earlyConfidence) {
+            return null;
+        }
+        earlyCommand = phrase.command;
+        earlyCommands++;
+        return phrase;
+    }
+
+    /**
+     * True if {@code phrase} resolves to the command already sent early in this utterance,
+     * so the final result should not send it again.
+     */
+    public boolean isSentEarly(VoiceCommandMatcher.Phrase phrase) {
+        return phrase.command.equals(earlyCommand);
+    }
+
+    public void onEndOfSpeech(long timestampNs) {
+        if (endOfSpeechNs >= 0) return;
+        endOfSpeechNs = timestampNs;
+        recordLatency();
+    }
+
+    /**
+     * Call once the command bytes are written to the link.
+     */
+    public void onCommandSent(long timestampNs) {
+        if (sentNs >= 0) return;
+        sentNs = timestampNs;
+        recordLatency();
+    }
+
+    /**
+     * True once both end of speech and the first command sent are known for this utterance.
+     */
+    public boolean isLatencyMeasured() {
+        return endOfSpeechNs >= 0 && sentNs >= 0;
+    }
+
+    public long getLastLatencyNs() {
+        return lastLatencyNs;
+    }
+
+    public long getAverageLatencyNs() {
+        return measuredUtterances == 0 ? 0 : totalLatencyNs / measuredUtterances;
+    }
+
+    public int getMeasuredUtterances() {
+        return measuredUtterances;
+    }
+
+    public int getEarlyCommands() {
+        return earlyCommands;
+    }
+
+    private void recordLatency() {
+        if (endOfSpeechNs < 0 || sentNs < 0) return;
+        lastLatencyNs = sentNs - endOfSpeechNs;
+        totalLatencyNs += lastLatencyNs;
+        measuredUtterances++;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.treebotmonitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds voice command phrases in recognised speech with an Aho–Corasick automaton.
+ *
+ * All phrases are compiled into one automaton with precomputed transitions, so a
+ * transcript is scanned once, character by character, whatever the number of phrases.
+ * Only whole-word hits count ("top" does not match inside "laptop"), except that a phrase
+ * with a positive priority also matches the start of a longer word, so "stopping" still
+ * stops. When several phrases hit, the best one wins by priority, then length, then
+ * earliest position, so overlaps like "go back" versus "back" always resolve the same way.
+ * Matching is case-insensitive and does not allocate.
+ */
+public class VoiceCommandMatcher {
+
+    /**
+     * One registered phrase and the command it stands for.
+     */
+    public static class Phrase {
+        public final String text;
+        public final String command;
+        public final int priority;
+
+        Phrase(String text, String command, int priority) {
+            this.text = text;
+            this.command = command;
+            this.priority = priority;
+        }
+    }
+
+    public static class Builder {
+        private final List<Phrase> phrases = new ArrayList<>();
+
+        public Builder add(String phrase, String command) {
+            return add(phrase, command, 0);
+        }
+
+        /**
+         * Register a phrase. A higher priority wins over any other hit in the same transcript.
+         * Adding the same phrase again (ignoring case) keeps the first registration.
+         */
+        public Builder add(String phrase, String command, int priority) {
+            String text = phrase.trim().toLowerCase();
+            if (text.isEmpty()) {
+                throw new IllegalArgumentException("Empty voice phrase");
+            }
+            for (Phrase existing : phrases) {
+                if (existing.text.equals(text)) return this;
+            }
+            phrases.add(new Phrase(text, command, priority));
+            return this;
+        }
+
+        public VoiceCommandMatcher build() {
+            return new VoiceCommandMatcher(phrases);
+        }
+    }
+
+    private static final int ASCII = 128;
+
+    private final Phrase[] phrases;
+    private final int[] charClass = new int[ASCII]; // 0 = character in no phrase, back to the root
+    private final int alphabetSize;
+    private final int[][] next;        // Full transition table, failure links folded in
+    private final int[] phraseAt;      // Phrase ending exactly at this state, or -1
+    private final int[] outputLink;    // Nearest suffix state that ends a phrase, or -1
+
+    private VoiceCommandMatcher(List<Phrase> phraseList) {
+        phrases = phraseList.toArray(new Phrase[0]);
+
+        // Compact alphabet over the characters that occur in phrases
+        int classes = 1;
+        for (Phrase phrase : phrases) {
+            for (int i = 0; i < phrase.text.length(); i++) {
+                char c = phrase.text.charAt(i);
+                if (c >= ASCII) {
+                    throw new IllegalArgumentException("Voice phrases must be ASCII: " + phrase.text);
+                }
+                if (charClass[c] == 0) {
+                    // Upper case shares the class, so matching needs no case folding
+                    charClass[c] = classes;
+                    charClass[Character.toUpperCase(c)] = classes;
+                    classes++;
+                }
+            }
+        }
+        alphabetSize = classes;
+
+        // Trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(newRow());
+        ends.add(-1);
+        for (int p = 0; p < phrases.length; p++) {
+            int state = 0;
+            String text = phrases[p].text;
+            for (int i = 0; i < text.length(); i++) {
+                int symbol = charClass[text.charAt(i)];
+                if (trie.get(state)[symbol] < 0) {
+                    trie.get(state)[symbol] = trie.size();
+                    trie.add(newRow());
+                    ends.add(-1);
+                }
+                state = trie.get(state)[symbol];
+            }
+            ends.set(state, p);
+        }
+
+        int states = trie.size();
+        next = trie.toArray(new int[0][]);
+        phraseAt = new int[states];
+        outputLink = new int[states];
+        int[] fail = new int[states];
+        for (int s = 0; s < states; s++) {
+            phraseAt[s] = ends.get(s);
+        }
+
+        // Breadth-first: failure links, output links and the complete transition table
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        outputLink[0] = -1;
+        for (int symbol = 0; symbol < alphabetSize; symbol++) {
+            int child = next[0][symbol];
+            if (child < 0) {
+                next[0][symbol] = 0;
+            } else {
+                fail[child] = 0;
+                outputLink[child] = -1;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int child = next[state][symbol];
+                if (child < 0) {
+                    next[state][symbol] = next[fail[state]][symbol];
+                    continue;
+                }
+                int suffix = next[fail[state]][symbol];
+                fail[child] = suffix;
+                outputLink[child] = phraseAt[suffix] >= 0 ? suffix : outputLink[suffix];
+                queue.add(child);
+            }
+        }
+    }
+
+    private int[] newRow() {
+        int[] row = new int[alphabetSize];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * Best phrase in {@code text}, or null if none occurs as whole words (or a word prefix
+     * for a priority phrase).
+     */
+    public Phrase findBest(CharSequence text) {
+        int best = -1;
+        int bestStart = 0;
+        int state = 0;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            state = next[state][c < ASCII ? charClass[c] : 0];
+
+            // Walk every phrase ending here, longest first
+            int hit = phraseAt[state] >= 0 ? state : outputLink[state];
+            while (hit >= 0) {
+                int p = phraseAt[hit];
+                int start = i + 1 - phrases[p].text.length();
+                // Priority phrases may end inside a word, as in "stopping"
+                if (isBoundary(text, start - 1) && (phrases[p].priority > 0 || isBoundary(text, i + 1))
+                        && (best < 0 || isBetter(p, start, best, bestStart))) {
+                    best = p;
+                    bestStart = start;
+                }
+                hit = outputLink[hit];
+            }
+        }
+        return best < 0 ? null : phrases[best];
+    }
+
+    public int getPhraseCount() {
+        return phrases.length;
+    }
+
+    public Phrase getPhrase(int index) {
+        return phrases[index];
+    }
+
+    private boolean isBetter(int candidate, int candidateStart, int best, int bestStart) {
+        Phrase a = phrases[candidate];
+        Phrase b = phrases[best];
+        if (a.priority != b.priority) return a.priority > b.priority;
+        if (a.text.length() != b.text.length()) return a.text.length() > b.text.length();
+        return candidateStart < bestStart;
+    }
+
+    private static boolean isBoundary(CharSequence text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.treebotmonitor;
+
+import java.util.Arrays;
+
+/**
+ * Parses compound voice commands such as "speed three forward", "base ninety shoulder
+ * forty-five" or "stop in two seconds" into one {@link Batch}.
+ *
+ * An utterance is a sequence of clauses:
+ * <ul>
+ *   <li>{@code speed <1-3>} or {@code low|medium|high speed}</li>
+ *   <li>{@code forward|up|reverse|back|backward|down}</li>
+ *   <li>{@code stop [in <n> second(s)]}</li>
+ *   <li>{@code <joint> <0-180>}, joints base, shoulder, elbow, wrist [pitch], [wrist] roll, gripper</li>
+ * </ul>
+ * Numbers are spoken words ("forty-five", "one hundred twenty") or digits. Filler words
+ * such as "and", "then" or "degrees" are skipped. Any other word fails the parse, so the
+ * caller falls back to single-phrase matching. An immediate STOP wins over any motion in
+ * the same utterance, whatever the order.
+ */
+public class VoiceGrammar {
+
+    private static final String[] JOINT_PREFIXES = TrajectoryPlanner.JOINT_PREFIXES;
+    private static final int MAX_ANGLE = 180;
+    private static final long MAX_STOP_DELAY_MS = 60_000;
+
+    private static final String[] FILLER = {"and", "then", "go", "climb", "move", "to", "at", "please", "degrees", "degree"};
+
+    private static final String[] UNITS = {"zero", "one", "two", "three", "four", "five", "six", "seven", "eight",
+            "nine", "ten", "eleven", "twelve", "thirteen", "fourteen", "fifteen", "sixteen", "seventeen",
+            "eighteen", "nineteen"};
+    private static final String[] TENS = {"", "", "twenty", "thirty", "forty", "fifty", "sixty", "seventy",
+            "eighty", "ninety"};
+
+    /**
+     * Everything one utterance asks for.
+     */
+    public static class Batch {
+        /** Speed level 1-3, or 0 to leave unchanged */
+        public int speed = 0;
+        /** Motion command, or null */
+        public String motion = null;
+        /** Delay before a STOP*, or -1 for none */
+        public long stopDelayMs = -1;
+        /** Target angle per arm joint, or -1 to leave unchanged */
+        public final int[] jointAngles = new int[TrajectoryPlanner.JOINT_COUNT];
+        int clauses = 0;
+
+        Batch() {
+            Arrays.fill(jointAngles, -1);
+        }
+
+        /**
+         * Arm commands in joint order, e.g. {"A90", "B45"}.
+         */
+        public String[] getArmCommands() {
+            int count = 0;
+            for (int angle : jointAngles) {
+                if (angle >= 0) count++;
+            }
+            String[] commands = new String[count];
+            int n = 0;
+            for (int i = 0; i < jointAngles.length; i++) {
+                if (jointAngles[i] >= 0) commands[n++] = JOINT_PREFIXES[i] + jointAngles[i];
+            }
+            return commands;
+        }
+
+        /**
+         * False for a lone motion clause, which the phrase matcher handles with its STOP priority.
+         */
+        public boolean isCompound() {
+            return clauses > 1 || motion == null;
+        }
+
+        public int getClauseCount() {
+            return clauses;
+        }
+    }
+
+    /**
+     * Parse one transcript, or null if any part of it is outside the grammar.
+     */
+    public static Batch parse(String text) {
+        String[] words = text.toLowerCase().replace('-', ' ').trim().split("[^a-z0-9]+");
+        Batch batch = new Batch();
+        int[] position = {0};
+
+        while (position[0] < words.length) {
+            String word = words[position[0]];
+            if (word.isEmpty() || contains(FILLER, word)) {
+                position[0]++;
+                continue;
+            }
+            if (!parseClause(words, position, batch)) return null;
+            batch.clauses++;
+        }
+        return batch.clauses == 0 ? null : batch;
+    }
+
+    /**
+     * Whether the last "stop" in a partial result is already "stop in ...", a delayed stop
+     * still being spoken. A bare trailing "stop" is not: it stops at once, and if "in n
+     * seconds" follows, stopping early is the safe way to be wrong.
+     */
+    public static boolean isDelayedStop(String text) {
+        String[] words = text.toLowerCase().trim().split("[^a-z0-9]+");
+        for (int i = words.length - 1; i >= 0; i--) {
+            if (!words[i].equals("stop")) continue;
+            return i + 1 < words.length && words[i + 1].equals("in");
+        }
+        return false;
+    }
+
+    private static boolean parseClause(String[] words, int[] position, Batch batch) {
+        String word = words[position[0]++];
+        switch (word) {
+            case "forward":
+            case "up":
+                setMotion(batch, "FORWARD*");
+                return true;
+            case "reverse":
+            case "back":
+            case "backward":
+            case "down":
+                setMotion(batch, "REVERSE*");
+                return true;
+            case "stop":
+                return parseStop(words, position, batch);
+            case "speed": {
+                skipPreposition(words, position);
+                int level = parseNumber(words, position);
+                if (level < 1 || level > 3) return false;
+                batch.speed = level;
+                return true;
+            }
+            case "low":
+            case "medium":
+            case "high":
+                if (!next(words, position, "speed")) return false;
+                batch.speed = word.equals("low") ? 1 : word.equals("medium") ? 2 : 3;
+                return true;
+            default:
+                int joint = parseJoint(word, words, position);
+                if (joint < 0) return false;
+                skipPreposition(words, position);
+                int angle = parseNumber(words, position);
+                if (angle < 0 || angle > MAX_ANGLE) return false;
+                batch.jointAngles[joint] = angle;
+                return true;
+        }
+    }
+
+    /**
+     * Later motion clauses replace earlier ones, except that nothing replaces a STOP.
+     */
+    private static void setMotion(Batch batch, String motion) {
+        if (!"STOP*".equals(batch.motion)) {
+            batch.motion = motion;
+        }
+    }
+
+    private static boolean parseStop(String[] words, int[] position, Batch batch) {
+        if (!next(words, position, "in")) {
+            batch.motion = "STOP*";
+            return true;
+        }
+        int seconds = parseNumber(words, position);
+        if (seconds < 0 || !(next(words, position, "seconds") || next(words, position, "second"))) {
+            return false;
+        }
+        long delayMs = seconds * 1000L;
+        if (delayMs > MAX_STOP_DELAY_MS) return false;
+        batch.stopDelayMs = delayMs;
+        return true;
+    }
+
+    /**
+     * Joint index for a joint name, consuming "wrist pitch" / "wrist roll", or -1.
+     */
+    private static int parseJoint(String word, String[] words, int[] position) {
+        switch (word) {
+            case "base":
+                return 0;
+            case "shoulder":
+                return 1;
+            case "elbow":
+                return 2;
+            case "wrist":
+                if (next(words, position, "roll")) return 4;
+                next(words, position, "pitch");
+                return 3;
+            case "pitch":
+                return 3;
+            case "roll":
+                return 4;
+            case "gripper":
+            case "grip":
+                return 5;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Number from digits or number words up to 999, or -1 if none starts here.
+     */
+    static int parseNumber(String[] words, int[] position) {
+        if (position[0] < words.length && words[position[0]].matches("[0-9]{1,3}")) {
+            return Integer.parseInt(words[position[0]++]);
+        }
+
+        int value = -1;
+        int hundreds = -1;
+        while (position[0] < words.length) {
+            String word = words[position[0]];
+            int unit = indexOf(UNITS, word);
+            int tens = indexOf(TENS, word);
+            if (word.equals("hundred") && value > 0 && value < 10 && hundreds < 0) {
+                hundreds = value * 100;
+                value = -1;
+            } else if (word.equals("and") && hundreds >= 0 && value < 0) {
+                // "one hundred and twenty"
+            } else if (word.equals("a") && value < 0 && hundreds < 0
+                    && position[0] + 1 < words.length && words[position[0] + 1].equals("hundred")) {
+                value = 1;
+            } else if (tens >= 2 && value < 0) {
+                value = tens * 10;
+            } else if (unit >= 0 && (value < 0 || (value % 10 == 0 && value >= 20 && unit > 0 && unit < 10))) {
+                value = value < 0 ? unit : value + unit;
+            } else {
+                break;
+            }
+            position[0]++;
+        }
+        if (hundreds >= 0) return hundreds + Math.max(value, 0);
+        return value;
+    }
+
+    private static void skipPreposition(String[] words, int[] position) {
+        if (!next(words, position, "to")) {
+            next(words, position, "at");
+        }
+    }
+
+    private static boolean next(String[] words, int[] position, String expected) {
+        if (position[0] < words.length && words[position[0]].equals(expected)) {
+            position[0]++;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean contains(String[] list, String word) {
+        return indexOf(list, word) >= 0;
+    }
+
+    private static int indexOf(String[] list, String word) {
+        for (int i = 0; i < list.length; i++) {
+            if (list[i].equals(word)) return i;
+        }
+        return -1;
+    }
+}
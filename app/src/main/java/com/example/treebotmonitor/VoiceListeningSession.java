@@ -0,0 +1,147 @@
+package com.example.treebotmonitor;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Re-arm policy and statistics for continuous hands-free listening.
+ *
+ * After a result the recognizer is re-armed at once. After a no-speech error (no match,
+ * speech timeout) it is also re-armed at once, unless the recognizer failed within
+ * {@link #MIN_LISTEN_NS} of becoming ready, which counts as a failure. A busy or other
+ * transient error always counts. Failures back off exponentially from
+ * {@link #BASE_BACKOFF_MS}; after {@link #MAX_RETRIES} consecutive ones the session gives
+ * up. Any result, or a real stretch of listening, clears the count.
+ *
+ * Duty cycle is the share of session time the recognizer was armed, from ready for speech
+ * to its result or error. Re-arm latency runs from that result or error to the recognizer
+ * being ready again, backoff included.
+ */
+public class VoiceListeningSession {
+
+    public static final int ERROR_NO_SPEECH = 0;
+    public static final int ERROR_TRANSIENT = 1;
+    public static final int ERROR_FATAL = 2;
+
+    public static final int MAX_RETRIES = 5;
+    public static final long BASE_BACKOFF_MS = 100;
+    private static final long MIN_LISTEN_NS = 500_000_000L;
+
+    private final LongSupplier clock;
+
+    private boolean active = false;
+    private boolean listening = false;
+    private int failures = 0;
+
+    private long sessionStartNs;
+    private long readyNs;
+    private long stoppedNs = -1;
+    private long listeningNs = 0;
+
+    private long totalRearmNs = 0;
+    private long maxRearmNs = 0;
+    private int rearms = 0;
+
+    public VoiceListeningSession(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public void start() {
+        active = true;
+        listening = false;
+        failures = 0;
+        sessionStartNs = clock.getAsLong();
+        stoppedNs = -1;
+        listeningNs = 0;
+        totalRearmNs = 0;
+        maxRearmNs = 0;
+        rearms = 0;
+    }
+
+    public void stop() {
+        endListening();
+        active = false;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * The recognizer is ready for speech.
+     */
+    public void onReady() {
+        if (!active || listening) return;
+        long now = clock.getAsLong();
+        if (stoppedNs >= 0) {
+            long rearmNs = now - stoppedNs;
+            totalRearmNs += rearmNs;
+            maxRearmNs = Math.max(maxRearmNs, rearmNs);
+            rearms++;
+        }
+        readyNs = now;
+        listening = true;
+    }
+
+    /**
+     * A final result arrived. Re-arm right away.
+     */
+    public void onResult() {
+        endListening();
+        failures = 0;
+    }
+
+    /**
+     * Listening ended with an error of the given kind.
+     *
+     * @return delay in milliseconds before re-arming, or -1 to give up
+     */
+    public long onError(int kind) {
+        long listenedNs = listening ? clock.getAsLong() - readyNs : 0;
+        endListening();
+        if (!active || kind == ERROR_FATAL) return -1;
+
+        if (kind == ERROR_NO_SPEECH && listenedNs >= MIN_LISTEN_NS) {
+            // Normal silence in hands-free mode
+            failures = 0;
+            return 0;
+        }
+        if (++failures > MAX_RETRIES) return -1;
+        return BASE_BACKOFF_MS << (failures - 1);
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Fraction of session time the recognizer was armed.
+     */
+    public float getDutyCycle() {
+        long now = clock.getAsLong();
+        long elapsed = now - sessionStartNs;
+        if (elapsed <= 0) return 0f;
+        long listened = listeningNs + (listening ? now - readyNs : 0);
+        return (float) listened / elapsed;
+    }
+
+    public long getAverageRearmNs() {
+        return rearms == 0 ? 0 : totalRearmNs / rearms;
+    }
+
+    public long getMaxRearmNs() {
+        return maxRearmNs;
+    }
+
+    public int getRearms() {
+        return rearms;
+    }
+
+    private void endListening() {
+        long now = clock.getAsLong();
+        if (listening) {
+            listeningNs += now - readyNs;
+            listening = false;
+        }
+        stoppedNs = now;
+    }
+}
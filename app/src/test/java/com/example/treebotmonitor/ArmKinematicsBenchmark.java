@@ -0,0 +1,34 @@
+package com.example.treebotmonitor;
+
+/**
+ * Cold-start solve rate of {@link ArmKinematics}. Run {@link #main} by hand; it is not a
+ * unit test because the numbers depend on the machine.
+ */
+public class ArmKinematicsBenchmark {
+
+    public static void main(String[] args) {
+        float[] home = ArmKinematicsTest.HOME;
+        ArmKinematics kinematics = new ArmKinematics();
+        float[] goalPose = {110, 65, 115, 75, 90, 90};
+        float[] target = new float[3];
+        kinematics.forward(goalPose, target);
+        float[] pose = home.clone();
+        int iterations = 200_000;
+
+        for (int i = 0; i < iterations; i++) {
+            kinematics.solve(target[0], target[1], target[2], Float.NaN, home, pose);
+        }
+
+        long startNs = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            // Cold start from home every time, the expensive case
+            kinematics.solve(target[0], target[1], target[2], Float.NaN, home, pose);
+        }
+        long elapsedNs = System.nanoTime() - startNs;
+        long solvesPerSecond = iterations * 1_000_000_000L / elapsedNs;
+
+        System.out.println("ArmKinematics: " + solvesPerSecond + " cold solves/s, "
+                + kinematics.getLastIterations() + " iterations each, "
+                + ArmMotionStreamer.CONTROL_RATE_HZ + " Hz control rate");
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ArmKinematics}.
+ */
+public class ArmKinematicsTest {
+
+    static final float[] HOME = {90, 90, 90, 90, 90, 90};
+
+    @Test
+    public void solve_reachesForwardKinematicsTarget() {
+        ArmKinematics kinematics = new ArmKinematics();
+        float[] goalPose = {120, 60, 120, 70, 90, 30};
+        float[] target = new float[3];
+        kinematics.forward(goalPose, target);
+
+        float[] solved = new float[TrajectoryPlanner.JOINT_COUNT];
+        assertTrue(kinematics.solve(target[0], target[1], target[2], Float.NaN, HOME, solved));
+
+        float[] reached = new float[3];
+        kinematics.forward(solved, reached);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(target[i], reached[i], 0.002);
+        }
+        for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+            assertTrue(solved[i] >= TrajectoryPlanner.MIN_ANGLE && solved[i] <= TrajectoryPlanner.MAX_ANGLE);
+        }
+        // Wrist roll and gripper are passed through
+        assertEquals(HOME[4], solved[4], 0);
+        assertEquals(HOME[5], solved[5], 0);
+    }
+
+    @Test
+    public void solve_reportsUnreachableTarget() {
+        ArmKinematics kinematics = new ArmKinematics();
+        float[] solved = new float[TrajectoryPlanner.JOINT_COUNT];
+        assertFalse(kinematics.solve(2f, 0f, 0.1f, Float.NaN, HOME, solved));
+        assertFalse(kinematics.solve(-0.2f, 0f, 0.2f, Float.NaN, HOME, solved));
+    }
+
+    @Test
+    public void solve_warmStartConvergesFaster() {
+        ArmKinematics kinematics = new ArmKinematics();
+        float[] goalPose = {100, 70, 110, 80, 90, 90};
+        float[] target = new float[3];
+        kinematics.forward(goalPose, target);
+        float[] solved = new float[TrajectoryPlanner.JOINT_COUNT];
+
+        kinematics.solve(target[0], target[1], target[2], Float.NaN, HOME, solved);
+        int coldIterations = kinematics.getLastIterations();
+
+        // Target drifts by 5 mm, as between two camera frames
+        kinematics.solve(target[0] + 0.005f, target[1], target[2], Float.NaN, solved, solved);
+        assertTrue(kinematics.getLastIterations() < coldIterations);
+    }
+}
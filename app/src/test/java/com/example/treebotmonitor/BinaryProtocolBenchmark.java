@@ -0,0 +1,86 @@
+package com.example.treebotmonitor;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bytes on the wire and decode cost of {@link BinaryProtocol} frames against the ASCII
+ * commands they replace. Run {@link #main} by hand; it is not a unit test because the
+ * numbers depend on the machine.
+ */
+public class BinaryProtocolBenchmark {
+
+    public static void main(String[] args) {
+        bytesAndDecodeCost();
+        deltaStreamingBytesPerSecond();
+    }
+
+    private static void bytesAndDecodeCost() {
+        List<String> commands = BinaryProtocolTest.jointTicks(10_000);
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        int asciiBytes = 0;
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (String command : commands) {
+            asciiBytes += command.length();
+            byte[] frame = encoder.encode(command);
+            stream.write(frame, 0, frame.length);
+        }
+        byte[] bytes = stream.toByteArray();
+
+        List<String> out = new ArrayList<>();
+        int rounds = 20;
+        long start = 0;
+        for (int r = 0; r < 2 * rounds; r++) {
+            if (r == rounds) start = System.nanoTime();  // First half is warm-up
+            out.clear();
+            new BinaryProtocol.Decoder().feed(bytes, bytes.length, out);
+        }
+        long nsPerFrame = (System.nanoTime() - start) / ((long) rounds * out.size());
+
+        int ticks = commands.size();
+        System.out.println(String.format(Locale.US,
+                "Joint stream: ASCII %.2f B/tick without terminator or check, binary %.2f B/tick "
+                        + "with CRC (%.0f%%); decode %d ns/frame",
+                (float) asciiBytes / ticks, (float) bytes.length / ticks,
+                100f * bytes.length / asciiBytes, nsPerFrame));
+    }
+
+    private static void deltaStreamingBytesPerSecond() {
+        List<String> commands = new ArrayList<>();
+        float streamedSeconds = BinaryProtocolTest.streamMoves(200, commands);
+
+        long asciiBytes = 0;
+        long absoluteBytes = 0;
+        long deltaBytes = 0;
+        BinaryProtocol.Encoder absolute = new BinaryProtocol.Encoder();
+        BinaryProtocol.Encoder delta = new BinaryProtocol.Encoder();
+        delta.setDeltaEncoding(true);
+        ByteArrayOutputStream deltaStream = new ByteArrayOutputStream();
+        long encodeStart = System.nanoTime();
+        for (String command : commands) {
+            asciiBytes += command.length();
+            absoluteBytes += absolute.encode(command).length;
+            byte[] frame = delta.encode(command);
+            deltaBytes += frame.length;
+            deltaStream.write(frame, 0, frame.length);
+        }
+        long encodeNs = (System.nanoTime() - encodeStart) / commands.size();
+
+        List<String> out = new ArrayList<>();
+        byte[] bytes = deltaStream.toByteArray();
+        long decodeStart = System.nanoTime();
+        new BinaryProtocol.Decoder().feed(bytes, bytes.length, out);
+        long decodeNs = (System.nanoTime() - decodeStart) / commands.size();
+
+        System.out.println(String.format(Locale.US,
+                "Setpoint stream %.0f s at %d Hz: ASCII %.0f B/s, absolute frames %.0f B/s, "
+                        + "delta frames %.0f B/s (saves %.0f B/s vs absolute, %.0f B/s vs ASCII); "
+                        + "encode %d ns, decode %d ns per setpoint",
+                streamedSeconds, ArmMotionStreamer.CONTROL_RATE_HZ, asciiBytes / streamedSeconds,
+                absoluteBytes / streamedSeconds, deltaBytes / streamedSeconds,
+                (absoluteBytes - deltaBytes) / streamedSeconds, (asciiBytes - deltaBytes) / streamedSeconds,
+                encodeNs, decodeNs));
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BinaryProtocol}.
+ */
+public class BinaryProtocolTest {
+
+    private static final String[] COMMANDS = {"A0", "B45", "C120", "F180", "A90B45F30", "A91B46C120D90E90F30",
+            "PING", "PONG", "OK", "NAK:7", "HOME", "STATUS?", "A999", "A07", "B45A90"};
+
+    @Test
+    public void roundTrip_allCommandKinds() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (String command : COMMANDS) {
+            byte[] frame = encoder.encode(command);
+            stream.write(frame, 0, frame.length);
+        }
+
+        List<String> out = new ArrayList<>();
+        byte[] bytes = stream.toByteArray();
+        new BinaryProtocol.Decoder().feed(bytes, bytes.length, out);
+        assertArrayEquals(COMMANDS, out.toArray(new String[0]));
+    }
+
+    @Test
+    public void decoder_handlesFramesSplitAcrossReads() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder();
+        List<String> out = new ArrayList<>();
+        for (String command : COMMANDS) {
+            byte[] frame = encoder.encode(command);
+            for (byte b : frame) {
+                decoder.feed(new byte[]{b}, 1, out);
+            }
+        }
+        assertArrayEquals(COMMANDS, out.toArray(new String[0]));
+        assertEquals(0, decoder.getCrcErrorCount());
+    }
+
+    @Test
+    public void jointFrame_isFourBytes() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        byte[] frame = encoder.encode("C120");
+        assertEquals(4, frame.length);
+        assertEquals(BinaryProtocol.SYNC, frame[0] & 0xFF);
+        assertEquals(BinaryProtocol.OP_JOINT + 2, (frame[1] & 0xFF) >> 4);
+        assertEquals(120, frame[2] & 0xFF);
+    }
+
+    @Test
+    public void poseFrame_packsChangedJoints() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        byte[] frame = encoder.encode("A90B45F30");
+        assertEquals(7, frame.length);
+        assertEquals(BinaryProtocol.OP_POSE, (frame[1] & 0xFF) >> 4);
+        assertEquals(0b100011, frame[2] & 0xFF);
+        assertEquals(10, encoder.encode("A90B45C120D90E90F30").length);
+
+        // Out of order or repeated joints stay text so they round trip unchanged
+        assertEquals(BinaryProtocol.OP_TEXT, (encoder.encode("B45A90")[1] & 0xFF) >> 4);
+        assertEquals(BinaryProtocol.OP_TEXT, (encoder.encode("A1A2")[1] & 0xFF) >> 4);
+    }
+
+    @Test
+    public void encoder_numbersFramesAndKeepsHistory() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        byte[][] frames = new byte[20][];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = encoder.encode("A" + i);
+            assertEquals(i % 16, frames[i][1] & 0x0F);
+        }
+        assertSame(frames[19], encoder.getSentFrame(3));
+        assertSame(frames[4], encoder.getSentFrame(4));
+        assertNull(encoder.getSentFrame(16));
+    }
+
+    @Test
+    public void crc_detectsEverySingleByteCorruption() {
+        byte[] frame = new BinaryProtocol.Encoder().encode("B90");
+        for (int position = 1; position < frame.length; position++) {
+            for (int flip = 1; flip < 256; flip++) {
+                byte[] corrupted = frame.clone();
+                corrupted[position] ^= (byte) flip;
+                BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder();
+                List<String> out = new ArrayList<>();
+                decoder.feed(corrupted, corrupted.length, out);
+                // A corrupted opcode may leave the frame incomplete, but never accepted
+                assertTrue(out.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void decoder_resyncsAfterGarbageAndBadFrames() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(0x13);
+        stream.write(BinaryProtocol.SYNC);
+        byte[] bad = encoder.encode("D30");
+        bad[2] = 31;
+        stream.write(bad, 0, bad.length);
+        byte[] good = encoder.encode("D31");
+        stream.write(good, 0, good.length);
+        byte[] ping = encoder.encode("PING");
+        stream.write(ping, 0, ping.length);
+
+        BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder();
+        List<String> out = new ArrayList<>();
+        byte[] bytes = stream.toByteArray();
+        decoder.feed(bytes, bytes.length, out);
+
+        assertEquals(2, out.size());
+        assertEquals("D31", out.get(0));
+        assertEquals("PING", out.get(1));
+        assertTrue(decoder.getCrcErrorCount() >= 1);
+        assertEquals(2, decoder.getFrameCount());
+    }
+
+    @Test
+    public void parseNak_acceptsOnlyFourBitSequenceNumbers() {
+        assertEquals(0, BinaryProtocol.parseNak("NAK:0"));
+        assertEquals(15, BinaryProtocol.parseNak("NAK:15"));
+        assertEquals(-1, BinaryProtocol.parseNak("NAK:16"));
+        assertEquals(-1, BinaryProtocol.parseNak("NAK:-1"));
+        assertEquals(-1, BinaryProtocol.parseNak("NAK:"));
+        assertEquals(-1, BinaryProtocol.parseNak("NAK:1\u00007"));
+        assertEquals(-1, BinaryProtocol.parseNak("NAK:99999999999"));
+        assertEquals(-1, BinaryProtocol.parseNak("OK"));
+    }
+
+    @Test
+    public void jointStream_binaryIsUnderTwoThirdsOfAscii() {
+        List<String> commands = jointTicks(10_000);
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        int asciiBytes = 0;
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (String command : commands) {
+            asciiBytes += command.length();
+            byte[] frame = encoder.encode(command);
+            stream.write(frame, 0, frame.length);
+        }
+
+        List<String> out = new ArrayList<>();
+        byte[] bytes = stream.toByteArray();
+        new BinaryProtocol.Decoder().feed(bytes, bytes.length, out);
+        assertEquals(commands, out);
+        assertTrue(bytes.length * 3 < asciiBytes * 2);
+    }
+
+    @Test
+    public void resend_answersLostSetpointWithCurrentPose() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        byte[] lostPose = encoder.encode("A90B90");
+        byte[] lostJoint = encoder.encode("C45");
+        encoder.encode("A95");
+        byte[] ping = encoder.encode("PING");
+
+        // Replaying either would send the arm back to a superseded target
+        BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder();
+        List<String> out = new ArrayList<>();
+        feed(decoder, encoder.getResendFrame(lostPose[1] & 0x0F), out);
+        feed(decoder, encoder.getResendFrame(lostJoint[1] & 0x0F), out);
+        assertEquals("A95B90C45", out.get(0));
+        assertEquals("A95B90C45", out.get(1));
+
+        // Anything else goes out again as sent
+        assertSame(ping, encoder.getResendFrame(ping[1] & 0x0F));
+    }
+
+    @Test
+    public void delta_packsSmallMovesAndKeyframesPeriodically() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        encoder.setDeltaEncoding(true);
+        BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder();
+        List<String> out = new ArrayList<>();
+
+        // First setpoint is an absolute keyframe, then deltas
+        feed(decoder, encoder.encode("A90B90C90D90E90F90"), out);
+        byte[] delta = encoder.encode("A92B88C97D90E83F90");
+        assertEquals(BinaryProtocol.OP_DELTA, (delta[1] & 0xFF) >> 4);
+        assertEquals(7, delta.length);
+        feed(decoder, delta, out);
+        assertEquals("A92B88C97D90E83F90", out.get(1));
+
+        // Odd joint count, and a move too large for a nibble falls back to absolute
+        feed(decoder, encoder.encode("B86"), out);
+        assertEquals(6, encoder.encode("A93C96E82").length);
+        byte[] jump = encoder.encode("F120");
+        assertEquals(BinaryProtocol.OP_JOINT + 5, (jump[1] & 0xFF) >> 4);
+
+        // The keyframe interval restates the whole pose
+        int keyframes = 0;
+        for (int i = 0; i < 3 * BinaryProtocol.KEYFRAME_INTERVAL; i++) {
+            byte[] frame = encoder.encode("A" + (93 + i % 2));
+            if ((frame[1] & 0xFF) >> 4 == BinaryProtocol.OP_POSE) {
+                keyframes++;
+                assertEquals(10, frame.length);
+            }
+        }
+        assertEquals(3, keyframes);
+    }
+
+    @Test
+    public void delta_decoderNeverAppliesDeltasAfterLoss() {
+        BinaryProtocol.Encoder encoder = new BinaryProtocol.Encoder();
+        encoder.setDeltaEncoding(true);
+        BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder();
+        List<String> out = new ArrayList<>();
+
+        feed(decoder, encoder.encode("A90B90"), out);
+        byte[] lost = encoder.encode("A91B91");
+        feed(decoder, encoder.encode("A92B92"), out);
+        feed(decoder, encoder.encode("A93B93"), out);
+        assertEquals(1, out.size());
+        assertEquals(1, decoder.getLostFrames());
+        assertEquals(2, decoder.getIgnoredDeltas());
+
+        // NAK for the lost delta is answered with a keyframe of the current pose
+        int lostSeq = lost[1] & 0x0F;
+        feed(decoder, encoder.getResendFrame(lostSeq), out);
+        feed(decoder, encoder.encode("A94B94"), out);
+        assertEquals("A93B93", out.get(1));
+        assertEquals("A94B94", out.get(2));
+    }
+
+    @Test
+    public void delta_streamDecodesExactlyAndSavesBytes() {
+        List<String> commands = new ArrayList<>();
+        streamMoves(200, commands);
+
+        long absoluteBytes = 0;
+        BinaryProtocol.Encoder absolute = new BinaryProtocol.Encoder();
+        BinaryProtocol.Encoder delta = new BinaryProtocol.Encoder();
+        delta.setDeltaEncoding(true);
+        ByteArrayOutputStream deltaStream = new ByteArrayOutputStream();
+        for (String command : commands) {
+            absoluteBytes += absolute.encode(command).length;
+            byte[] frame = delta.encode(command);
+            deltaStream.write(frame, 0, frame.length);
+        }
+
+        BinaryProtocol.Decoder decoder = new BinaryProtocol.Decoder();
+        List<String> out = new ArrayList<>();
+        byte[] bytes = deltaStream.toByteArray();
+        decoder.feed(bytes, bytes.length, out);
+
+        // Decoded absolute angles must match every streamed setpoint
+        int[] decoded = {90, 90, 90, 90, 90, 90};
+        int[] expected = {90, 90, 90, 90, 90, 90};
+        assertEquals(commands.size(), out.size());
+        for (int i = 0; i < commands.size(); i++) {
+            applyAscii(commands.get(i), expected);
+            applyAscii(out.get(i), decoded);
+            assertArrayEquals(toObjects(expected), toObjects(decoded));
+        }
+        assertTrue(bytes.length < absoluteBytes * 0.85);
+    }
+
+    /**
+     * ArmMotionStreamer ticks: every joint on even ticks, two joints on odd ones.
+     */
+    static List<String> jointTicks(int ticks) {
+        List<String> commands = new ArrayList<>();
+        for (int tick = 0; tick < ticks; tick++) {
+            StringBuilder command = new StringBuilder();
+            for (int joint = 0; joint < TrajectoryPlanner.JOINT_COUNT; joint++) {
+                if (tick % 2 == 0 || joint < 2) {
+                    command.append(TrajectoryPlanner.JOINT_PREFIXES[joint]).append(60 + (tick + joint * 7) % 120);
+                }
+            }
+            commands.add(command.toString());
+        }
+        return commands;
+    }
+
+    /**
+     * Random pick-and-place moves streamed at the 50 Hz control rate, as ArmMotionStreamer
+     * does. Adds the commands to {@code commands} and returns the seconds they span.
+     */
+    static float streamMoves(int moves, List<String> commands) {
+        Random random = new Random(42);
+        TrajectoryPlanner planner = new TrajectoryPlanner();
+        float[] pose = {90, 90, 90, 90, 90, 90};
+        float[] goal = new float[TrajectoryPlanner.JOINT_COUNT];
+        float[] setpoint = new float[TrajectoryPlanner.JOINT_COUNT];
+        int[] sent = {90, 90, 90, 90, 90, 90};
+        float streamedSeconds = 0f;
+        float dt = 1f / ArmMotionStreamer.CONTROL_RATE_HZ;
+        for (int move = 0; move < moves; move++) {
+            for (int i = 0; i < goal.length; i++) {
+                goal[i] = 20 + random.nextInt(141);
+            }
+            float duration = planner.plan(pose, goal);
+            for (float t = 0f; t < duration + dt; t += dt) {
+                planner.sample(Math.min(t, duration), setpoint);
+                StringBuilder command = new StringBuilder();
+                for (int i = 0; i < setpoint.length; i++) {
+                    int angle = Math.round(setpoint[i]);
+                    if (angle != sent[i]) {
+                        sent[i] = angle;
+                        command.append(TrajectoryPlanner.JOINT_PREFIXES[i]).append(angle);
+                    }
+                }
+                if (command.length() > 0) commands.add(command.toString());
+            }
+            streamedSeconds += duration;
+            System.arraycopy(goal, 0, pose, 0, pose.length);
+        }
+        return streamedSeconds;
+    }
+
+    private static void feed(BinaryProtocol.Decoder decoder, byte[] frame, List<String> out) {
+        decoder.feed(frame, frame.length, out);
+    }
+
+    private static void applyAscii(String command, int[] angles) {
+        int i = 0;
+        while (i < command.length()) {
+            int joint = command.charAt(i++) - 'A';
+            int angle = 0;
+            while (i < command.length() && Character.isDigit(command.charAt(i))) {
+                angle = angle * 10 + (command.charAt(i++) - '0');
+            }
+            angles[joint] = angle;
+        }
+    }
+
+    private static Integer[] toObjects(int[] values) {
+        Integer[] objects = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) objects[i] = values[i];
+        return objects;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.treebotmonitor;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Packets, air bytes and caller time for {@link CoalescingWriter} against writing every
+ * command directly, over the simulated link in {@link CoalescingWriterTest}. Run
+ * {@link #main} by hand; it is not a unit test because the numbers depend on the machine.
+ */
+public class CoalescingWriterBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        coalescedVersusDirect();
+        singleCommandDelay();
+    }
+
+    private static void coalescedVersusDirect() throws IOException, InterruptedException {
+        // Joint bursts as streamed by ArmMotionStreamer, at several tick rates
+        int[] tickRatesHz = {50, 100, 200};
+        for (int rate : tickRatesHz) {
+            CoalescingWriterTest.LoopbackLink direct = new CoalescingWriterTest.LoopbackLink();
+            CoalescingWriterTest.LoopbackLink coalesced = new CoalescingWriterTest.LoopbackLink();
+            CoalescingWriter writer = new CoalescingWriter(coalesced, Throwable::printStackTrace);
+
+            long periodNs = 1_000_000_000L / rate;
+            int ticks = rate / 2;
+            long directBusyNs = 0;
+            long coalescedBusyNs = 0;
+            // Separate runs, so each path sees the producer timing it would really get
+            for (int pass = 0; pass < 2; pass++) {
+                for (int tick = 0; tick < ticks; tick++) {
+                    long tickStart = System.nanoTime();
+                    for (int joint = 0; joint < TrajectoryPlanner.JOINT_COUNT; joint++) {
+                        byte[] command = (TrajectoryPlanner.JOINT_PREFIXES[joint] + (90 + tick % 10)).getBytes();
+                        long start = System.nanoTime();
+                        if (pass == 0) {
+                            // Write and flush every command on the caller's thread
+                            direct.write(command, 0, command.length);
+                            direct.flush();
+                            directBusyNs += System.nanoTime() - start;
+                        } else {
+                            writer.submit(command);
+                            coalescedBusyNs += System.nanoTime() - start;
+                        }
+                    }
+                    LockSupport.parkNanos(periodNs - (System.nanoTime() - tickStart));
+                }
+            }
+            closeAndWait(writer);
+
+            System.out.println(String.format(Locale.US,
+                    "%d Hz x %d joints: direct %d packets %d air bytes (%.3f ms caller time/tick), "
+                            + "coalesced %d packets %d air bytes (%.3f ms caller time/tick, %.1f commands/packet)",
+                    rate, TrajectoryPlanner.JOINT_COUNT, direct.packets, direct.airBytes(),
+                    directBusyNs / 1e6 / ticks, coalesced.packets, coalesced.airBytes(),
+                    coalescedBusyNs / 1e6 / ticks, writer.getBatchFactor()));
+        }
+    }
+
+    private static void singleCommandDelay() throws InterruptedException {
+        CoalescingWriterTest.LoopbackLink link = new CoalescingWriterTest.LoopbackLink();
+        CoalescingWriter writer = new CoalescingWriter(link, Throwable::printStackTrace);
+
+        // Human-rate buttons, 10 commands per second
+        int count = 10;
+        long[] submitTimes = new long[count];
+        for (int i = 0; i < count; i++) {
+            submitTimes[i] = System.nanoTime();
+            writer.submit("FORWARD*".getBytes());
+            LockSupport.parkNanos(100_000_000L);
+        }
+        closeAndWait(writer);
+
+        long totalNs = 0;
+        long maxNs = 0;
+        for (int i = 0; i < count; i++) {
+            long latency = link.flushTimes.get(i) - submitTimes[i] - CoalescingWriterTest.PACKET_TIME_NS;
+            totalNs += latency;
+            maxNs = Math.max(maxNs, latency);
+        }
+        System.out.println(String.format(Locale.US,
+                "Single commands: queueing delay avg %.3f ms, max %.3f ms",
+                totalNs / 1e6 / count, maxNs / 1e6));
+    }
+
+    private static void closeAndWait(CoalescingWriter writer) throws InterruptedException {
+        CountDownLatch closed = new CountDownLatch(1);
+        writer.close(closed::countDown);
+        closed.await();
+    }
+}
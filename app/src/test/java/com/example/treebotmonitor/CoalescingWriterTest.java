@@ -0,0 +1,194 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CoalescingWriter}.
+ */
+public class CoalescingWriterTest {
+
+    // Simulated cost of one RFCOMM packet and its L2CAP/RFCOMM/ACL header size
+    static final long PACKET_TIME_NS = 400_000;
+    private static final int PACKET_HEADER_BYTES = 12;
+
+    /**
+     * Loopback link: records what arrives and charges a fixed time per flushed packet.
+     */
+    static class LoopbackLink extends OutputStream {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        final List<Long> flushTimes = new ArrayList<>();
+        int unflushed = 0;
+        int packets = 0;
+
+        @Override
+        public synchronized void write(int b) {
+            received.write(b);
+            unflushed++;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            received.write(b, off, len);
+            unflushed += len;
+        }
+
+        @Override
+        public void flush() {
+            long end = System.nanoTime() + PACKET_TIME_NS;
+            while (System.nanoTime() < end) {
+                // Busy wait, the radio is occupied
+            }
+            synchronized (this) {
+                if (unflushed == 0) return;
+                unflushed = 0;
+                packets++;
+                flushTimes.add(System.nanoTime());
+            }
+        }
+
+        synchronized int airBytes() {
+            return received.size() + packets * PACKET_HEADER_BYTES;
+        }
+    }
+
+    /**
+     * Link whose first write blocks until released, as when the radio stalls.
+     */
+    private static class StalledLink extends ByteArrayOutputStream {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                super.write(b, off, len);
+            }
+        }
+    }
+
+    private static void closeAndWait(CoalescingWriter writer) throws InterruptedException {
+        CountDownLatch closed = new CountDownLatch(1);
+        writer.close(closed::countDown);
+        assertTrue(closed.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void submit_preservesOrderAndBytes() throws InterruptedException {
+        LoopbackLink link = new LoopbackLink();
+        CoalescingWriter writer = new CoalescingWriter(link, e -> fail(e.toString()));
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            String command = TrajectoryPlanner.JOINT_PREFIXES[i % 6] + (i % 181);
+            expected.append(command);
+            assertTrue(writer.submit(command.getBytes()));
+        }
+        closeAndWait(writer);
+
+        assertEquals(expected.toString(), link.received.toString());
+        assertEquals(200, writer.getCommandCount());
+        assertEquals(expected.length(), writer.getByteCount());
+        assertTrue(writer.getWriteCount() < 200);
+        assertFalse(writer.submit("A0".getBytes()));
+    }
+
+    @Test
+    public void stalledLink_dropsOnlySupersededSetpoints() throws InterruptedException {
+        StalledLink link = new StalledLink();
+        int[] dropped = {0};
+        CoalescingWriter writer = new CoalescingWriter(link, new CoalescingWriter.Listener() {
+            @Override
+            public void onWriteError(IOException e) {
+                fail(e.toString());
+            }
+
+            @Override
+            public void onSetpointsDropped(int count) {
+                dropped[0] += count;
+            }
+        });
+
+        writer.submit("PING".getBytes());
+        assertTrue(link.writing.await(1, TimeUnit.SECONDS));
+        // Queued behind the stalled write: one elbow setpoint, a STOP, then a long stream of
+        // base and shoulder setpoints
+        writer.submit("C10".getBytes(), 0b100);
+        writer.submit("STOP*".getBytes());
+        String last = null;
+        int setpoints = 300;
+        for (int i = 0; i < setpoints; i++) {
+            last = "A" + (100 + i % 80) + "B" + (100 + i % 80);
+            assertTrue(writer.submit(last.getBytes(), 0b11));
+        }
+        link.release.countDown();
+        closeAndWait(writer);
+
+        String received = link.toString();
+        assertTrue(received.startsWith("PINGC10STOP*"));
+        assertTrue(received.endsWith(last));
+        assertTrue(received.length() <= "PINGC10STOP*".length() + CoalescingWriter.MAX_QUEUE_BYTES);
+        assertTrue(dropped[0] > 0);
+        assertEquals(dropped[0], writer.getDroppedSetpointCount());
+        assertEquals(3 + setpoints, writer.getCommandCount() + dropped[0]);
+    }
+
+    @Test
+    public void close_doesNotWaitForAStalledWrite() throws InterruptedException {
+        StalledLink link = new StalledLink();
+        CoalescingWriter writer = new CoalescingWriter(link, e -> fail(e.toString()));
+        writer.submit("STOP*".getBytes());
+        assertTrue(link.writing.await(1, TimeUnit.SECONDS));
+
+        CountDownLatch closed = new CountDownLatch(1);
+        writer.close(closed::countDown);
+        // close returned while the write is still stuck
+        assertEquals(1, closed.getCount());
+        assertFalse(writer.submit("A90".getBytes()));
+
+        link.release.countDown();
+        assertTrue(closed.await(1, TimeUnit.SECONDS));
+        assertEquals("STOP*", link.toString());
+    }
+
+    @Test
+    public void writeError_reachesListener() throws InterruptedException {
+        final IOException[] error = new IOException[1];
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("socket closed");
+            }
+        };
+        CoalescingWriter writer = new CoalescingWriter(broken, e -> {
+            synchronized (error) {
+                error[0] = e;
+                error.notifyAll();
+            }
+        });
+        writer.submit("STOP*".getBytes());
+        synchronized (error) {
+            long end = System.currentTimeMillis() + 1000;
+            while (error[0] == null && System.currentTimeMillis() < end) {
+                error.wait(50);
+            }
+        }
+        closeAndWait(writer);
+        assertNotNull(error[0]);
+        assertEquals(0, writer.getWriteCount());
+    }
+}
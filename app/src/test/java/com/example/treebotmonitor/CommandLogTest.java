@@ -0,0 +1,89 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CommandLog}.
+ */
+public class CommandLogTest {
+
+    @Test
+    public void record_writesTimestampDirectionAndText() throws InterruptedException {
+        ClosingWriter out = new ClosingWriter();
+        AtomicLong clock = new AtomicLong(1_000);
+        CommandLog log = new CommandLog(out, () -> clock.getAndAdd(250));
+
+        log.record(CommandLog.SENT, "A90B45");
+        log.record(CommandLog.RECEIVED, "OK");
+        log.note("video segment-0.mp4 starts at 1500");
+        log.close();
+        log.record(CommandLog.SENT, "F30"); // After close, dropped
+
+        assertTrue(out.closed.await(1, TimeUnit.SECONDS));
+        String nl = System.lineSeparator();
+        assertEquals("1000 > A90B45" + nl
+                + "1250 < OK" + nl
+                + "1500 # video segment-0.mp4 starts at 1500" + nl, out.toString());
+    }
+
+    @Test
+    public void record_takesTimestampOnCallingThread() throws InterruptedException {
+        ClosingWriter out = new ClosingWriter();
+        long[] now = {5_000};
+        CommandLog log = new CommandLog(out, () -> now[0]);
+
+        // The clock moves on before the background thread writes; the line keeps the call time
+        log.record(CommandLog.SENT, "PING");
+        now[0] = 9_000;
+        log.close();
+
+        assertTrue(out.closed.await(1, TimeUnit.SECONDS));
+        assertEquals("5000 > PING" + System.lineSeparator(), out.toString());
+    }
+
+    @Test
+    public void close_whileOtherThreadsRecordNeverThrows() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            ClosingWriter out = new ClosingWriter();
+            CommandLog log = new CommandLog(out, System::nanoTime);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread[] recorders = new Thread[4];
+            for (int t = 0; t < recorders.length; t++) {
+                recorders[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 1_000; i++) {
+                            log.record(CommandLog.RECEIVED, "OK");
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                });
+                recorders[t].start();
+            }
+            log.close();
+            log.close();
+            for (Thread recorder : recorders) {
+                recorder.join();
+            }
+            assertNull(failure.get());
+            assertTrue(out.closed.await(1, TimeUnit.SECONDS));
+        }
+    }
+
+    private static class ClosingWriter extends StringWriter {
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
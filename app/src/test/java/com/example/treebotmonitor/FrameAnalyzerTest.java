@@ -0,0 +1,70 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrameAnalyzer}.
+ */
+public class FrameAnalyzerTest {
+
+    @Test
+    public void slowAnalysis_dropsStaleFramesAndEndsOnFreshest() throws InterruptedException {
+        CameraFrame.Pool pool = new CameraFrame.Pool(3, 64, 48);
+        AtomicLong lastAnalyzed = new AtomicLong(-1);
+        CountDownLatch sawFinalFrame = new CountDownLatch(1);
+        int frames = 50;
+
+        FrameAnalyzer analyzer = new FrameAnalyzer(frame -> {
+            lastAnalyzed.set(frame.timestampNs);
+            if (frame.timestampNs == frames - 1) {
+                sawFinalFrame.countDown();
+            }
+            sleep(5);
+        }, () -> frames);
+
+        // Camera faster than analysis: every submit finds a free buffer, never more than three in use
+        for (int i = 0; i < frames; i++) {
+            CameraFrame frame = null;
+            while (frame == null) {
+                frame = pool.acquire();
+            }
+            frame.timestampNs = i;
+            analyzer.submit(frame);
+            sleep(1);
+        }
+
+        assertTrue(sawFinalFrame.await(2, TimeUnit.SECONDS));
+        assertEquals(frames - 1, lastAnalyzed.get());
+        assertTrue(analyzer.getDroppedFrames() > 0);
+        // Give the analysis thread a moment to release the final frame
+        sleep(20);
+        assertEquals(frames, analyzer.getDroppedFrames() + analyzer.getAnalyzedFrames());
+        assertEquals(3, pool.available());
+        assertEquals(1, analyzer.getLastLatencyNs());
+        analyzer.release();
+    }
+
+    @Test
+    public void release_returnsPendingFrame() {
+        CameraFrame.Pool pool = new CameraFrame.Pool(2, 64, 48);
+        FrameAnalyzer analyzer = new FrameAnalyzer(frame -> { }, () -> 0);
+        analyzer.release();
+
+        analyzer.submit(pool.acquire());
+        assertEquals(2, pool.available());
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
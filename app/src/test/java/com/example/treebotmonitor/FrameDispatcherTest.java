@@ -0,0 +1,68 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrameDispatcher}.
+ */
+public class FrameDispatcherTest {
+
+    @Test
+    public void stopAndStart_keepsDeliveringToTheListener() {
+        FrameDispatcher dispatcher = new FrameDispatcher();
+        List<CameraFrame> received = new ArrayList<>();
+        dispatcher.setListener(frame -> {
+            received.add(frame);
+            frame.release();
+        });
+        CameraFrame.Pool pool = new CameraFrame.Pool(2, 4, 4);
+
+        dispatcher.setRunning(true);
+        dispatcher.deliver(dispatcher.acquire(pool));
+        assertEquals(1, received.size());
+
+        // Surface destroyed, as when the app goes to the background
+        dispatcher.setRunning(false);
+        assertNull(dispatcher.acquire(pool));
+
+        // Surface recreated; the listener registered in onCreate still gets frames
+        dispatcher.setRunning(true);
+        dispatcher.deliver(dispatcher.acquire(pool));
+        assertEquals(2, received.size());
+        assertEquals(2, dispatcher.getDeliveredFrames());
+        assertEquals(2, pool.available());
+    }
+
+    @Test
+    public void deliver_releasesFrameFilledAfterStop() {
+        FrameDispatcher dispatcher = new FrameDispatcher();
+        List<CameraFrame> received = new ArrayList<>();
+        dispatcher.setListener(received::add);
+        CameraFrame.Pool pool = new CameraFrame.Pool(1, 4, 4);
+
+        dispatcher.setRunning(true);
+        CameraFrame frame = dispatcher.acquire(pool);
+        dispatcher.setRunning(false);
+        dispatcher.deliver(frame);
+
+        assertTrue(received.isEmpty());
+        assertEquals(1, pool.available());
+    }
+
+    @Test
+    public void acquire_dropsImageWhenEveryFrameIsHeld() {
+        FrameDispatcher dispatcher = new FrameDispatcher();
+        dispatcher.setListener(frame -> { });
+        CameraFrame.Pool pool = new CameraFrame.Pool(1, 4, 4);
+        dispatcher.setRunning(true);
+
+        dispatcher.deliver(dispatcher.acquire(pool));
+        assertNull(dispatcher.acquire(pool));
+        assertEquals(1, dispatcher.getDroppedFrames());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.treebotmonitor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Detection time of {@link FruitDetector} against the camera frame period. Run
+ * {@link #main} by hand from the module directory; it is not a unit test because the
+ * numbers depend on the machine.
+ *
+ * Uses raw I420 frames from src/test/resources/frames (*.yuv at 640x480) when present,
+ * otherwise synthetic orchard-like frames.
+ */
+public class FruitDetectorBenchmark {
+
+    private static final int WIDTH = HarvestCamera.DEFAULT_WIDTH;
+    private static final int HEIGHT = HarvestCamera.DEFAULT_HEIGHT;
+    private static final String FRAMES_DIR = "src/test/resources/frames";
+
+    public static void main(String[] args) throws IOException {
+        List<CameraFrame> frames = loadStoredFrames();
+        String source = "stored";
+        if (frames.isEmpty()) {
+            frames = FruitDetectorTest.synthesizeFrames(8, new Random(11));
+            source = "synthetic";
+        }
+
+        FruitDetector detector = new FruitDetector(WIDTH, HEIGHT, Runtime.getRuntime().availableProcessors());
+        // Warm up
+        for (int i = 0; i < 200; i++) {
+            detector.detect(frames.get(i % frames.size()));
+        }
+
+        int iterations = 1_000;
+        long startNs = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            detector.detect(frames.get(i % frames.size()));
+        }
+        long perFrameNs = (System.nanoTime() - startNs) / iterations;
+        long periodNs = 1_000_000_000L / HarvestCamera.DEFAULT_FPS;
+        detector.release();
+
+        System.out.println("FruitDetector: " + (perFrameNs / 1000) + " us per " + WIDTH + "x" + HEIGHT
+                + " frame (" + frames.size() + " " + source + " frames), budget "
+                + (periodNs / 1000) + " us at " + HarvestCamera.DEFAULT_FPS + " fps");
+    }
+
+    private static List<CameraFrame> loadStoredFrames() throws IOException {
+        List<CameraFrame> frames = new ArrayList<>();
+        File[] files = new File(FRAMES_DIR).listFiles((dir, name) -> name.endsWith(".yuv"));
+        if (files == null) return frames;
+
+        Arrays.sort(files);
+        CameraFrame.Pool pool = new CameraFrame.Pool(files.length, WIDTH, HEIGHT);
+        for (File file : files) {
+            CameraFrame frame = pool.acquire();
+            try (InputStream in = new FileInputStream(file)) {
+                readFully(in, frame.y);
+                readFully(in, frame.u);
+                readFully(in, frame.v);
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static void readFully(InputStream in, byte[] out) throws IOException {
+        int read = 0;
+        while (read < out.length) {
+            int n = in.read(out, read, out.length - read);
+            if (n < 0) throw new IOException("Truncated frame");
+            read += n;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FruitDetector}.
+ */
+public class FruitDetectorTest {
+
+    private static final int WIDTH = HarvestCamera.DEFAULT_WIDTH;
+    private static final int HEIGHT = HarvestCamera.DEFAULT_HEIGHT;
+
+    @Test
+    public void detect_findsBlobCentroidAndArea() {
+        FruitDetector detector = new FruitDetector(WIDTH, HEIGHT, 4);
+        CameraFrame frame = background(new CameraFrame.Pool(1, WIDTH, HEIGHT).acquire());
+        paintFruit(frame, 100, 60, 40, 30);
+
+        assertEquals(1, detector.detect(frame));
+        FruitDetector.Blob blob = detector.getBlob(0);
+        assertEquals(120f, blob.centerX, 1f);
+        assertEquals(75f, blob.centerY, 1f);
+        assertEquals(40 * 30, blob.area);
+        assertEquals(100, blob.left);
+        assertEquals(60, blob.top);
+        assertEquals(139, blob.right);
+        assertEquals(89, blob.bottom);
+        detector.release();
+    }
+
+    @Test
+    public void detect_separatesBlobsLargestFirst() {
+        FruitDetector detector = new FruitDetector(WIDTH, HEIGHT, 3);
+        CameraFrame frame = background(new CameraFrame.Pool(1, WIDTH, HEIGHT).acquire());
+        paintFruit(frame, 20, 20, 20, 20);
+        paintFruit(frame, 400, 300, 60, 40);
+
+        assertEquals(2, detector.detect(frame));
+        assertEquals(60 * 40, detector.getBlob(0).area);
+        assertEquals(20 * 20, detector.getBlob(1).area);
+        detector.release();
+    }
+
+    @Test
+    public void detect_mergesBlobAcrossTileBorders() {
+        // Eight strips of 30 analysis rows each, the fruit spans several of them
+        FruitDetector detector = new FruitDetector(WIDTH, HEIGHT, 8);
+        CameraFrame frame = background(new CameraFrame.Pool(1, WIDTH, HEIGHT).acquire());
+        paintFruit(frame, 300, 40, 30, 200);
+
+        assertEquals(1, detector.detect(frame));
+        assertEquals(30 * 200, detector.getBlob(0).area);
+        assertEquals(140f, detector.getBlob(0).centerY, 1f);
+        detector.release();
+    }
+
+    @Test
+    public void detectRegion_onlyScansInsideRegion() {
+        FruitDetector detector = new FruitDetector(WIDTH, HEIGHT, 4);
+        CameraFrame frame = background(new CameraFrame.Pool(1, WIDTH, HEIGHT).acquire());
+        paintFruit(frame, 20, 20, 20, 20);
+        paintFruit(frame, 400, 300, 60, 40);
+
+        assertEquals(1, detector.detect(frame, 0, 0, 100, 100));
+        assertEquals(30f, detector.getBlob(0).centerX, 1f);
+        // Region border cuts the blob
+        assertEquals(1, detector.detect(frame, 420, 280, 520, 380));
+        assertEquals(40 * 40, detector.getBlob(0).area);
+        assertEquals(0, detector.detect(frame, 200, 200, 300, 260));
+        detector.release();
+    }
+
+    @Test
+    public void detect_ignoresSpecksBelowMinArea() {
+        FruitDetector detector = new FruitDetector(WIDTH, HEIGHT, 2);
+        CameraFrame frame = background(new CameraFrame.Pool(1, WIDTH, HEIGHT).acquire());
+        paintFruit(frame, 50, 50, 4, 4);
+
+        assertEquals(0, detector.detect(frame));
+        detector.release();
+    }
+
+    @Test
+    public void detect_sameResultForAnyThreadCount() {
+        CameraFrame frame = synthesizeFrames(1, new Random(3)).get(0);
+        FruitDetector single = new FruitDetector(WIDTH, HEIGHT, 1);
+        FruitDetector parallel = new FruitDetector(WIDTH, HEIGHT, 6);
+
+        int count = single.detect(frame);
+        assertEquals(count, parallel.detect(frame));
+        for (int i = 0; i < count; i++) {
+            assertEquals(single.getBlob(i).area, parallel.getBlob(i).area);
+            assertEquals(single.getBlob(i).centerX, parallel.getBlob(i).centerX, 1e-3f);
+            assertEquals(single.getBlob(i).centerY, parallel.getBlob(i).centerY, 1e-3f);
+        }
+        single.release();
+        parallel.release();
+    }
+
+    /**
+     * Noisy foliage background with a handful of fruit-coloured patches.
+     */
+    static List<CameraFrame> synthesizeFrames(int count, Random random) {
+        CameraFrame.Pool pool = new CameraFrame.Pool(count, WIDTH, HEIGHT);
+        List<CameraFrame> frames = new ArrayList<>();
+        for (int f = 0; f < count; f++) {
+            CameraFrame frame = pool.acquire();
+            for (int i = 0; i < frame.y.length; i++) {
+                frame.y[i] = (byte) (60 + random.nextInt(120));
+            }
+            for (int i = 0; i < frame.u.length; i++) {
+                frame.u[i] = (byte) (110 + random.nextInt(40));
+                frame.v[i] = (byte) (90 + random.nextInt(50));
+            }
+            int fruits = 3 + random.nextInt(6);
+            for (int i = 0; i < fruits; i++) {
+                int size = 16 + random.nextInt(48);
+                paintFruit(frame, random.nextInt(WIDTH - size), random.nextInt(HEIGHT - size), size, size);
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    private static CameraFrame background(CameraFrame frame) {
+        Arrays.fill(frame.y, (byte) 100);
+        Arrays.fill(frame.u, (byte) 128);
+        Arrays.fill(frame.v, (byte) 128);
+        return frame;
+    }
+
+    /**
+     * Paint a ripe-coloured rectangle, coordinates in full-frame pixels (even values).
+     */
+    private static void paintFruit(CameraFrame frame, int left, int top, int width, int height) {
+        for (int row = top; row < top + height; row++) {
+            Arrays.fill(frame.y, row * frame.width + left, row * frame.width + left + width, (byte) 140);
+        }
+        int chromaWidth = frame.width / 2;
+        for (int row = top / 2; row < (top + height) / 2; row++) {
+            Arrays.fill(frame.u, row * chromaWidth + left / 2, row * chromaWidth + (left + width) / 2, (byte) 100);
+            Arrays.fill(frame.v, row * chromaWidth + left / 2, row * chromaWidth + (left + width) / 2, (byte) 190);
+        }
+    }
+}
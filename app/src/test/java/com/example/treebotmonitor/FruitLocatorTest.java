@@ -0,0 +1,76 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FruitLocator}.
+ */
+public class FruitLocatorTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    // Gripper level and facing forward along x
+    private static final float[] LEVEL_POSE = {90, 45, 135, 90, 90, 30};
+
+    private final FruitLocator locator = new FruitLocator(
+            FruitLocator.DEFAULT_HORIZONTAL_FOV, FruitLocator.DEFAULT_FRUIT_DIAMETER);
+
+    @Test
+    public void locate_centredFruitLiesAheadOfGripperAtItsDepth() {
+        float[] gripper = new float[3];
+        ArmKinematics kinematics = new ArmKinematics();
+        kinematics.forward(LEVEL_POSE, gripper);
+        assertEquals(0f, kinematics.getForwardPitch(), 1e-4f);
+
+        float[] xyz = new float[3];
+        locator.locate(LEVEL_POSE, blobAt(WIDTH / 2f, HEIGHT / 2f, 0.3f), WIDTH, HEIGHT, xyz);
+        assertEquals(gripper[0] + 0.3f, xyz[0], 0.005f);
+        assertEquals(gripper[1], xyz[1], 1e-4f);
+        assertEquals(gripper[2], xyz[2], 1e-4f);
+    }
+
+    @Test
+    public void locate_imageOffsetsMapToArmDirections() {
+        float[] centre = new float[3];
+        float[] offset = new float[3];
+        locator.locate(LEVEL_POSE, blobAt(WIDTH / 2f, HEIGHT / 2f, 0.3f), WIDTH, HEIGHT, centre);
+
+        // Right in the image is towards -y, down is towards -z, at the same depth
+        locator.locate(LEVEL_POSE, blobAt(WIDTH * 0.75f, HEIGHT / 2f, 0.3f), WIDTH, HEIGHT, offset);
+        assertTrue(offset[1] < centre[1] - 0.05f);
+        assertEquals(centre[0], offset[0], 0.005f);
+        locator.locate(LEVEL_POSE, blobAt(WIDTH / 2f, HEIGHT * 0.75f, 0.3f), WIDTH, HEIGHT, offset);
+        assertTrue(offset[2] < centre[2] - 0.03f);
+
+        // A smaller blob is further away
+        locator.locate(LEVEL_POSE, blobAt(WIDTH / 2f, HEIGHT / 2f, 0.6f), WIDTH, HEIGHT, offset);
+        assertEquals(centre[0] + 0.3f, offset[0], 0.01f);
+    }
+
+    @Test
+    public void locate_followsBaseYaw() {
+        float[] turned = LEVEL_POSE.clone();
+        turned[0] = 180; // Base turned to face +y
+        float[] gripper = new float[3];
+        new ArmKinematics().forward(turned, gripper);
+
+        float[] xyz = new float[3];
+        locator.locate(turned, blobAt(WIDTH / 2f, HEIGHT / 2f, 0.3f), WIDTH, HEIGHT, xyz);
+        assertEquals(gripper[0], xyz[0], 0.005f);
+        assertEquals(gripper[1] + 0.3f, xyz[1], 0.005f);
+    }
+
+    private FruitDetector.Blob blobAt(float centerX, float centerY, float depth) {
+        int width = Math.round(locator.getFocalLength(WIDTH) * FruitLocator.DEFAULT_FRUIT_DIAMETER / depth);
+        FruitDetector.Blob blob = new FruitDetector.Blob();
+        blob.centerX = centerX;
+        blob.centerY = centerY;
+        blob.left = Math.round(centerX - width / 2f);
+        blob.right = blob.left + width - 1;
+        blob.top = Math.round(centerY - width / 2f);
+        blob.bottom = blob.top + width - 1;
+        return blob;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.treebotmonitor;
+
+import java.util.Random;
+
+/**
+ * CPU time of {@link FruitTracker} against full-frame detection on every frame. Run
+ * {@link #main} by hand; it is not a unit test because the numbers depend on the machine.
+ */
+public class FruitTrackerBenchmark {
+
+    private static final int WIDTH = HarvestCamera.DEFAULT_WIDTH;
+    private static final int HEIGHT = HarvestCamera.DEFAULT_HEIGHT;
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        FruitDetector detector = new FruitDetector(WIDTH, HEIGHT, threads);
+        FruitTracker tracker = new FruitTracker(detector);
+        CameraFrame[] frames = movingSequence(60, new Random(5));
+
+        // Warm up both paths
+        for (int i = 0; i < 300; i++) {
+            detector.detect(frames[i % frames.length]);
+            tracker.update(frames[i % frames.length]);
+        }
+
+        int iterations = 1_200;
+        long startNs = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            detector.detect(frames[i % frames.length]);
+        }
+        long fullNs = (System.nanoTime() - startNs) / iterations;
+
+        tracker.reset();
+        startNs = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            tracker.update(frames[i % frames.length]);
+        }
+        long trackedNs = (System.nanoTime() - startNs) / iterations;
+        detector.release();
+
+        System.out.println("FruitTracker: " + (trackedNs / 1000) + " us per frame vs "
+                + (fullNs / 1000) + " us full-frame, scanned "
+                + Math.round(tracker.getScanFraction() * 100) + "% of pixels");
+    }
+
+    /**
+     * Three fruit drifting across a noisy background, the way they do while the arm moves.
+     */
+    private static CameraFrame[] movingSequence(int count, Random random) {
+        CameraFrame.Pool pool = new CameraFrame.Pool(count, WIDTH, HEIGHT);
+        CameraFrame[] frames = new CameraFrame[count];
+        for (int f = 0; f < count; f++) {
+            CameraFrame frame = pool.acquire();
+            for (int i = 0; i < frame.y.length; i++) {
+                frame.y[i] = (byte) (60 + random.nextInt(120));
+            }
+            for (int i = 0; i < frame.u.length; i++) {
+                frame.u[i] = (byte) (110 + random.nextInt(40));
+                frame.v[i] = (byte) (90 + random.nextInt(50));
+            }
+            FruitTrackerTest.paintFruit(frame, 60 + f * 2, 80 + f, 40);
+            FruitTrackerTest.paintFruit(frame, 300 + f * 2, 200, 56);
+            FruitTrackerTest.paintFruit(frame, 480, 300 + f * 2, 32);
+            frames[f] = frame;
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FruitTracker}.
+ */
+public class FruitTrackerTest {
+
+    private static final int WIDTH = HarvestCamera.DEFAULT_WIDTH;
+    private static final int HEIGHT = HarvestCamera.DEFAULT_HEIGHT;
+
+    @Test
+    public void update_followsMovingFruitWithRegionScans() {
+        FruitDetector detector = new FruitDetector(WIDTH, HEIGHT, 4);
+        FruitTracker tracker = new FruitTracker(detector);
+        CameraFrame frame = new CameraFrame.Pool(1, WIDTH, HEIGHT).acquire();
+
+        for (int i = 0; i < 30; i++) {
+            drawScene(frame, 100 + i * 4, 200 + i * 2);
+            assertEquals(1, tracker.update(frame));
+            FruitDetector.Blob track = tracker.getTrack(0);
+            assertEquals(100 + i * 4 + 20, track.centerX, 1.5f);
+            assertEquals(200 + i * 2 + 20, track.centerY, 1.5f);
+        }
+
+        assertEquals(2, tracker.getFullScans());
+        assertTrue(tracker.getScanFraction() < 0.25f);
+        detector.release();
+    }
+
+    @Test
+    public void update_rescansFullFrameWhenTrackIsLost() {
+        FruitDetector detector = new FruitDetector(WIDTH, HEIGHT, 4);
+        FruitTracker tracker = new FruitTracker(detector);
+        CameraFrame frame = new CameraFrame.Pool(1, WIDTH, HEIGHT).acquire();
+
+        drawScene(frame, 100, 100);
+        tracker.update(frame);
+        // Fruit jumps far outside the search window
+        drawScene(frame, 500, 400);
+        for (int i = 0; i < 3; i++) {
+            tracker.update(frame);
+        }
+        assertEquals(0, tracker.getTrackCount());
+
+        assertEquals(1, tracker.update(frame));
+        assertEquals(520f, tracker.getTrack(0).centerX, 1f);
+        assertEquals(2, tracker.getFullScans());
+        detector.release();
+    }
+
+    private static void drawScene(CameraFrame frame, int fruitLeft, int fruitTop) {
+        Arrays.fill(frame.y, (byte) 100);
+        Arrays.fill(frame.u, (byte) 128);
+        Arrays.fill(frame.v, (byte) 128);
+        paintFruit(frame, fruitLeft, fruitTop, 40);
+    }
+
+    static void paintFruit(CameraFrame frame, int left, int top, int size) {
+        for (int row = top; row < top + size; row++) {
+            Arrays.fill(frame.y, row * frame.width + left, row * frame.width + left + size, (byte) 140);
+        }
+        int chromaWidth = frame.width / 2;
+        for (int row = top / 2; row < (top + size) / 2; row++) {
+            Arrays.fill(frame.u, row * chromaWidth + left / 2, row * chromaWidth + (left + size) / 2, (byte) 100);
+            Arrays.fill(frame.v, row * chromaWidth + left / 2, row * chromaWidth + (left + size) / 2, (byte) 190);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.treebotmonitor;
+
+/**
+ * Lookup timing for {@link FuzzyCommandIndex}. Run {@link #main} by hand; it is not a unit
+ * test because the numbers depend on the machine.
+ */
+public class FuzzyCommandIndexBenchmark {
+
+    public static void main(String[] args) {
+        FuzzyCommandIndex index = FuzzyCommandIndexTest.index();
+        String[] transcripts = {
+                "ok robot please move the climber a little further up the tree and then go forwards",
+                "riverse",
+                "nothing useful was said in this sentence at all",
+                "staff",
+        };
+
+        int iterations = 50_000;
+        int hits = 0;
+        long elapsedNs = 0;
+        for (int round = 0; round < 2; round++) {  // First round is warm-up
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                if (index.findBest(transcripts[i & 3]) != null) hits++;
+            }
+            elapsedNs = System.nanoTime() - start;
+        }
+        long perTranscriptNs = elapsedNs / iterations;
+
+        System.out.println("FuzzyCommandIndex: " + perTranscriptNs + " ns per transcript (" + hits + " hits)");
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FuzzyCommandIndex}, over the app's voice vocabulary without
+ * any hand-written misrecognitions.
+ */
+public class FuzzyCommandIndexTest {
+
+    static VoiceCommandMatcher buildMatcher() {
+        return new VoiceCommandMatcher.Builder()
+                .add("forward", "FORWARD*")
+                .add("go forward", "FORWARD*")
+                .add("move forward", "FORWARD*")
+                .add("climb up", "FORWARD*")
+                .add("reverse", "REVERSE*")
+                .add("go back", "REVERSE*")
+                .add("move back", "REVERSE*")
+                .add("backward", "REVERSE*")
+                .add("go backward", "REVERSE*")
+                .add("climb down", "REVERSE*")
+                .add("stop", "STOP*", 1)
+                .add("speed up", "SPEED_UP")
+                .add("increase speed", "SPEED_UP")
+                .add("faster", "SPEED_UP")
+                .add("speed down", "SPEED_DOWN")
+                .add("decrease speed", "SPEED_DOWN")
+                .add("slower", "SPEED_DOWN")
+                .add("low speed", "SPEED_LOW")
+                .add("high speed", "SPEED_HIGH")
+                .build();
+    }
+
+    static FuzzyCommandIndex index() {
+        return new FuzzyCommandIndex(buildMatcher(), FuzzyCommandIndex.DEFAULT_THRESHOLD,
+                FuzzyCommandIndex.DEFAULT_UTTERANCE_THRESHOLD);
+    }
+
+    private static String commandFor(FuzzyCommandIndex index, String text) {
+        VoiceCommandMatcher.Phrase phrase = index.findBest(text);
+        return phrase == null ? null : phrase.command;
+    }
+
+    @Test
+    public void findBest_resolvesFormerTypoList() {
+        FuzzyCommandIndex index = index();
+        assertEquals("REVERSE*", commandFor(index, "riverse"));
+        assertEquals("REVERSE*", commandFor(index, "reveres"));
+        assertEquals("STOP*", commandFor(index, "top"));
+        assertEquals("STOP*", commandFor(index, "staff"));
+    }
+
+    @Test
+    public void findBest_resolvesNewMishearings() {
+        FuzzyCommandIndex index = index();
+        assertEquals("FORWARD*", commandFor(index, "go forwards"));
+        assertEquals("REVERSE*", commandFor(index, "climb town"));
+        assertEquals("SPEED_UP", commandFor(index, "speed op"));
+        assertEquals("STOP*", commandFor(index, "step"));
+    }
+
+    @Test
+    public void findBest_ignoresCommandLikeWordsInSpeech() {
+        FuzzyCommandIndex index = index();
+        assertNull(index.findBest("universe"));
+        assertNull(index.findBest("in the whole universe"));
+        assertNull(index.findBest("afterward"));
+        assertNull(index.findBest("a reward"));
+        assertNull(index.findBest("come back"));
+        assertNull(index.findBest("my master key"));
+        assertNull(index.findBest("foster the kids"));
+        assertNull(index.findBest("sit down"));
+        // Motion phrases only count as the whole utterance
+        assertNull(index.findBest("please speed op"));
+    }
+
+    @Test
+    public void findBest_stopResolvesAnywhereInSpeech() {
+        FuzzyCommandIndex index = index();
+        assertEquals("STOP*", commandFor(index, "i said forward staff"));
+        assertEquals("STOP*", commandFor(index, "please step now"));
+    }
+
+    @Test
+    public void findBest_rejectsUnrelatedSpeech() {
+        FuzzyCommandIndex index = index();
+        assertNull(index.findBest(""));
+        assertNull(index.findBest("hello there"));
+        assertNull(index.findBest("open the laptop"));
+        assertNull(index.findBest("what time is it"));
+    }
+
+    @Test
+    public void findBest_stopOutranksCloserMatches() {
+        FuzzyCommandIndex index = index();
+        assertEquals("STOP*", commandFor(index, "go forwards no stap"));
+    }
+
+    @Test
+    public void threshold_isConfigurable() {
+        FuzzyCommandIndex index = index();
+        assertNotNull(index.findBest("staff"));
+        float confidence = index.getLastConfidence();
+        assertTrue(confidence >= FuzzyCommandIndex.DEFAULT_THRESHOLD && confidence < 1f);
+
+        index.setThreshold(confidence + 0.01f);
+        assertNull(index.findBest("staff"));
+        assertEquals("REVERSE*", commandFor(index, "reverse"));
+        assertEquals(1f, index.getLastConfidence(), 0f);
+    }
+
+    @Test
+    public void utteranceThreshold_isConfigurable() {
+        FuzzyCommandIndex index = index();
+        assertNotNull(index.findBest("reveres"));
+        float confidence = index.getLastConfidence();
+        assertTrue(confidence >= FuzzyCommandIndex.DEFAULT_UTTERANCE_THRESHOLD && confidence < 1f);
+
+        index.setUtteranceThreshold(confidence + 0.01f);
+        assertNull(index.findBest("reveres"));
+        assertEquals("STOP*", commandFor(index, "staff"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void threshold_rejectsOutOfRange() {
+        new FuzzyCommandIndex(buildMatcher(), 1.5f, FuzzyCommandIndex.DEFAULT_UTTERANCE_THRESHOLD);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void utteranceThreshold_rejectsOutOfRange() {
+        index().setUtteranceThreshold(0f);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HarvestOrderPlanner}.
+ */
+public class HarvestOrderPlannerTest {
+
+    private static final float[] HOME = {90, 90, 90, 90, 90, 90};
+
+    @Test
+    public void order_visitsEveryTargetOnce() {
+        HarvestOrderPlanner planner = new HarvestOrderPlanner(new TrajectoryPlanner());
+        float[][] targets = randomPoses(new Random(1), 12);
+        int[] order = planner.order(HOME, targets, 10_000_000);
+
+        boolean[] seen = new boolean[targets.length];
+        for (int index : order) {
+            assertFalse(seen[index]);
+            seen[index] = true;
+        }
+        assertEquals(targets.length, order.length);
+    }
+
+    @Test
+    public void order_matchesBruteForceOnSmallBatch() {
+        TrajectoryPlanner trajectoryPlanner = new TrajectoryPlanner();
+        HarvestOrderPlanner planner = new HarvestOrderPlanner(trajectoryPlanner);
+        Random random = new Random(7);
+
+        for (int trial = 0; trial < 20; trial++) {
+            float[][] targets = randomPoses(random, 5);
+            planner.order(HOME, targets, 10_000_000);
+            float best = bruteForce(trajectoryPlanner, HOME, targets, new int[targets.length], new boolean[targets.length], 0);
+            // 2-opt is a heuristic, allow a small gap to the optimum
+            assertTrue(planner.getLastCost() <= best * 1.15f + 1e-4f);
+        }
+    }
+
+    @Test
+    public void order_handlesEmptyBatch() {
+        HarvestOrderPlanner planner = new HarvestOrderPlanner(new TrajectoryPlanner());
+        assertEquals(0, planner.order(HOME, new float[0][], 1_000_000).length);
+        assertEquals(0f, planner.getLastCost(), 0);
+    }
+
+    private static float bruteForce(TrajectoryPlanner planner, float[] from, float[][] targets,
+                                    int[] path, boolean[] used, int depth) {
+        if (depth == targets.length) {
+            float cost = 0f;
+            float[] previous = from;
+            for (int index : path) {
+                cost += planner.estimateDuration(previous, targets[index]);
+                previous = targets[index];
+            }
+            return cost;
+        }
+        float best = Float.MAX_VALUE;
+        for (int i = 0; i < targets.length; i++) {
+            if (!used[i]) {
+                used[i] = true;
+                path[depth] = i;
+                best = Math.min(best, bruteForce(planner, from, targets, path, used, depth + 1));
+                used[i] = false;
+            }
+        }
+        return best;
+    }
+
+    private static float[][] randomPoses(Random random, int count) {
+        float[][] poses = new float[count][TrajectoryPlanner.JOINT_COUNT];
+        for (float[] pose : poses) {
+            for (int j = 0; j < 4; j++) {
+                pose[j] = 40 + random.nextFloat() * 100;
+            }
+            pose[4] = 90;
+            pose[5] = 30;
+        }
+        return poses;
+    }
+}
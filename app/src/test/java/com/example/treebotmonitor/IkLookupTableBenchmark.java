@@ -0,0 +1,31 @@
+package com.example.treebotmonitor;
+
+import java.io.IOException;
+
+/**
+ * Query time of the shipped {@link IkLookupTable} asset, interpolation plus refinement. Run
+ * {@link #main} by hand from the module directory; it is not a unit test because the
+ * numbers depend on the machine.
+ */
+public class IkLookupTableBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        IkLookupTable table = IkLookupTableTest.loadTable();
+        ArmKinematics kinematics = new ArmKinematics();
+        float[] home = IkLookupTableTest.HOME;
+        float[] pose = new float[TrajectoryPlanner.JOINT_COUNT];
+        int iterations = 200_000;
+        for (int i = 0; i < iterations; i++) {
+            table.resolve(0.2f + (i % 10) * 0.01f, 0.05f, 0.2f, kinematics, home, pose);
+        }
+
+        long startNs = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            table.resolve(0.2f + (i % 10) * 0.01f, 0.05f, 0.2f, kinematics, home, pose);
+        }
+        long perQueryNs = (System.nanoTime() - startNs) / iterations;
+
+        System.out.println("IkLookupTable: " + perQueryNs + " ns per resolve, "
+                + table.getDataSize() / 1024 + " KiB mapped");
+    }
+}
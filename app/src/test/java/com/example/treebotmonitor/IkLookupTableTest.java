@@ -0,0 +1,58 @@
+package com.example.treebotmonitor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the shipped {@link IkLookupTable} asset.
+ */
+public class IkLookupTableTest {
+
+    static final float[] HOME = {90, 90, 90, 90, 90, 90};
+
+    private IkLookupTable table;
+    private ArmKinematics kinematics;
+
+    @Before
+    public void setUp() throws IOException {
+        table = loadTable();
+        kinematics = new ArmKinematics();
+    }
+
+    static IkLookupTable loadTable() throws IOException {
+        // Unit tests run from the module directory
+        File asset = new File("src/main/assets/" + IkLookupTable.ASSET_NAME);
+        try (FileInputStream input = new FileInputStream(asset)) {
+            return IkLookupTable.map(input, 0, asset.length());
+        }
+    }
+
+    @Test
+    public void resolve_refinesInterpolatedPoseToTarget() {
+        float[] seed = new float[TrajectoryPlanner.JOINT_COUNT];
+        float[] pose = new float[TrajectoryPlanner.JOINT_COUNT];
+        float[] reached = new float[3];
+
+        assertTrue(table.interpolate(0.25f, 0.07f, 0.21f, HOME, seed));
+        assertTrue(table.resolve(0.25f, 0.07f, 0.21f, kinematics, HOME, pose));
+        assertTrue(kinematics.getLastIterations() <= 3);
+
+        kinematics.forward(pose, reached);
+        assertEquals(0.25f, reached[0], 0.002);
+        assertEquals(0.07f, reached[1], 0.002);
+        assertEquals(0.21f, reached[2], 0.002);
+    }
+
+    @Test
+    public void interpolate_rejectsPointsOutsideTable() {
+        float[] seed = new float[TrajectoryPlanner.JOINT_COUNT];
+        assertFalse(table.interpolate(0.9f, 0f, 0.2f, HOME, seed));
+        assertFalse(table.interpolate(0.2f, 0f, -0.5f, HOME, seed));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link KeepAliveStats}.
+ */
+public class KeepAliveStatsTest {
+
+    @Test
+    public void steadyStream_rateGapAndBandwidth() {
+        KeepAliveStats stats = new KeepAliveStats(600);
+        for (int i = 0; i <= 10; i++) {
+            stats.record(1000 + i * 200L, 8);  // "FORWARD*" every 200 ms
+        }
+        assertEquals(11, stats.getCount());
+        assertEquals(5f, stats.getRateHz(), 1e-3f);
+        assertEquals(200, stats.getMaxGapMs());
+        assertEquals(400, stats.getBudgetMarginMs());
+        assertEquals(88 * 1000f / 2000f, stats.getBytesPerSecond(), 1e-3f);
+    }
+
+    @Test
+    public void lateKeepAlive_eatsIntoBudget() {
+        KeepAliveStats stats = new KeepAliveStats(600);
+        stats.record(0, 8);
+        stats.record(200, 8);
+        stats.record(850, 8);
+        assertEquals(650, stats.getMaxGapMs());
+        assertTrue(stats.getBudgetMarginMs() < 0);
+    }
+
+    @Test
+    public void endStream_doesNotCountIdleTime() {
+        KeepAliveStats stats = new KeepAliveStats(600);
+        stats.record(0, 8);
+        stats.record(200, 8);
+        stats.endStream();
+        stats.record(10_000, 8);
+        stats.record(10_200, 8);
+
+        assertEquals(200, stats.getMaxGapMs());
+        assertEquals(5f, stats.getRateHz(), 1e-3f);
+    }
+
+    @Test
+    public void noStream_reportsZero() {
+        KeepAliveStats stats = new KeepAliveStats(600);
+        assertEquals(0f, stats.getRateHz(), 0f);
+        assertEquals(0f, stats.getBytesPerSecond(), 0f);
+        assertEquals(600, stats.getBudgetMarginMs());
+    }
+}
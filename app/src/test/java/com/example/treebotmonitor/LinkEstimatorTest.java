@@ -0,0 +1,121 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LinkEstimator}.
+ */
+public class LinkEstimatorTest {
+
+    private static final long MS = 1_000_000;
+
+    /**
+     * Acknowledge {@code count} commands of {@code bytes} each, one every {@code periodMs},
+     * each acked {@code latencyMs} after it was queued. Returns the byte total reached.
+     */
+    private static long deliver(LinkEstimator estimator, long totalBytes, long startMs, int count,
+                                int bytes, long periodMs, long latencyMs) {
+        for (int i = 0; i < count; i++) {
+            totalBytes += bytes;
+            long sentMs = startMs + i * periodMs;
+            estimator.onDelivered(totalBytes, sentMs * MS, (sentMs + latencyMs) * MS);
+        }
+        return totalBytes;
+    }
+
+    @Test
+    public void throughput_startsAtPriorAndFollowsAcknowledgedBytes() {
+        LinkEstimator estimator = new LinkEstimator();
+        assertEquals(LinkEstimator.INITIAL_THROUGHPUT_BPS, estimator.getThroughputBytesPerSecond(), 0f);
+
+        // Writes alone say nothing about the link
+        for (int i = 0; i < 50; i++) {
+            estimator.onWriteComplete(24);
+        }
+        assertEquals(LinkEstimator.INITIAL_THROUGHPUT_BPS, estimator.getThroughputBytesPerSecond(), 0f);
+
+        // 24 bytes delivered every 2 ms
+        long total = deliver(estimator, 0, 0, 500, 24, 2, 30);
+        assertEquals(12_000f, estimator.getThroughputBytesPerSecond(), 1f);
+
+        // The link degrades to 24 bytes per 40 ms; once the fast samples age out it shows
+        deliver(estimator, total, 1000, 50, 24, 40, 30);
+        assertEquals(600f, estimator.getThroughputBytesPerSecond(), 1f);
+    }
+
+    @Test
+    public void throughput_ignoresAckBursts() {
+        LinkEstimator estimator = new LinkEstimator();
+        // 240 bytes queued over 200 ms, and all their acks arrive in one burst
+        for (int i = 0; i <= 10; i++) {
+            estimator.onDelivered(24L * i, 20L * i * MS, 300 * MS);
+        }
+        assertEquals(1200f, estimator.getThroughputBytesPerSecond(), 1f);
+    }
+
+    @Test
+    public void throughput_idleStretchesDoNotLowerTheEstimate() {
+        LinkEstimator estimator = new LinkEstimator();
+        long total = deliver(estimator, 0, 0, 100, 24, 2, 30);
+        // One command a second while idle
+        deliver(estimator, total, 1000, 5, 24, 1000, 30);
+        assertEquals(12_000f, estimator.getThroughputBytesPerSecond(), 1f);
+    }
+
+    @Test
+    public void sendInterval_usesHalfTheLinkAndIsClamped() {
+        LinkEstimator estimator = new LinkEstimator();
+        // 400 bytes per second: 4-byte updates every 20 ms keep the link half busy
+        deliver(estimator, 0, 0, 10, 40, 100, 30);
+        assertEquals(20, estimator.getSendIntervalMs(4, 5, 500));
+        assertEquals(50, estimator.getSendIntervalMs(4, 50, 500));
+        assertEquals(15, estimator.getSendIntervalMs(4, 5, 15));
+
+        // A good link shortens the interval
+        deliver(estimator, 400, 1000, 100, 400, 10, 30);
+        assertEquals(5, estimator.getSendIntervalMs(4, 5, 500));
+    }
+
+    @Test
+    public void batchWindow_isAboutOneWriteTime() {
+        LinkEstimator estimator = new LinkEstimator();
+        assertEquals(250_000, estimator.getBatchWindowNs(250_000, 4_000_000));
+
+        // 30-byte writes on a link carrying 20 kB/s take 1.5 ms
+        estimator.onWriteComplete(30);
+        deliver(estimator, 0, 0, 20, 1000, 50, 30);
+        assertEquals(1_500_000, estimator.getBatchWindowNs(250_000, 4_000_000), 1000);
+
+        // At the 2 kB/s prior they would take 15 ms
+        LinkEstimator slow = new LinkEstimator();
+        slow.onWriteComplete(30);
+        assertEquals(4_000_000, slow.getBatchWindowNs(250_000, 4_000_000));
+    }
+
+    @Test
+    public void rtt_isSmoothedIntoARetransmissionTimeout() {
+        LinkEstimator estimator = new LinkEstimator();
+        assertEquals(-1f, estimator.getSmoothedRttMs(), 0f);
+        assertEquals(-1, estimator.getRtoMs());
+
+        estimator.onRttSample(40);
+        assertEquals(40f, estimator.getSmoothedRttMs(), 0f);
+        assertEquals(120, estimator.getRtoMs());
+        for (int i = 0; i < 30; i++) {
+            estimator.onRttSample(40);
+        }
+        assertEquals(40f, estimator.getSmoothedRttMs(), 0.01f);
+        assertTrue(estimator.getRtoMs() < 45);
+
+        // A slow, jittery link
+        for (int i = 0; i < 60; i++) {
+            estimator.onRttSample(i % 2 == 0 ? 700 : 900);
+        }
+        long rto = estimator.getRtoMs();
+        assertTrue(rto > 900);
+        estimator.onRttSample(-1);
+        assertEquals(rto, estimator.getRtoMs());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LinkMonitor}.
+ */
+public class LinkMonitorTest {
+
+    private static final long DEADLINE = 3000;
+
+    @Test
+    public void trafficPostponesPings() {
+        LinkMonitor monitor = new LinkMonitor(DEADLINE);
+        monitor.reset(0);
+
+        // Inbound data every 500 ms keeps the link proven without a single ping
+        for (long t = 500; t <= 10_000; t += 500) {
+            monitor.onInbound(t);
+            assertFalse(monitor.shouldPing(t));
+            assertFalse(monitor.isDead(t));
+        }
+        assertEquals(DEADLINE / 3, monitor.getNextCheckDelay(10_000));
+    }
+
+    @Test
+    public void answeredPingsKeepIdleLinkAlive() {
+        LinkMonitor monitor = new LinkMonitor(DEADLINE);
+        monitor.reset(0);
+
+        assertFalse(monitor.shouldPing(999));
+        assertTrue(monitor.shouldPing(1000));
+        monitor.onPingSent(1000);
+        assertEquals(40, monitor.onPong(1040));
+
+        assertEquals(40, monitor.getLastRttMs());
+        assertEquals(-1, monitor.onPong(1100));
+        assertFalse(monitor.isSuspicious());
+        assertFalse(monitor.isDead(3000));
+        assertTrue(monitor.shouldPing(2100));
+    }
+
+    @Test
+    public void silentLinkIsPingedFasterAndDeclaredDeadWithinDeadline() {
+        LinkMonitor monitor = new LinkMonitor(DEADLINE);
+        monitor.reset(0);
+
+        int pings = 0;
+        long t = 0;
+        while (!monitor.isDead(t)) {
+            if (monitor.shouldPing(t)) {
+                monitor.onPingSent(t);
+                pings++;
+            }
+            t += monitor.getNextCheckDelay(t);
+        }
+
+        assertEquals(DEADLINE, t);
+        assertEquals(4, pings);
+        assertTrue(monitor.isSuspicious());
+        assertEquals(3, monitor.getMissedPongs());
+    }
+
+    @Test
+    public void inboundAfterPingClearsSuspicion() {
+        LinkMonitor monitor = new LinkMonitor(DEADLINE);
+        monitor.reset(0);
+
+        assertTrue(monitor.shouldPing(1000));
+        monitor.onPingSent(1000);
+        assertTrue(monitor.shouldPing(1500));
+        assertEquals(1, monitor.getMissedPongs());
+
+        monitor.onPingSent(1500);
+        monitor.onInbound(1600);
+        assertFalse(monitor.shouldPing(2000));
+        assertEquals(0, monitor.getMissedPongs());
+        assertEquals(1, monitor.getTotalMissedPongs());
+        assertFalse(monitor.isDead(4000));
+    }
+
+    @Test
+    public void slowRoundTripWaitsLongerForPongsButNotForTheDeadline() {
+        LinkMonitor monitor = new LinkMonitor(DEADLINE);
+        monitor.reset(0);
+        monitor.setMinPongTimeout(900);
+
+        // A 800 ms round trip is not a missed pong
+        assertTrue(monitor.shouldPing(1000));
+        monitor.onPingSent(1000);
+        assertFalse(monitor.shouldPing(1600));
+        assertEquals(0, monitor.getMissedPongs());
+        monitor.onPong(1800);
+        assertFalse(monitor.isSuspicious());
+
+        // However slow the round trip, a silent link is dead after the configured deadline
+        monitor.setMinPongTimeout(60_000);
+        monitor.reset(0);
+        long t = 0;
+        while (!monitor.isDead(t)) {
+            if (monitor.shouldPing(t)) {
+                monitor.onPingSent(t);
+            }
+            t += monitor.getNextCheckDelay(t);
+        }
+        assertEquals(DEADLINE, t);
+        assertEquals(DEADLINE, monitor.getLivenessDeadline());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setLivenessDeadline_rejectsNonPositive() {
+        new LinkMonitor(0);
+    }
+}
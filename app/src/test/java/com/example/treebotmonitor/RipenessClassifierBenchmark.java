@@ -0,0 +1,33 @@
+package com.example.treebotmonitor;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Batch inference timing for {@link RipenessClassifier}. Run {@link #main} by hand from the
+ * app module directory; it is not a unit test because the numbers depend on the machine.
+ */
+public class RipenessClassifierBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        RipenessClassifier classifier = RipenessClassifierTest.loadModel();
+        CameraFrame frame = new CameraFrame.Pool(1, 64, 64).acquire();
+        RipenessClassifier.renderFruit(frame, true, new Random(3));
+
+        long totalNs = 0;
+        int iterations = 20_000;
+        for (int i = 0; i < iterations + 2_000; i++) {
+            classifier.beginBatch();
+            for (int b = 0; b < FruitTracker.MAX_TRACKS; b++) {
+                classifier.addCrop(frame, 0, 0, 63, 63);
+            }
+            classifier.runBatch();
+            if (i >= 2_000) totalNs += classifier.getLastBatchNs();  // Skip warm-up
+        }
+        long perBatchNs = totalNs / iterations;
+
+        // Compare with the 33 ms frame budget at 30 fps
+        System.out.println("RipenessClassifier: " + (perBatchNs / 1000) + " us per batch of "
+                + FruitTracker.MAX_TRACKS + " crops");
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RipenessClassifier}, using the shipped model asset.
+ *
+ * Labelled samples live in src/test/resources/ripeness/ripe and .../unripe (PNG or JPEG,
+ * one fruit filling most of the image). The shipped ones are shaded RGB renderings drawn
+ * independently of the training generator, with leaves, a stem and highlights; photos from
+ * the orchard can be added alongside them.
+ */
+public class RipenessClassifierTest {
+
+    private static final String MODEL_PATH = "src/main/assets/" + RipenessClassifier.ASSET_NAME;
+    private static final String SAMPLES_DIR = "src/test/resources/ripeness";
+
+    @Test
+    public void classify_separatesSyntheticFruit() throws IOException {
+        RipenessClassifier classifier = loadModel();
+        CameraFrame frame = new CameraFrame.Pool(1, 64, 64).acquire();
+        Random random = new Random(99); // Different seed from training
+
+        int correct = 0, total = 400;
+        for (int i = 0; i < total; i++) {
+            boolean ripe = random.nextBoolean();
+            RipenessClassifier.renderFruit(frame, ripe, random);
+            classifier.beginBatch();
+            classifier.addCrop(frame, 0, 0, 63, 63);
+            classifier.runBatch();
+            if (classifier.isRipe(0) == ripe) correct++;
+        }
+        assertTrue("Accuracy " + correct + "/" + total, correct >= total * 95 / 100);
+    }
+
+    @Test
+    public void runBatch_matchesSingleCropResults() throws IOException {
+        RipenessClassifier classifier = loadModel();
+        CameraFrame.Pool pool = new CameraFrame.Pool(RipenessClassifier.MAX_BATCH, 64, 64);
+        CameraFrame[] frames = new CameraFrame[RipenessClassifier.MAX_BATCH];
+        float[] single = new float[frames.length];
+        Random random = new Random(5);
+
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = pool.acquire();
+            RipenessClassifier.renderFruit(frames[i], (i & 1) == 0, random);
+            classifier.beginBatch();
+            classifier.addCrop(frames[i], 0, 0, 63, 63);
+            classifier.runBatch();
+            single[i] = classifier.getRipeProbability(0);
+        }
+
+        classifier.beginBatch();
+        for (CameraFrame frame : frames) {
+            assertTrue(classifier.addCrop(frame, 0, 0, 63, 63));
+        }
+        assertFalse(classifier.addCrop(frames[0], 0, 0, 63, 63));
+        assertEquals(frames.length, classifier.runBatch());
+        for (int i = 0; i < frames.length; i++) {
+            assertEquals(single[i], classifier.getRipeProbability(i), 0f);
+        }
+    }
+
+    @Test
+    public void classify_sampleImages() throws IOException {
+        RipenessClassifier classifier = loadModel();
+        int checked = 0;
+        for (String label : new String[]{"ripe", "unripe"}) {
+            File[] files = new File(SAMPLES_DIR, label).listFiles();
+            if (files == null) continue;
+            for (File file : files) {
+                BufferedImage image = ImageIO.read(file);
+                if (image == null) continue;
+
+                CameraFrame frame = toFrame(image);
+                classifier.beginBatch();
+                classifier.addCrop(frame, 0, 0, frame.width - 1, frame.height - 1);
+                classifier.runBatch();
+                assertEquals(file.getName(), label.equals("ripe"), classifier.isRipe(0));
+                checked++;
+            }
+        }
+        assertTrue("No sample images in " + SAMPLES_DIR, checked >= 8);
+    }
+
+    static RipenessClassifier loadModel() throws IOException {
+        return new RipenessClassifier(ByteBuffer.wrap(Files.readAllBytes(new File(MODEL_PATH).toPath())));
+    }
+
+    /**
+     * RGB image to an I420 frame with BT.601 coefficients, cropped to even dimensions.
+     */
+    private static CameraFrame toFrame(BufferedImage image) {
+        int width = image.getWidth() & ~1;
+        int height = image.getHeight() & ~1;
+        CameraFrame frame = new CameraFrame.Pool(1, width, height).acquire();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y);
+                int r = (rgb >> 16) & 0xFF, g = (rgb >> 8) & 0xFF, b = rgb & 0xFF;
+                frame.y[y * width + x] = (byte) clamp(16 + (66 * r + 129 * g + 25 * b + 128) / 256);
+                if ((x & 1) == 0 && (y & 1) == 0) {
+                    int chroma = (y / 2) * (width / 2) + x / 2;
+                    frame.u[chroma] = (byte) clamp(128 + (-38 * r - 74 * g + 112 * b + 128) / 256);
+                    frame.v[chroma] = (byte) clamp(128 + (112 * r - 94 * g - 18 * b + 128) / 256);
+                }
+            }
+        }
+        return frame;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SpeedRamp}.
+ */
+public class SpeedRampTest {
+
+    private static final float DT = 1f / SpeedRampStreamer.RAMP_RATE_HZ;
+
+    @Test
+    public void step_limitsAcceleration() {
+        SpeedRamp ramp = new SpeedRamp(50f);
+        ramp.setTarget(100f);
+
+        float previous = ramp.getOutput();
+        int steps = 0;
+        while (!ramp.isSettled()) {
+            float output = ramp.step(DT);
+            assertTrue("Too large a step", output - previous <= 50f * DT + 1e-4f);
+            assertTrue(output >= previous);
+            previous = output;
+            steps++;
+        }
+        assertEquals(100f, ramp.getOutput(), 0f);
+        // 0 to 100 % at 50 %/s takes 2 s
+        assertEquals(2f / DT, steps, 1f);
+    }
+
+    @Test
+    public void step_rampsDownAndLandsExactlyOnTarget() {
+        SpeedRamp ramp = new SpeedRamp(40f);
+        ramp.reset(100f);
+        ramp.setTarget(33f);
+        assertEquals(67f / 40f, ramp.getTimeToTarget(), 1e-4f);
+
+        for (int i = 0; i < 100 && !ramp.isSettled(); i++) {
+            ramp.step(DT);
+        }
+        assertTrue(ramp.isSettled());
+        assertEquals(33f, ramp.getOutput(), 0f);
+    }
+
+    @Test
+    public void setTarget_clampsToRange() {
+        SpeedRamp ramp = new SpeedRamp(50f);
+        ramp.setTarget(150f);
+        assertEquals(100f, ramp.getTarget(), 0f);
+        ramp.setTarget(-5f);
+        assertEquals(0f, ramp.getTarget(), 0f);
+    }
+
+    @Test
+    public void setAcceleration_isConfigurable() {
+        SpeedRamp ramp = new SpeedRamp(50f);
+        ramp.setAcceleration(200f);
+        ramp.setTarget(100f);
+        ramp.step(0.25f);
+        assertEquals(50f, ramp.getOutput(), 1e-4f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setAcceleration_rejectsNonPositive() {
+        new SpeedRamp(0f);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.treebotmonitor;
+
+/**
+ * Plan and sample cost of {@link TrajectoryPlanner} against the control period. Run
+ * {@link #main} by hand; it is not a unit test because the numbers depend on the machine.
+ */
+public class TrajectoryPlannerBenchmark {
+
+    public static void main(String[] args) {
+        float[] home = TrajectoryPlannerTest.HOME;
+        float[] approach = TrajectoryPlannerTest.APPROACH;
+        TrajectoryPlanner planner = new TrajectoryPlanner();
+        float[] setpoint = new float[TrajectoryPlanner.JOINT_COUNT];
+        int iterations = 200_000;
+
+        // Warm up the JIT before measuring
+        for (int i = 0; i < iterations; i++) {
+            planner.plan((i & 1) == 0 ? home : approach, (i & 1) == 0 ? approach : home);
+            planner.sample(0.3f, setpoint);
+        }
+
+        long startNs = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            // Replan every tick, the worst case for a streaming control loop
+            planner.plan((i & 1) == 0 ? home : approach, (i & 1) == 0 ? approach : home);
+            planner.sample(0.3f, setpoint);
+        }
+        long perTickNs = (System.nanoTime() - startNs) / iterations;
+
+        System.out.println("TrajectoryPlanner: " + perTickNs + " ns per plan+sample, "
+                + (1_000_000_000L / Math.max(perTickNs, 1)) + " ticks/s vs "
+                + ArmMotionStreamer.CONTROL_RATE_HZ + " Hz control rate");
+    }
+}
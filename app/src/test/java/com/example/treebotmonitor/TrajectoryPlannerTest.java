@@ -0,0 +1,62 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TrajectoryPlanner}.
+ */
+public class TrajectoryPlannerTest {
+
+    static final float[] HOME = {90, 90, 90, 90, 90, 90};
+    static final float[] APPROACH = {120, 90, 120, 60, 90, 30};
+
+    @Test
+    public void trajectory_startsAndEndsAtRequestedPoses() {
+        TrajectoryPlanner planner = new TrajectoryPlanner();
+        float duration = planner.plan(HOME, APPROACH);
+        float[] setpoint = new float[TrajectoryPlanner.JOINT_COUNT];
+
+        planner.sample(0f, setpoint);
+        for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+            assertEquals(HOME[i], setpoint[i], 1e-3);
+        }
+
+        planner.sample(duration, setpoint);
+        for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+            assertEquals(APPROACH[i], setpoint[i], 1e-3);
+        }
+    }
+
+    @Test
+    public void trajectory_respectsVelocityLimitAndIsMonotonic() {
+        TrajectoryPlanner planner = new TrajectoryPlanner();
+        planner.setJointLimits(5, 60f, 200f);
+        float duration = planner.plan(HOME, APPROACH);
+        float dt = 1f / ArmMotionStreamer.CONTROL_RATE_HZ;
+
+        float[] previous = HOME.clone();
+        float[] setpoint = new float[TrajectoryPlanner.JOINT_COUNT];
+        for (float t = dt; t <= duration + dt; t += dt) {
+            planner.sample(t, setpoint);
+            // Gripper is the slowest joint, the others are stretched to match
+            assertTrue(Math.abs(setpoint[5] - previous[5]) / dt <= 60f + 0.5f);
+            for (int i = 0; i < TrajectoryPlanner.JOINT_COUNT; i++) {
+                float step = (setpoint[i] - previous[i]) * Math.signum(APPROACH[i] - HOME[i]);
+                assertTrue("Joint " + i + " moved backwards", step >= -1e-3);
+            }
+            System.arraycopy(setpoint, 0, previous, 0, setpoint.length);
+        }
+    }
+
+    @Test
+    public void trajectory_clampsTargetsToSliderRange() {
+        TrajectoryPlanner planner = new TrajectoryPlanner();
+        float duration = planner.plan(HOME, new float[]{-20, 200, 90, 90, 90, 90});
+        float[] setpoint = new float[TrajectoryPlanner.JOINT_COUNT];
+        planner.sample(duration, setpoint);
+        assertEquals(TrajectoryPlanner.MIN_ANGLE, setpoint[0], 1e-3);
+        assertEquals(TrajectoryPlanner.MAX_ANGLE, setpoint[1], 1e-3);
+    }
+}
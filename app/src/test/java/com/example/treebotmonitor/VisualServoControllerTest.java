@@ -0,0 +1,72 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VisualServoController}.
+ */
+public class VisualServoControllerTest {
+
+    // Simulated wrist camera: image offset per degree the arm is away from the fruit
+    private static final float OFFSET_PER_DEGREE = 0.03f;
+
+    @Test
+    public void update_centresTargetFromOffset() {
+        VisualServoController controller = new VisualServoController();
+        float[] pose = {120, 90, 120, 60, 90, 30};
+        float fruitBase = 112f;   // Base angle that centres the fruit horizontally
+        float fruitPitch = 70f;   // Wrist pitch that centres it vertically
+
+        int updates = 0;
+        boolean centred = false;
+        while (!centred && updates < 100) {
+            float offsetX = (pose[0] - fruitBase) * OFFSET_PER_DEGREE;
+            float offsetY = (fruitPitch - pose[3]) * OFFSET_PER_DEGREE;
+            centred = controller.update(offsetX, offsetY, pose);
+            updates++;
+        }
+
+        assertTrue(centred);
+        assertTrue("Took " + updates + " updates", updates < 30);
+        assertEquals(fruitBase, pose[0], VisualServoController.CENTRED_TOLERANCE / OFFSET_PER_DEGREE);
+        assertEquals(fruitPitch, pose[3], VisualServoController.CENTRED_TOLERANCE / OFFSET_PER_DEGREE);
+        // Other joints are left alone
+        assertEquals(90f, pose[1], 0f);
+        assertEquals(120f, pose[2], 0f);
+    }
+
+    @Test
+    public void update_limitsStepOnLargeOffset() {
+        VisualServoController controller = new VisualServoController();
+        float[] pose = {90, 90, 90, 90, 90, 30};
+        controller.update(1f, -1f, pose);
+        assertTrue(Math.abs(pose[0] - 90f) <= 4f);
+        assertTrue(Math.abs(pose[3] - 90f) <= 4f);
+    }
+
+    @Test
+    public void update_needsConsecutiveCentredMeasurements() {
+        VisualServoController controller = new VisualServoController();
+        float[] pose = {90, 90, 90, 90, 90, 30};
+        assertFalse(controller.update(0f, 0f, pose));
+        assertFalse(controller.update(0f, 0f, pose));
+        // A noisy measurement restarts the count
+        assertFalse(controller.update(0.3f, 0f, pose));
+        assertFalse(controller.update(0f, 0f, pose));
+        assertFalse(controller.update(0f, 0f, pose));
+        assertTrue(controller.update(0f, 0f, pose));
+    }
+
+    @Test
+    public void update_keepsJointsInRange() {
+        VisualServoController controller = new VisualServoController();
+        float[] pose = {1, 90, 90, 179, 90, 30};
+        for (int i = 0; i < 10; i++) {
+            controller.update(1f, 1f, pose);
+        }
+        assertEquals(TrajectoryPlanner.MIN_ANGLE, pose[0], 0f);
+        assertEquals(TrajectoryPlanner.MAX_ANGLE, pose[3], 0f);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VoiceCommandGate}.
+ */
+public class VoiceCommandGateTest {
+
+    private static VoiceCommandGate buildGate() {
+        VoiceCommandMatcher matcher = new VoiceCommandMatcher.Builder()
+                .add("forward", "FORWARD*")
+                .add("reverse", "REVERSE*")
+                .add("stop", "STOP*", 1)
+                .build();
+        return new VoiceCommandGate(matcher,
+                new FuzzyCommandIndex(matcher, FuzzyCommandIndex.DEFAULT_THRESHOLD,
+                        FuzzyCommandIndex.DEFAULT_UTTERANCE_THRESHOLD),
+                1, VoiceCommandGate.DEFAULT_EARLY_CONFIDENCE, VoiceCommandGate.DEFAULT_MIN_SCORE);
+    }
+
+    @Test
+    public void partialStop_firesOnceAndSuppressesFinal() {
+        VoiceCommandGate gate = buildGate();
+        gate.beginUtterance();
+
+        assertNull(gate.onPartialResult("please"));
+        VoiceCommandMatcher.Phrase early = gate.onPartialResult("please stop");
+        assertNotNull(early);
+        assertEquals("STOP*", early.command);
+        assertNull(gate.onPartialResult("please stop the"));
+        assertEquals(1, gate.getEarlyCommands());
+
+        VoiceCommandMatcher.Phrase last = gate.resolve("please stop the climber");
+        assertTrue(gate.isSentEarly(last));
+    }
+
+    @Test
+    public void partialResult_ignoresNonSafetyCommands() {
+        VoiceCommandGate gate = buildGate();
+        gate.beginUtterance();
+        assertNull(gate.onPartialResult("forward"));
+
+        VoiceCommandMatcher.Phrase last = gate.resolve("forward");
+        assertEquals("FORWARD*", last.command);
+        assertFalse(gate.isSentEarly(last));
+    }
+
+    @Test
+    public void partialResult_waitsForConfidence() {
+        VoiceCommandGate gate = buildGate();
+        gate.beginUtterance();
+
+        // Fuzzy STOP below the early threshold waits for the final result
+        assertNull(gate.onPartialResult("staff"));
+        VoiceCommandMatcher.Phrase last = gate.resolve("staff");
+        assertEquals("STOP*", last.command);
+        assertTrue(gate.getLastConfidence() < VoiceCommandGate.DEFAULT_EARLY_CONFIDENCE);
+        assertFalse(gate.isSentEarly(last));
+
+        // A close mishearing is good enough
+        assertNotNull(gate.onPartialResult("stap"));
+    }
+
+    @Test
+    public void finalResult_differentCommandIsNotSuppressed() {
+        VoiceCommandGate gate = buildGate();
+        gate.beginUtterance();
+        assertNotNull(gate.onPartialResult("stop"));
+        assertFalse(gate.isSentEarly(gate.resolve("reverse")));
+    }
+
+    @Test
+    public void beginUtterance_allowsNextEarlyCommand() {
+        VoiceCommandGate gate = buildGate();
+        gate.beginUtterance();
+        assertNotNull(gate.onPartialResult("stop"));
+        gate.beginUtterance();
+        assertNotNull(gate.onPartialResult("stop"));
+        assertEquals(2, gate.getEarlyCommands());
+    }
+
+    @Test
+    public void latency_pairsEventsInEitherOrder() {
+        VoiceCommandGate gate = buildGate();
+
+        // Final result path: speech ends, then the command goes out
+        gate.beginUtterance();
+        gate.onEndOfSpeech(1_000_000_000L);
+        assertFalse(gate.isLatencyMeasured());
+        gate.onCommandSent(1_400_000_000L);
+        assertTrue(gate.isLatencyMeasured());
+        assertEquals(400_000_000L, gate.getLastLatencyNs());
+
+        // Partial result path: the command goes out before speech ends
+        gate.beginUtterance();
+        gate.onCommandSent(2_000_000_000L);
+        gate.onCommandSent(2_100_000_000L);  // Only the first send counts
+        gate.onEndOfSpeech(2_300_000_000L);
+        assertEquals(-300_000_000L, gate.getLastLatencyNs());
+
+        assertEquals(2, gate.getMeasuredUtterances());
+        assertEquals(50_000_000L, gate.getAverageLatencyNs());
+    }
+
+    @Test
+    public void nBest_findsCommandBelowNoisyTopHypothesis() {
+        VoiceCommandGate gate = buildGate();
+        VoiceCommandMatcher.Phrase phrase = gate.resolve(
+                Arrays.asList("for what", "go forward", "go for word"), new float[]{0.6f, 0.3f, 0.1f});
+        assertEquals("FORWARD*", phrase.command);
+        assertEquals(1, gate.getLastHypothesis());
+        assertEquals(1f, gate.getLastConfidence(), 0f);
+    }
+
+    @Test
+    public void nBest_weighsRecognizerConfidence() {
+        VoiceCommandGate gate = buildGate();
+
+        // Exact match in a weak hypothesis loses to a near miss in a strong one
+        VoiceCommandMatcher.Phrase phrase = gate.resolve(
+                Arrays.asList("riverse", "forward"), new float[]{0.9f, 0.2f});
+        assertEquals("REVERSE*", phrase.command);
+        assertEquals(0, gate.getLastHypothesis());
+
+        // Without scores the rank decides
+        phrase = gate.resolve(Arrays.asList("forward", "reverse"), null);
+        assertEquals("FORWARD*", phrase.command);
+        phrase = gate.resolve(Arrays.asList("forward", "reverse"), new float[]{0f, 0f});
+        assertEquals("FORWARD*", phrase.command);
+    }
+
+    @Test
+    public void nBest_stopInAnyHypothesisWins() {
+        VoiceCommandGate gate = buildGate();
+        VoiceCommandMatcher.Phrase phrase = gate.resolve(
+                Arrays.asList("go forward", "go forward stop"), new float[]{0.9f, 0.1f});
+        assertEquals("STOP*", phrase.command);
+    }
+
+    @Test
+    public void nBest_ignoresWeakMotionButNotWeakStop() {
+        VoiceCommandGate gate = buildGate();
+
+        // A motion command the recognizer barely heard is not acted on
+        assertNull(gate.resolve(Arrays.asList("hello", "forward"), new float[]{0.8f, 0.1f}));
+        assertNull(gate.resolve(Arrays.asList("riverse"), new float[]{0.2f}));
+        assertEquals(-1, gate.getLastHypothesis());
+
+        // A faint STOP still stops
+        VoiceCommandMatcher.Phrase phrase = gate.resolve(
+                Arrays.asList("hello", "stop"), new float[]{0.8f, 0.1f});
+        assertEquals("STOP*", phrase.command);
+        assertEquals(1, gate.getLastHypothesis());
+    }
+
+    @Test
+    public void nBest_noMatchReturnsNull() {
+        VoiceCommandGate gate = buildGate();
+        assertNull(gate.resolve(Arrays.asList("hello", "yellow"), new float[]{0.5f, 0.4f}));
+        assertEquals(-1, gate.getLastHypothesis());
+    }
+}
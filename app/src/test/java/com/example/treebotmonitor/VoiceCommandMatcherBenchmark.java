@@ -0,0 +1,60 @@
+package com.example.treebotmonitor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Timing of {@link VoiceCommandMatcher} against the map scan MainActivity used before.
+ * Run {@link #main} by hand; it is not a unit test because the numbers depend on the machine.
+ */
+public class VoiceCommandMatcherBenchmark {
+
+    public static void main(String[] args) {
+        VoiceCommandMatcher matcher = VoiceCommandMatcherTest.buildMatcher();
+        Map<String, String> map = new HashMap<>();
+        for (String[] phrase : VoiceCommandMatcherTest.PHRASES) {
+            map.put(phrase[0], phrase[1]);
+        }
+        for (String stop : VoiceCommandMatcherTest.STOP_PHRASES) {
+            map.put(stop, "STOP*");
+        }
+        String[] transcripts = {
+                "ok robot please move the climber a little further up the tree and then go forward",
+                "can you slow it down a bit slower please",
+                "nothing useful was said in this sentence at all",
+                "high speed",
+        };
+
+        int iterations = 200_000;
+        int hits = 0;
+        long start, mapNs = 0, matcherNs = 0;
+        for (int round = 0; round < 2; round++) {  // First round is warm-up
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                if (mapScan(map, transcripts[i & 3]) != null) hits++;
+            }
+            mapNs = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                if (matcher.findBest(transcripts[i & 3]) != null) hits++;
+            }
+            matcherNs = System.nanoTime() - start;
+        }
+
+        System.out.println("VoiceCommandMatcher: " + (matcherNs / iterations) + " ns per transcript, map scan "
+                + (mapNs / iterations) + " ns (" + hits + " hits)");
+    }
+
+    /**
+     * The lookup MainActivity used before: exact key, then the first key contained anywhere.
+     */
+    private static String mapScan(Map<String, String> map, String command) {
+        String exact = map.get(command);
+        if (exact != null) return exact;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (command.contains(entry.getKey())) return entry.getValue();
+        }
+        return null;
+    }
+}
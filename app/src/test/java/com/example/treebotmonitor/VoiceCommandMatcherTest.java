@@ -0,0 +1,108 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VoiceCommandMatcher}.
+ */
+public class VoiceCommandMatcherTest {
+
+    static final String[][] PHRASES = {
+            {"forward", "FORWARD*"}, {"go forward", "FORWARD*"}, {"move forward", "FORWARD*"},
+            {"climb up", "FORWARD*"}, {"reverse", "REVERSE*"}, {"go back", "REVERSE*"},
+            {"move back", "REVERSE*"}, {"backward", "REVERSE*"}, {"go backward", "REVERSE*"},
+            {"climb down", "REVERSE*"}, {"riverse", "REVERSE*"}, {"reveres", "REVERSE*"},
+            {"speed up", "SPEED_UP"}, {"increase speed", "SPEED_UP"}, {"faster", "SPEED_UP"},
+            {"speed down", "SPEED_DOWN"}, {"decrease speed", "SPEED_DOWN"}, {"slower", "SPEED_DOWN"},
+            {"low speed", "SPEED_LOW"}, {"high speed", "SPEED_HIGH"},
+    };
+    static final String[] STOP_PHRASES = {"stop", "top", "staff"};
+
+    static VoiceCommandMatcher buildMatcher() {
+        VoiceCommandMatcher.Builder builder = new VoiceCommandMatcher.Builder();
+        for (String[] phrase : PHRASES) {
+            builder.add(phrase[0], phrase[1]);
+        }
+        for (String stop : STOP_PHRASES) {
+            builder.add(stop, "STOP*", 1);
+        }
+        return builder.build();
+    }
+
+    private static String commandFor(VoiceCommandMatcher matcher, String text) {
+        VoiceCommandMatcher.Phrase phrase = matcher.findBest(text);
+        return phrase == null ? null : phrase.command;
+    }
+
+    @Test
+    public void findBest_exactAndEmbeddedPhrases() {
+        VoiceCommandMatcher matcher = buildMatcher();
+        assertEquals("FORWARD*", commandFor(matcher, "forward"));
+        assertEquals("REVERSE*", commandFor(matcher, "please climb down now"));
+        assertEquals("SPEED_UP", commandFor(matcher, "faster"));
+        assertEquals("SPEED_HIGH", commandFor(matcher, "switch to high speed"));
+    }
+
+    @Test
+    public void findBest_prefersLongestPhrase() {
+        VoiceCommandMatcher matcher = buildMatcher();
+        assertEquals("go backward", matcher.findBest("go backward").text);
+        assertEquals("move forward", matcher.findBest("move forward a bit").text);
+    }
+
+    @Test
+    public void findBest_stopOutranksOtherCommands() {
+        VoiceCommandMatcher matcher = buildMatcher();
+        assertEquals("STOP*", commandFor(matcher, "go forward no stop"));
+        assertEquals("STOP*", commandFor(matcher, "stop and reverse"));
+        assertEquals("STOP*", commandFor(matcher, "Top"));
+    }
+
+    @Test
+    public void findBest_onlyMatchesWholeWords() {
+        VoiceCommandMatcher matcher = buildMatcher();
+        assertNull(matcher.findBest("open the laptop"));
+        assertNull(matcher.findBest("forwards"));
+        assertEquals("FORWARD*", commandFor(matcher, "forward, then wait"));
+    }
+
+    @Test
+    public void findBest_priorityPhrasesMatchWordPrefixes() {
+        VoiceCommandMatcher matcher = buildMatcher();
+        assertEquals("STOP*", commandFor(matcher, "stopping"));
+        assertEquals("STOP*", commandFor(matcher, "forward stopped"));
+        assertEquals("STOP*", commandFor(matcher, "Stop!"));
+        // Still anchored at the start of a word, and only for priority phrases
+        assertNull(matcher.findBest("open the laptop"));
+        assertNull(matcher.findBest("nonstop"));
+        assertNull(matcher.findBest("reversed"));
+    }
+
+    @Test
+    public void findBest_ignoresCase() {
+        VoiceCommandMatcher matcher = buildMatcher();
+        assertEquals("STOP*", commandFor(matcher, "STOP"));
+        assertEquals("SPEED_DOWN", commandFor(matcher, "Decrease Speed"));
+    }
+
+    @Test
+    public void findBest_noMatchReturnsNull() {
+        VoiceCommandMatcher matcher = buildMatcher();
+        assertNull(matcher.findBest(""));
+        assertNull(matcher.findBest("hello there"));
+        assertNull(matcher.findBest("héllo wörld"));
+    }
+
+    @Test
+    public void builder_collapsesDuplicatePhrases() {
+        VoiceCommandMatcher matcher = new VoiceCommandMatcher.Builder()
+                .add("stop", "STOP*")
+                .add("Stop", "OTHER")
+                .add("STOP ", "OTHER")
+                .build();
+        assertEquals(1, matcher.getPhraseCount());
+        assertEquals("STOP*", commandFor(matcher, "stop"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VoiceGrammar}.
+ */
+public class VoiceGrammarTest {
+
+    @Test
+    public void parse_speedAndMotion() {
+        VoiceGrammar.Batch batch = VoiceGrammar.parse("speed three forward");
+        assertNotNull(batch);
+        assertEquals(2, batch.getClauseCount());
+        assertTrue(batch.isCompound());
+        assertEquals(3, batch.speed);
+        assertEquals("FORWARD*", batch.motion);
+
+        batch = VoiceGrammar.parse("go back at low speed");
+        assertEquals(1, batch.speed);
+        assertEquals("REVERSE*", batch.motion);
+    }
+
+    @Test
+    public void parse_jointAngles() {
+        VoiceGrammar.Batch batch = VoiceGrammar.parse("base ninety shoulder forty-five");
+        assertNotNull(batch);
+        assertArrayEquals(new String[]{"A90", "B45"}, batch.getArmCommands());
+        assertEquals(0, batch.speed);
+        assertNull(batch.motion);
+
+        batch = VoiceGrammar.parse("wrist roll to one hundred and twenty degrees then gripper 30");
+        assertArrayEquals(new String[]{"E120", "F30"}, batch.getArmCommands());
+        assertArrayEquals(new String[]{"D15"}, VoiceGrammar.parse("wrist fifteen").getArmCommands());
+    }
+
+    @Test
+    public void parse_delayedStop() {
+        VoiceGrammar.Batch batch = VoiceGrammar.parse("stop in two seconds");
+        assertNotNull(batch);
+        assertEquals(2000, batch.stopDelayMs);
+        assertNull(batch.motion);
+        assertTrue(batch.isCompound());
+
+        batch = VoiceGrammar.parse("forward and stop in 5 seconds");
+        assertEquals("FORWARD*", batch.motion);
+        assertEquals(5000, batch.stopDelayMs);
+    }
+
+    @Test
+    public void parse_stopWinsOverMotion() {
+        assertEquals("STOP*", VoiceGrammar.parse("stop forward").motion);
+        assertEquals("STOP*", VoiceGrammar.parse("forward stop").motion);
+        assertEquals("STOP*", VoiceGrammar.parse("back stop then up").motion);
+        assertEquals("REVERSE*", VoiceGrammar.parse("forward then back").motion);
+    }
+
+    @Test
+    public void isDelayedStop_onlyOnceTheDelayIsSpoken() {
+        assertTrue(VoiceGrammar.isDelayedStop("stop in"));
+        assertTrue(VoiceGrammar.isDelayedStop("stop in two seconds"));
+        // A bare stop acts at once, even if "in n seconds" may follow
+        assertFalse(VoiceGrammar.isDelayedStop("stop"));
+        assertFalse(VoiceGrammar.isDelayedStop("forward and Stop"));
+        assertFalse(VoiceGrammar.isDelayedStop("stop the climber"));
+        assertFalse(VoiceGrammar.isDelayedStop("stop in two seconds no stop now"));
+        assertFalse(VoiceGrammar.isDelayedStop("go forward"));
+        assertFalse(VoiceGrammar.isDelayedStop(""));
+    }
+
+    @Test
+    public void parse_loneMotionIsNotCompound() {
+        assertFalse(VoiceGrammar.parse("forward").isCompound());
+        assertFalse(VoiceGrammar.parse("please stop").isCompound());
+    }
+
+    @Test
+    public void parse_rejectsOutOfGrammar() {
+        assertNull(VoiceGrammar.parse(""));
+        assertNull(VoiceGrammar.parse("hello robot"));
+        assertNull(VoiceGrammar.parse("speed seven"));
+        assertNull(VoiceGrammar.parse("base two hundred"));
+        assertNull(VoiceGrammar.parse("shoulder"));
+        assertNull(VoiceGrammar.parse("stop in two"));
+        assertNull(VoiceGrammar.parse("stop in ninety seconds"));
+    }
+
+    @Test
+    public void parseNumber_words() {
+        assertEquals(0, number("zero"));
+        assertEquals(13, number("thirteen"));
+        assertEquals(45, number("forty five"));
+        assertEquals(90, number("ninety"));
+        assertEquals(100, number("a hundred"));
+        assertEquals(180, number("one hundred eighty"));
+        assertEquals(120, number("one hundred and twenty"));
+        assertEquals(-1, number("degrees"));
+    }
+
+    private static int number(String text) {
+        return VoiceGrammar.parseNumber(text.split(" "), new int[]{0});
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.treebotmonitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VoiceListeningSession}.
+ */
+public class VoiceListeningSessionTest {
+
+    private static final long MS = 1_000_000L;
+
+    private long now = 0;
+
+    private VoiceListeningSession startSession() {
+        VoiceListeningSession session = new VoiceListeningSession(() -> now);
+        session.start();
+        return session;
+    }
+
+    @Test
+    public void silence_rearmsImmediatelyWithoutGivingUp() {
+        VoiceListeningSession session = startSession();
+        for (int i = 0; i < VoiceListeningSession.MAX_RETRIES * 3; i++) {
+            session.onReady();
+            now += 5000 * MS;
+            assertEquals(0, session.onError(VoiceListeningSession.ERROR_NO_SPEECH));
+        }
+        assertEquals(0, session.getFailures());
+    }
+
+    @Test
+    public void busy_backsOffThenGivesUp() {
+        VoiceListeningSession session = startSession();
+        long expected = VoiceListeningSession.BASE_BACKOFF_MS;
+        for (int i = 0; i < VoiceListeningSession.MAX_RETRIES; i++) {
+            assertEquals(expected, session.onError(VoiceListeningSession.ERROR_TRANSIENT));
+            expected *= 2;
+        }
+        assertEquals(-1, session.onError(VoiceListeningSession.ERROR_TRANSIENT));
+    }
+
+    @Test
+    public void instantNoMatch_countsAsFailure() {
+        VoiceListeningSession session = startSession();
+        session.onReady();
+        now += 50 * MS;
+        assertEquals(VoiceListeningSession.BASE_BACKOFF_MS, session.onError(VoiceListeningSession.ERROR_NO_SPEECH));
+        assertEquals(1, session.getFailures());
+    }
+
+    @Test
+    public void result_clearsFailures() {
+        VoiceListeningSession session = startSession();
+        session.onError(VoiceListeningSession.ERROR_TRANSIENT);
+        session.onError(VoiceListeningSession.ERROR_TRANSIENT);
+        session.onReady();
+        session.onResult();
+        assertEquals(0, session.getFailures());
+        assertEquals(VoiceListeningSession.BASE_BACKOFF_MS, session.onError(VoiceListeningSession.ERROR_TRANSIENT));
+    }
+
+    @Test
+    public void fatalError_givesUp() {
+        VoiceListeningSession session = startSession();
+        assertEquals(-1, session.onError(VoiceListeningSession.ERROR_FATAL));
+    }
+
+    @Test
+    public void stats_dutyCycleAndRearmLatency() {
+        VoiceListeningSession session = startSession();
+
+        now += 100 * MS;            // First arm
+        session.onReady();
+        now += 900 * MS;
+        session.onResult();
+        now += 40 * MS;             // Re-arm
+        session.onReady();
+        now += 860 * MS;
+        session.onResult();
+        now += 60 * MS;             // Re-arm
+        session.onReady();
+        now += 40 * MS;
+
+        assertEquals(2, session.getRearms());
+        assertEquals(50 * MS, session.getAverageRearmNs());
+        assertEquals(60 * MS, session.getMaxRearmNs());
+        assertEquals(1800f / 2000f, session.getDutyCycle(), 1e-4f);
+    }
+
+    @Test
+    public void stop_endsSession() {
+        VoiceListeningSession session = startSession();
+        session.onReady();
+        session.stop();
+        assertFalse(session.isActive());
+        assertEquals(-1, session.onError(VoiceListeningSession.ERROR_NO_SPEECH));
+    }
+}